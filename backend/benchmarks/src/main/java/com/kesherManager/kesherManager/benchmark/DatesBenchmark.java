@@ -0,0 +1,50 @@
+package com.kesherManager.kesherManager.benchmark;
+
+import com.kesherManager.kesherManager.util.Dates;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// util.Dates conversions used by every date-range query and derived getter
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatesBenchmark {
+
+    private LocalDate localDate;
+    private LocalDateTime localDateTime;
+    private Date date;
+
+    @Setup
+    public void setup() {
+        localDate = new LocalDate(2024, 3, 15);
+        localDateTime = new LocalDateTime(2024, 3, 15, 23, 59, 59);
+        date = Dates.atUtc(localDateTime);
+    }
+
+    @Benchmark
+    public Date atUtcLocalDate() {
+        return Dates.atUtc(localDate);
+    }
+
+    @Benchmark
+    public Date atUtcLocalDateTime() {
+        return Dates.atUtc(localDateTime);
+    }
+
+    @Benchmark
+    public LocalDateTime atLocalTime() {
+        return Dates.atLocalTime(date);
+    }
+
+    @Benchmark
+    public Date nowUTC() {
+        return Dates.nowUTC();
+    }
+}
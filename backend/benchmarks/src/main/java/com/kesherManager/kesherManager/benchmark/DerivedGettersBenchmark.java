@@ -0,0 +1,46 @@
+package com.kesherManager.kesherManager.benchmark;
+
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Derived getters that Jackson calls for every serialized task and transport
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DerivedGettersBenchmark {
+
+    private Task task;
+    private Transport transport;
+
+    @Setup
+    public void setup() {
+        task = Fixtures.task(3);
+        transport = Fixtures.transport(3);
+    }
+
+    @Benchmark
+    public boolean taskIsOverdue() {
+        return task.isOverdue();
+    }
+
+    @Benchmark
+    public boolean taskIsDueToday() {
+        return task.isDueToday();
+    }
+
+    @Benchmark
+    public String taskRelatedDonationGroup() {
+        return task.getRelatedDonationGroup();
+    }
+
+    @Benchmark
+    public String transportDestinationDonationGroup() {
+        return transport.getDestinationDonationGroup();
+    }
+}
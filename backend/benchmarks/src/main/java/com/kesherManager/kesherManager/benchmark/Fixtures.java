@@ -0,0 +1,116 @@
+package com.kesherManager.kesherManager.benchmark;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.util.Dates;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Synthetic data shared by the benchmarks, shaped like production rows
+final class Fixtures {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private Fixtures() {
+    }
+
+    static Box box(long id) {
+        Box box = new Box();
+        box.setId(id);
+        box.setResponsiblePerson("ישראל ישראלי " + id);
+        box.setResponsiblePersonPhone("050-123" + (id % 10000));
+        box.setAssociationManager("מנהל עמותה " + (id % 20));
+        box.setDonationGroup("קבוצה " + (id % 8));
+        box.setFamilyName("משפחת כהן");
+        box.setCity("ירושלים");
+        box.setAddress("רחוב יפו " + id);
+        box.setLatitude(31.78 + (id % 100) / 1000.0);
+        box.setLongitude(35.21 + (id % 100) / 1000.0);
+        box.setStatus(Box.BoxStatus.values()[(int) (id % Box.BoxStatus.values().length)]);
+        box.setNotes("הערות לקופסה " + id);
+        box.setBoxType("STANDARD");
+        box.setCreatedAt(Dates.nowUTC());
+        box.setUpdatedAt(Dates.nowUTC());
+        return box;
+    }
+
+    static Transport transport(long id) {
+        Transport transport = new Transport(box(id), Transport.DestinationType.BOX, new Date(System.currentTimeMillis() + (id % 14 - 7) * DAY));
+        transport.setId(id);
+        transport.setDestinationBox(box(id + 1));
+        transport.setDriverName("נהג " + (id % 12));
+        transport.setDriverPhone("052-555" + (id % 10000));
+        transport.setCreatedBy("admin");
+        transport.setNotes("הערות להובלה " + id);
+        return transport;
+    }
+
+    static Task task(long id) {
+        Task task = new Task(Task.TaskType.values()[(int) (id % Task.TaskType.values().length)],
+                "משימה " + id,
+                new Date(System.currentTimeMillis() + (id % 14 - 7) * DAY),
+                Task.TaskPriority.values()[(int) (id % Task.TaskPriority.values().length)]);
+        task.setId(id);
+        task.setRelatedBox(box(id));
+        task.setRelatedTransport(transport(id));
+        task.setAssignedTo("מתנדב " + (id % 30));
+        task.setNotes("הערות למשימה " + id);
+        task.setTaskCategory("כללי");
+        return task;
+    }
+
+    static List<Box> boxes(int size) {
+        List<Box> boxes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            boxes.add(box(i));
+        }
+        return boxes;
+    }
+
+    static List<Task> tasks(int size) {
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(task(i));
+        }
+        return tasks;
+    }
+
+    static List<Transport> transports(int size) {
+        List<Transport> transports = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            transports.add(transport(i));
+        }
+        return transports;
+    }
+
+    // Import entries as they arrive from the JSON import endpoints
+    static List<Map<String, Object>> importEntries(int size) {
+        List<Map<String, Object>> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("city", "ירושלים");
+            entry.put("address", "רחוב יפו " + i);
+            entry.put("responsiblePerson", "ישראל ישראלי " + i);
+            entry.put("responsiblePersonPhone", "050-123" + i);
+            entry.put("associationManager", "מנהל עמותה " + (i % 20));
+            entry.put("donationGroup", "קבוצה " + (i % 8));
+            entry.put("notes", "הערות " + i);
+            entry.put("status", i % 3 == 0 ? "maintenance" : "ACTIVE");
+            // Mix numeric and string coordinates like real import files
+            if (i % 2 == 0) {
+                entry.put("latitude", 31.78 + i / 100000.0);
+                entry.put("longitude", 35.21 + i / 100000.0);
+            } else {
+                entry.put("latitude", String.valueOf(31.78 + i / 100000.0));
+                entry.put("longitude", "n/a");
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
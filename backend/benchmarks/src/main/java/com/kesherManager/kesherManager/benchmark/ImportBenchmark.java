@@ -0,0 +1,44 @@
+package com.kesherManager.kesherManager.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kesherManager.kesherManager.controller.ImportController;
+import com.kesherManager.kesherManager.geo.Geocoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Map-to-Box conversion done for every entry of an import file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportBenchmark {
+
+    @Param({"1000"})
+    private int size;
+
+    private ImportController importController;
+    private List<Map<String, Object>> entries;
+
+    @Setup
+    public void setup() {
+        // toBox does not touch the service. Without a gazetteer the geocoder finds nothing for the odd entries,
+        // whose longitude is not a number.
+        Geocoder geocoder = new Geocoder(new SimpleMeterRegistry(), "", System.getProperty("java.io.tmpdir"), 1000);
+        importController = new ImportController(null, geocoder, new ObjectMapper(), new SimpleMeterRegistry());
+        entries = Fixtures.importEntries(size);
+    }
+
+    @Benchmark
+    public void toBox(Blackhole blackhole) {
+        for (Map<String, Object> entry : entries) {
+            blackhole.consume(importController.toBox(entry));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.kesherManager.kesherManager.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kesherManager.kesherManager.config.ApplicationConfig;
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON serialization of the list endpoints through the application ObjectMapper
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Box> boxes;
+    private List<Task> tasks;
+    private List<Transport> transports;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ApplicationConfig().objectMapper(Jackson2ObjectMapperBuilder.json());
+        boxes = Fixtures.boxes(size);
+        tasks = Fixtures.tasks(size);
+        transports = Fixtures.transports(size);
+    }
+
+    @Benchmark
+    public byte[] serializeBoxes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(boxes);
+    }
+
+    @Benchmark
+    public byte[] serializeTasks() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(tasks);
+    }
+
+    @Benchmark
+    public byte[] serializeTransports() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transports);
+    }
+}
@@ -0,0 +1,158 @@
+package com.kesherManager.kesherManager.loadtest;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.service.BatchResult;
+import com.kesherManager.kesherManager.service.BoxService;
+import com.kesherManager.kesherManager.service.TaskService;
+import com.kesherManager.kesherManager.service.TransportService;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// Fills the embedded database with synthetic boxes, transports and tasks. Everything goes through the services,
+// so the rows get their donation group, status history and index entries as they would in production.
+public class DataSeeder {
+
+    static final int DONATION_GROUPS = 20;
+    static final int DRIVERS = 25;
+    static final int ASSIGNEES = 40;
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    // Rows per createTransports / createTasks call, one transaction each
+    private static final int BATCH_SIZE = 500;
+
+    private final BoxService boxService;
+    private final TransportService transportService;
+    private final TaskService taskService;
+    private final Random random = new Random(42);
+
+    private final List<Long> boxIds = new ArrayList<>();
+    private final List<Long> transportIds = new ArrayList<>();
+    private final List<Long> taskIds = new ArrayList<>();
+
+    public DataSeeder(BoxService boxService, TransportService transportService, TaskService taskService) {
+        this.boxService = boxService;
+        this.transportService = transportService;
+        this.taskService = taskService;
+    }
+
+    public void seed(LoadTestConfig config) {
+        List<Box> boxes = new ArrayList<>(config.getBoxes());
+        for (int i = 0; i < config.getBoxes(); i++) {
+            Box box = boxService.saveBox(box(i));
+            boxes.add(box);
+            boxIds.add(box.getId());
+        }
+
+        List<Transport> transports = new ArrayList<>(config.getTransports());
+        for (int i = 0; i < config.getTransports(); i++) {
+            transports.add(transport(i, boxes));
+        }
+        for (int from = 0; from < transports.size(); from += BATCH_SIZE) {
+            created("transport", transportService.createTransports(batch(transports, from)), transportIds);
+        }
+
+        List<Task> tasks = new ArrayList<>(config.getTasks());
+        for (int i = 0; i < config.getTasks(); i++) {
+            tasks.add(task(i, boxes, transports));
+        }
+        for (int from = 0; from < tasks.size(); from += BATCH_SIZE) {
+            created("task", taskService.createTasks(batch(tasks, from)), taskIds);
+        }
+    }
+
+    private static <T> List<T> batch(List<T> values, int from) {
+        return values.subList(from, Math.min(from + BATCH_SIZE, values.size()));
+    }
+
+    // A rejected row means the generator no longer matches the validation rules, so the run stops
+    private static void created(String kind, BatchResult result, List<Long> ids) {
+        for (BatchResult.Item item : result.getItems()) {
+            if (item.getOutcome() != BatchResult.Outcome.CREATED) {
+                throw new IllegalStateException("Seeding rejected a " + kind + ": " + item.getErrors());
+            }
+            ids.add(item.getId());
+        }
+    }
+
+    private Box box(int i) {
+        Box box = new Box();
+        box.setResponsiblePerson("אחראי " + i);
+        box.setResponsiblePersonPhone("050-" + (1000000 + i));
+        box.setAssociationManager("מנהל " + (i % 50));
+        box.setDonationGroup(donationGroup(i % DONATION_GROUPS));
+        box.setFamilyName("משפחה " + i);
+        box.setCity("עיר " + (i % 30));
+        box.setAddress("רחוב " + (i % 200) + " " + i);
+        box.setLatitude(29.5 + random.nextDouble() * 3.8);
+        box.setLongitude(34.3 + random.nextDouble() * 1.6);
+        box.setStatus(Box.BoxStatus.values()[i % Box.BoxStatus.values().length]);
+        box.setNotes("הערה " + i);
+        box.setBoxType("STANDARD");
+        return box;
+    }
+
+    private Transport transport(int i, List<Box> boxes) {
+        Transport transport = new Transport(pick(boxes), Transport.DestinationType.values()[i % 3], daysFromNow(random.nextInt(60) - 30));
+        if (transport.getDestinationType() == Transport.DestinationType.BOX) {
+            transport.setDestinationBox(pick(boxes));
+        } else {
+            transport.setDestinationName("יעד " + i);
+        }
+        transport.setStatus(Transport.TransportStatus.values()[i % Transport.TransportStatus.values().length]);
+        transport.setDriverName(driver(i % DRIVERS));
+        transport.setDriverPhone("052-" + (1000000 + i));
+        transport.setCreatedBy("loadtest");
+        return transport;
+    }
+
+    private Task task(int i, List<Box> boxes, List<Transport> transports) {
+        Task task = new Task(Task.TaskType.values()[i % Task.TaskType.values().length],
+                "משימה " + i,
+                daysFromNow(random.nextInt(60) - 30),
+                Task.TaskPriority.values()[i % Task.TaskPriority.values().length]);
+        task.setRelatedBox(pick(boxes));
+        if (i % 4 == 0 && !transports.isEmpty()) {
+            task.setRelatedTransport(pick(transports));
+        }
+        task.setStatus(Task.TaskStatus.values()[i % Task.TaskStatus.values().length]);
+        task.setAssignedTo(assignee(i % ASSIGNEES));
+        return task;
+    }
+
+    private <T> T pick(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static Date daysFromNow(int days) {
+        return new Date(System.currentTimeMillis() + days * DAY);
+    }
+
+    static String donationGroup(int i) {
+        return "קבוצה " + i;
+    }
+
+    static String driver(int i) {
+        return "נהג " + i;
+    }
+
+    static String assignee(int i) {
+        return "מתנדב " + i;
+    }
+
+    public List<Long> getBoxIds() {
+        return boxIds;
+    }
+
+    public List<Long> getTransportIds() {
+        return transportIds;
+    }
+
+    public List<Long> getTaskIds() {
+        return taskIds;
+    }
+}
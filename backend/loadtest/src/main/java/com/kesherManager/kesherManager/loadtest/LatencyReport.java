@@ -0,0 +1,114 @@
+package com.kesherManager.kesherManager.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-endpoint latency histograms (microseconds) of the 2xx responses, and counts of the other responses by status.
+// A rejected request (429/503 from the bulkheads) answers fast, so timing it with the rest would flatter the latency.
+public class LatencyReport {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    // Status recorded for a request that got no response at all (timeout, connection error)
+    public static final int NO_RESPONSE = 0;
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    // Endpoint -> status -> count, for everything but 2xx
+    private final Map<String, Map<Integer, LongAdder>> failures = new ConcurrentHashMap<>();
+
+    public void record(String label, long nanos, int status) {
+        Histogram histogram = histograms.computeIfAbsent(label, key -> new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3));
+        if (status >= 200 && status < 300) {
+            histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_TRACKABLE_MICROS));
+        } else {
+            failures.computeIfAbsent(label, key -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(status, key -> new LongAdder())
+                    .increment();
+        }
+    }
+
+    public void reset() {
+        histograms.clear();
+        failures.clear();
+    }
+
+    public void print(PrintStream out, LoadTestConfig config, double elapsedSeconds) {
+        out.println("kesherManager load test: " + config);
+        out.println();
+        out.printf("%-40s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "2xx", "non-2xx", "2xx/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        Histogram total = new Histogram(MAX_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            long errorCount = errorCount(entry.getKey());
+            total.add(histogram);
+            totalErrors += errorCount;
+            printRow(out, entry.getKey(), histogram, errorCount, elapsedSeconds);
+        }
+        out.println();
+        printRow(out, "TOTAL", total, totalErrors, elapsedSeconds);
+
+        if (!failures.isEmpty()) {
+            out.println();
+            out.println("Non-2xx responses (not in the latency columns):");
+            for (Map.Entry<String, Map<Integer, LongAdder>> entry : new TreeMap<>(failures).entrySet()) {
+                for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(entry.getValue()).entrySet()) {
+                    out.printf("%-40s %11s %9d%n", entry.getKey(),
+                            status.getKey() == NO_RESPONSE ? "no response" : status.getKey(), status.getValue().sum());
+                }
+            }
+        }
+    }
+
+    // Text summary plus full percentile distributions, one block per endpoint
+    public void write(String reportPath, LoadTestConfig config, double elapsedSeconds) throws IOException {
+        Path path = Paths.get(reportPath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(path.toFile()), true, StandardCharsets.UTF_8)) {
+            print(out, config, elapsedSeconds);
+            for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+                out.println();
+                out.println("== " + entry.getKey() + " (values in ms)");
+                entry.getValue().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private long errorCount(String label) {
+        Map<Integer, LongAdder> counts = failures.get(label);
+        return counts == null ? 0 : counts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    private static void printRow(PrintStream out, String label, Histogram histogram, long errorCount, double elapsedSeconds) {
+        out.printf("%-40s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                label,
+                histogram.getTotalCount(),
+                errorCount,
+                histogram.getTotalCount() / elapsedSeconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
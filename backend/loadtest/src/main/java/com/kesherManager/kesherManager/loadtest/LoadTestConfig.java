@@ -0,0 +1,61 @@
+package com.kesherManager.kesherManager.loadtest;
+
+// Load test settings, read from -Dloadtest.* system properties
+public class LoadTestConfig {
+
+    private final int concurrency;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int boxes;
+    private final int tasks;
+    private final int transports;
+    private final String reportPath;
+
+    public LoadTestConfig() {
+        this.concurrency = Integer.getInteger("loadtest.concurrency", 8);
+        this.durationSeconds = Integer.getInteger("loadtest.duration", 30);
+        this.warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+        this.boxes = Integer.getInteger("loadtest.boxes", 2000);
+        this.tasks = Integer.getInteger("loadtest.tasks", 5000);
+        this.transports = Integer.getInteger("loadtest.transports", 5000);
+        this.reportPath = System.getProperty("loadtest.report", "target/loadtest-report.txt");
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getBoxes() {
+        return boxes;
+    }
+
+    public int getTasks() {
+        return tasks;
+    }
+
+    public int getTransports() {
+        return transports;
+    }
+
+    public String getReportPath() {
+        return reportPath;
+    }
+
+    @Override
+    public String toString() {
+        return "concurrency=" + concurrency +
+                ", duration=" + durationSeconds + "s" +
+                ", warmup=" + warmupSeconds + "s" +
+                ", boxes=" + boxes +
+                ", tasks=" + tasks +
+                ", transports=" + transports;
+    }
+}
@@ -0,0 +1,116 @@
+package com.kesherManager.kesherManager.loadtest;
+
+import com.kesherManager.kesherManager.KesherManagerApplication;
+import com.kesherManager.kesherManager.service.BoxService;
+import com.kesherManager.kesherManager.service.TaskService;
+import com.kesherManager.kesherManager.service.TransportService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Boots the backend on an in-memory H2 database, seeds it and drives the request mix
+public class LoadTestRunner {
+
+    // Command line arguments override application.properties, so the hosted database is never touched
+    private static final String[] APP_ARGS = {
+            "--server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=WARN"
+    };
+
+    // The bulkheads admit every worker, so the run measures the endpoints rather than the production limits
+    private static String[] appArgs(LoadTestConfig config) {
+        int concurrency = config.getConcurrency();
+        String[] workload = {
+                "--kesher.workload.interactive.max-concurrent=" + concurrency,
+                "--kesher.workload.interactive.max-queued=" + concurrency,
+                "--kesher.workload.bulk.max-concurrent=" + concurrency,
+                "--kesher.workload.bulk.max-queued=" + concurrency,
+                "--kesher.workload.bulk-pool-size=" + concurrency
+        };
+        String[] args = Arrays.copyOf(APP_ARGS, APP_ARGS.length + workload.length);
+        System.arraycopy(workload, 0, args, APP_ARGS.length, workload.length);
+        return args;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig();
+        ConfigurableApplicationContext context = SpringApplication.run(KesherManagerApplication.class, appArgs(config));
+        try {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            String baseUrl = "http://localhost:" + port;
+
+            DataSeeder seeder = new DataSeeder(
+                    context.getBean(BoxService.class),
+                    context.getBean(TransportService.class),
+                    context.getBean(TaskService.class));
+            seeder.seed(config);
+            System.out.println("Seeded database, app listening on " + baseUrl);
+
+            RequestMix mix = new RequestMix(baseUrl, seeder);
+            LatencyReport report = new LatencyReport();
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            System.out.println("Warming up for " + config.getWarmupSeconds() + "s");
+            drive(client, mix, report, config.getConcurrency(), config.getWarmupSeconds());
+            report.reset();
+
+            System.out.println("Measuring for " + config.getDurationSeconds() + "s at concurrency " + config.getConcurrency());
+            long start = System.nanoTime();
+            drive(client, mix, report, config.getConcurrency(), config.getDurationSeconds());
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println();
+            report.print(System.out, config, elapsedSeconds);
+            report.write(config.getReportPath(), config, elapsedSeconds);
+            System.out.println();
+            System.out.println("Report written to " + config.getReportPath());
+        } finally {
+            SpringApplication.exit(context);
+        }
+    }
+
+    // Closed-loop workers: each thread sends the next request as soon as the previous one returns
+    private static void drive(HttpClient client, RequestMix mix, LatencyReport report,
+                              int concurrency, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    RequestMix.Scenario scenario = mix.next(random);
+                    HttpRequest request = mix.build(scenario, random);
+                    long begin = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = LatencyReport.NO_RESPONSE;
+                    }
+                    report.record(scenario.getLabel(), System.nanoTime() - begin, status);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,138 @@
+package com.kesherManager.kesherManager.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+// Weighted mix of REST calls, roughly matching what the frontend and drivers send
+public class RequestMix {
+
+    // A labelled request kind; the label is the histogram key in the report
+    public static class Scenario {
+        private final String label;
+        private final int weight;
+        private final Function<ThreadLocalRandom, HttpRequest.Builder> request;
+
+        Scenario(String label, int weight, Function<ThreadLocalRandom, HttpRequest.Builder> request) {
+            this.label = label;
+            this.weight = weight;
+            this.request = request;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final String baseUrl;
+    private final DataSeeder seeder;
+    private final List<Scenario> scenarios = new ArrayList<>();
+    private int totalWeight;
+
+    public RequestMix(String baseUrl, DataSeeder seeder) {
+        this.baseUrl = baseUrl;
+        this.seeder = seeder;
+
+        // Lists and lookups
+        add("GET /api/boxes", 6, r -> get("/api/boxes"));
+        add("GET /api/boxes/{id}", 15, r -> get("/api/boxes/" + pick(r, seeder.getBoxIds())));
+        add("GET /api/tasks", 6, r -> get("/api/tasks"));
+        add("GET /api/tasks/{id}", 10, r -> get("/api/tasks/" + pick(r, seeder.getTaskIds())));
+        add("GET /api/tasks/overdue", 5, r -> get("/api/tasks/overdue"));
+        add("GET /api/tasks/assigned/{assignee}", 6,
+                r -> get("/api/tasks/assigned/" + encode(DataSeeder.assignee(r.nextInt(DataSeeder.ASSIGNEES)))));
+        add("GET /api/transports", 6, r -> get("/api/transports"));
+        add("GET /api/transports/{id}", 8, r -> get("/api/transports/" + pick(r, seeder.getTransportIds())));
+        add("GET /api/transports/today", 5, r -> get("/api/transports/today"));
+        add("GET /api/transports/date-range", 5, r -> {
+            LocalDate start = LocalDate.now().minusDays(r.nextInt(30));
+            return get("/api/transports/date-range?startDate=" + start + "&endDate=" + start.plusDays(7));
+        });
+
+        // Search endpoints
+        add("GET /api/boxes/search", 4, r -> get("/api/boxes/search?address=" + encode("רחוב " + r.nextInt(200))));
+        add("GET /api/boxes/advanced-search", 3,
+                r -> get("/api/boxes/advanced-search?donationGroup=" + encode(DataSeeder.donationGroup(r.nextInt(DataSeeder.DONATION_GROUPS)))));
+        add("GET /api/transports/driver/{name}", 3,
+                r -> get("/api/transports/driver/" + encode(DataSeeder.driver(r.nextInt(DataSeeder.DRIVERS)))));
+
+        // Writes from the field and imports
+        add("PATCH /api/tasks/{id}/status", 6, r -> patch("/api/tasks/" + pick(r, seeder.getTaskIds()) + "/status?status=IN_PROGRESS"));
+        add("PATCH /api/transports/{id}/status", 4, r -> patch("/api/transports/" + pick(r, seeder.getTransportIds()) + "/status?status=IN_PROGRESS"));
+        add("PATCH /api/boxes/{id}/status", 2, r -> patch("/api/boxes/" + pick(r, seeder.getBoxIds()) + "/status?status=ACTIVE"));
+        add("POST /api/import/boxes/json", 1, r -> post("/api/import/boxes/json", importBody(r, 20)));
+    }
+
+    private void add(String label, int weight, Function<ThreadLocalRandom, HttpRequest.Builder> request) {
+        scenarios.add(new Scenario(label, weight, request));
+        totalWeight += weight;
+    }
+
+    public Scenario next(ThreadLocalRandom random) {
+        int roll = random.nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            roll -= scenario.weight;
+            if (roll < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    public HttpRequest build(Scenario scenario, ThreadLocalRandom random) {
+        return scenario.request.apply(random)
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    public List<Scenario> getScenarios() {
+        return scenarios;
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+    }
+
+    private HttpRequest.Builder patch(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).method("PATCH", HttpRequest.BodyPublishers.noBody());
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8));
+    }
+
+    private static String importBody(ThreadLocalRandom random, int size) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            int n = random.nextInt(100000);
+            json.append("{\"city\":\"עיר ").append(n % 30)
+                    .append("\",\"address\":\"רחוב ").append(n % 200).append(' ').append(n)
+                    .append("\",\"responsiblePerson\":\"אחראי ").append(n)
+                    .append("\",\"donationGroup\":\"").append(DataSeeder.donationGroup(n % DataSeeder.DONATION_GROUPS))
+                    .append("\",\"status\":\"ACTIVE\",\"latitude\":").append(31 + random.nextDouble())
+                    .append(",\"longitude\":").append(34.5 + random.nextDouble())
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static Long pick(ThreadLocalRandom random, List<Long> ids) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -2,12 +2,20 @@ package com.kesherManager.kesherManager;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
-@SpringBootApplication
+// R2DBC is configured in ReactiveReadConfig for the read-only /api/v2 endpoints; the auto-configured
+// R2DBC transaction manager would otherwise replace the JPA one
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 public class KesherManagerApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(KesherManagerApplication.class, args);
+		SpringApplication application = new SpringApplication(KesherManagerApplication.class);
+		// Records startup steps for /actuator/startup
+		application.setApplicationStartup(new BufferingApplicationStartup(4096));
+		application.run(args);
 	}
 
 }
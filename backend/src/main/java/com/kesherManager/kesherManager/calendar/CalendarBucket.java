@@ -0,0 +1,69 @@
+package com.kesherManager.kesherManager.calendar;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Counts of the tasks due and the transports scheduled in one day or week (Asia/Jerusalem, start and end inclusive)
+public class CalendarBucket {
+
+    private final String start;
+    private final String end;
+    private final Counts tasks = new Counts();
+    private final Counts transports = new Counts();
+
+    CalendarBucket(String start, String end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public String getStart() {
+        return start;
+    }
+
+    public String getEnd() {
+        return end;
+    }
+
+    public Counts getTasks() {
+        return tasks;
+    }
+
+    public Counts getTransports() {
+        return transports;
+    }
+
+    // Per-status/type/priority counts; transports have no priority and count their destination type as type
+    public static class Counts {
+
+        private long total;
+        private final Map<String, Long> byStatus = new TreeMap<>();
+        private final Map<String, Long> byType = new TreeMap<>();
+        private final Map<String, Long> byPriority = new TreeMap<>();
+
+        void add(String status, String type, String priority, long count) {
+            total += count;
+            byStatus.merge(status != null ? status : "NONE", count, Long::sum);
+            byType.merge(type != null ? type : "NONE", count, Long::sum);
+            if (priority != null) {
+                byPriority.merge(priority, count, Long::sum);
+            }
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public Map<String, Long> getByStatus() {
+            return Collections.unmodifiableMap(byStatus);
+        }
+
+        public Map<String, Long> getByType() {
+            return Collections.unmodifiableMap(byType);
+        }
+
+        public Map<String, Long> getByPriority() {
+            return Collections.unmodifiableMap(byPriority);
+        }
+    }
+}
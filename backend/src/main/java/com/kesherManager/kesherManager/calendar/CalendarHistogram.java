@@ -0,0 +1,266 @@
+package com.kesherManager.kesherManager.calendar;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import com.kesherManager.kesherManager.util.Dates;
+import com.kesherManager.kesherManager.util.Transactions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Per-day or per-week counts of tasks (by due date) and transports (by scheduled date), bucketed in
+ * Asia/Jerusalem local time. Weeks start on Sunday.
+ *
+ * On PostgreSQL each request is one statement: date_trunc over both tables (and their archives, see
+ * partition.PartitionArchiveJob) with a GROUP BY on bucket, status, type and priority. Elsewhere (H2) the
+ * rows' dates are read and bucketed here.
+ *
+ * Buckets that are over (ended before today) are cached. The task and transport services evict the bucket
+ * of every date they write once the transaction commits, and everything on a delete; a bucket a task or
+ * transport was moved out of is not known to them, so the cache also expires after kesher.calendar.cache.ttl.
+ *
+ * A request scoped to a tenant (see tenant.TenantContext) only counts that donation group, and its buckets are
+ * cached apart from the unscoped ones; a write evicts both.
+ */
+@Component
+public class CalendarHistogram {
+
+    public enum Granularity {
+        DAY, WEEK;
+
+        LocalDate start(LocalDate date) {
+            // Joda: Monday is 1, Sunday is 7
+            return this == DAY ? date : date.minusDays(date.getDayOfWeek() % 7);
+        }
+
+        LocalDate next(LocalDate start) {
+            return this == DAY ? start.plusDays(1) : start.plusWeeks(1);
+        }
+    }
+
+    private enum Source {
+        POSTGRESQL, POSTGRESQL_WITH_ARCHIVE, OTHER
+    }
+
+    private static final DateTimeZone ZONE = DateTimeZone.forTimeZone(Dates.TIME_ZONE);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<String, CalendarBucket> closedBuckets;
+
+    // Bumped by every eviction; a result computed across one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile Source source;
+
+    @Autowired
+    public CalendarHistogram(JdbcTemplate jdbc,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${kesher.calendar.cache.max-size:2000}") long maxSize,
+                             @Value("${kesher.calendar.cache.ttl:6h}") Duration ttl) {
+        this.jdbc = jdbc;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.closedBuckets = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, closedBuckets, "calendar");
+    }
+
+    // Buckets from the one containing from to the one containing to, empty ones included
+    public List<CalendarBucket> histogram(LocalDate from, LocalDate to, Granularity granularity) {
+        String tenant = TenantContext.current().orElse(null);
+        LocalDate first = granularity.start(from);
+        LocalDate last = granularity.start(to);
+        LocalDate today = LocalDate.now(ZONE);
+
+        Map<LocalDate, CalendarBucket> buckets = new LinkedHashMap<>();
+        LocalDate firstMissing = null;
+        for (LocalDate start = first; !start.isAfter(last); start = granularity.next(start)) {
+            CalendarBucket cached = isClosed(start, granularity, today) ? closedBuckets.getIfPresent(key(tenant, granularity, start)) : null;
+            if (cached == null && firstMissing == null) {
+                firstMissing = start;
+            }
+            buckets.put(start, cached);
+        }
+        if (firstMissing == null) {
+            return new ArrayList<>(buckets.values());
+        }
+
+        // One query from the first bucket that is not cached to the end of the range
+        long generation = invalidations.get();
+        Map<LocalDate, CalendarBucket> computed = query(tenant, firstMissing, granularity.next(last), granularity);
+        boolean cacheable = invalidations.get() == generation;
+        for (LocalDate start = firstMissing; !start.isAfter(last); start = granularity.next(start)) {
+            CalendarBucket bucket = computed.get(start);
+            if (bucket == null) {
+                bucket = emptyBucket(start, granularity);
+            }
+            buckets.put(start, bucket);
+            if (cacheable && isClosed(start, granularity, today)) {
+                closedBuckets.put(key(tenant, granularity, start), bucket);
+            }
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    // Forgets the day and week containing the date, unscoped and for the donation group, once the current
+    // transaction commits
+    public void evictAfterCommit(String donationGroup, Date date) {
+        if (date == null) {
+            return;
+        }
+        LocalDate day = Dates.atLocalTime(date).toLocalDate();
+        Transactions.afterCommit(() -> {
+            invalidations.incrementAndGet();
+            for (Granularity granularity : Granularity.values()) {
+                closedBuckets.invalidate(key(null, granularity, granularity.start(day)));
+                if (donationGroup != null) {
+                    closedBuckets.invalidate(key(donationGroup, granularity, granularity.start(day)));
+                }
+            }
+        });
+    }
+
+    // Forgets everything once the current transaction commits
+    public void clearAfterCommit() {
+        Transactions.afterCommit(() -> {
+            invalidations.incrementAndGet();
+            closedBuckets.invalidateAll();
+        });
+    }
+
+    private Map<LocalDate, CalendarBucket> query(String tenant, LocalDate from, LocalDate toExclusive, Granularity granularity) {
+        Date start = Dates.atUtc(from);
+        Date end = Dates.atUtc(toExclusive);
+        Map<LocalDate, CalendarBucket> buckets = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            Source source = source();
+            if (source == Source.OTHER) {
+                readRows(tenant, start, end, granularity, buckets);
+            } else {
+                groupInDatabase(tenant, start, end, granularity, source == Source.POSTGRESQL_WITH_ARCHIVE, buckets);
+            }
+        });
+        return buckets;
+    }
+
+    private void groupInDatabase(String tenant, Date start, Date end, Granularity granularity, boolean withArchive,
+                                 Map<LocalDate, CalendarBucket> buckets) {
+        List<Object> args = new ArrayList<>();
+        String sql = "select 'TASK', " + bucketSql(granularity, "due_date", args) + ", status, task_type, priority, count(*) from ("
+                + rangeSql("due_date, status, task_type, priority", "tasks", "due_date", withArchive, tenant, start, end, args)
+                + ") t group by 2, 3, 4, 5 union all "
+                + "select 'TRANSPORT', " + bucketSql(granularity, "scheduled_date", args) + ", status, destination_type, null, count(*) from ("
+                + rangeSql("scheduled_date, status, destination_type", "transports", "scheduled_date", withArchive, tenant, start, end, args)
+                + ") t group by 2, 3, 4";
+        jdbc.query(sql, rs -> {
+            CalendarBucket bucket = bucket(buckets, LocalDate.parse(rs.getString(2)), granularity);
+            CalendarBucket.Counts counts = "TASK".equals(rs.getString(1)) ? bucket.getTasks() : bucket.getTransports();
+            counts.add(rs.getString(3), rs.getString(4), rs.getString(5), rs.getLong(6));
+        }, args.toArray());
+    }
+
+    // Timestamps are stored as JVM-local wall time; the bucket is the Jerusalem date (or week start) of that instant
+    private static String bucketSql(Granularity granularity, String column, List<Object> args) {
+        args.add(TimeZone.getDefault().getID());
+        args.add(ZONE.getID());
+        String local = "((" + column + " at time zone ?) at time zone ?)";
+        return granularity == Granularity.DAY
+                ? "date_trunc('day', " + local + ")::date::text"
+                : "(date_trunc('week', " + local + " + interval '1 day') - interval '1 day')::date::text";
+    }
+
+    private static String rangeSql(String columns, String table, String key, boolean withArchive, String tenant,
+                                   Date start, Date end, List<Object> args) {
+        String select = "select " + columns + " from %s where " + key + " >= ? and " + key + " < ?"
+                + (tenant != null ? " and donation_group = ?" : "");
+        for (int i = withArchive ? 2 : 1; i > 0; i--) {
+            args.add(start);
+            args.add(end);
+            if (tenant != null) {
+                args.add(tenant);
+            }
+        }
+        if (!withArchive) {
+            return String.format(select, table);
+        }
+        return String.format(select, table) + " union all " + String.format(select, table + "_archive");
+    }
+
+    private void readRows(String tenant, Date start, Date end, Granularity granularity, Map<LocalDate, CalendarBucket> buckets) {
+        String scoped = tenant != null ? " and donation_group = ?" : "";
+        Object[] args = tenant != null ? new Object[]{start, end, tenant} : new Object[]{start, end};
+        jdbc.query("select due_date, status, task_type, priority from tasks where due_date >= ? and due_date < ?" + scoped,
+                rs -> {
+                    bucket(buckets, dayOf(rs), granularity).getTasks()
+                            .add(rs.getString(2), rs.getString(3), rs.getString(4), 1);
+                }, args);
+        jdbc.query("select scheduled_date, status, destination_type from transports where scheduled_date >= ? and scheduled_date < ?" + scoped,
+                rs -> {
+                    bucket(buckets, dayOf(rs), granularity).getTransports()
+                            .add(rs.getString(2), rs.getString(3), null, 1);
+                }, args);
+    }
+
+    private static LocalDate dayOf(ResultSet rs) throws SQLException {
+        return Dates.atLocalTime(rs.getTimestamp(1)).toLocalDate();
+    }
+
+    private static CalendarBucket bucket(Map<LocalDate, CalendarBucket> buckets, LocalDate day, Granularity granularity) {
+        return buckets.computeIfAbsent(granularity.start(day), start -> emptyBucket(start, granularity));
+    }
+
+    private static CalendarBucket emptyBucket(LocalDate start, Granularity granularity) {
+        return new CalendarBucket(start.toString(), granularity.next(start).minusDays(1).toString());
+    }
+
+    private static boolean isClosed(LocalDate start, Granularity granularity, LocalDate today) {
+        return !granularity.next(start).isAfter(today);
+    }
+
+    // Unscoped and per-tenant buckets apart; a tenant name cannot make "DAY:2024-03-10" ambiguous
+    private static String key(String tenant, Granularity granularity, LocalDate start) {
+        return granularity + ":" + start + (tenant != null ? "@" + tenant : "");
+    }
+
+    private Source source() {
+        if (source == null) {
+            String product = jdbc.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equals(product)) {
+                source = Source.OTHER;
+            } else {
+                Boolean archived = jdbc.queryForObject(
+                        "select to_regclass('tasks_archive') is not null and to_regclass('transports_archive') is not null",
+                        Boolean.class);
+                source = Boolean.TRUE.equals(archived) ? Source.POSTGRESQL_WITH_ARCHIVE : Source.POSTGRESQL;
+            }
+        }
+        return source;
+    }
+}
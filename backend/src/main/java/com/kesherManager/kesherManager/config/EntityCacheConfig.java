@@ -0,0 +1,72 @@
+package com.kesherManager.kesherManager.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+// Caffeine-backed JCache regions for the Hibernate second-level and query caches
+@Configuration
+@EnableConfigurationProperties(EntityCacheProperties.class)
+public class EntityCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(EntityCacheProperties properties) {
+        // A manager of our own rather than the JVM-wide default, so each application context has its own regions
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("kesher-entity-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (Map.Entry<String, EntityCacheProperties.Region> entry : properties.getRegions().entrySet()) {
+            cacheManager.createCache(entry.getKey(), regionConfiguration(entry.getValue(), properties.isStatistics()));
+        }
+        return cacheManager;
+    }
+
+    // Hand the configured manager to Hibernate; any region we did not configure is an error
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put("hibernate.cache.use_second_level_cache", true);
+            hibernateProperties.put("hibernate.cache.use_query_cache", true);
+            hibernateProperties.put("hibernate.cache.region.factory_class", "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Bean
+    public MeterBinder entityCacheMetrics(CacheManager entityCacheManager, EntityCacheProperties properties) {
+        return registry -> {
+            if (!properties.isStatistics()) {
+                return;
+            }
+            for (String name : properties.getRegions().keySet()) {
+                JCacheMetrics.monitor(registry, entityCacheManager.getCache(name));
+            }
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> regionConfiguration(EntityCacheProperties.Region region,
+                                                                              boolean statistics) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(region.getMaxSize()));
+        if (region.getTtl() != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(region.getTtl().toNanos()));
+        }
+        configuration.setStatisticsEnabled(statistics);
+        return configuration;
+    }
+}
@@ -0,0 +1,78 @@
+package com.kesherManager.kesherManager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// kesher.cache.* - Hibernate second-level cache regions and their limits
+@ConfigurationProperties(prefix = "kesher.cache")
+public class EntityCacheProperties {
+
+    public static final String BOX_REGION = "box";
+    public static final String BOX_QUERY_REGION = "box-queries";
+    public static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    // Publish JCache hit/miss statistics as cache.* metrics
+    private boolean statistics = true;
+
+    private Map<String, Region> regions = new LinkedHashMap<>();
+
+    public EntityCacheProperties() {
+        regions.put(BOX_REGION, new Region(10_000, Duration.ofMinutes(30)));
+        regions.put(BOX_QUERY_REGION, new Region(500, Duration.ofMinutes(5)));
+        regions.put(QUERY_RESULTS_REGION, new Region(1_000, Duration.ofMinutes(5)));
+        // Must outlive every query result it invalidates, so it never expires
+        regions.put(UPDATE_TIMESTAMPS_REGION, new Region(10_000, null));
+    }
+
+    public static class Region {
+
+        private long maxSize;
+
+        // Time to live after write; null keeps entries until evicted by size
+        private Duration ttl;
+
+        public Region() {
+        }
+
+        public Region(long maxSize, Duration ttl) {
+            this.maxSize = maxSize;
+            this.ttl = ttl;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    public boolean isStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(boolean statistics) {
+        this.statistics = statistics;
+    }
+
+    public Map<String, Region> getRegions() {
+        return regions;
+    }
+
+    public void setRegions(Map<String, Region> regions) {
+        this.regions = regions;
+    }
+}
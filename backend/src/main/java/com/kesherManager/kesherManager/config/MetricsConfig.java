@@ -0,0 +1,38 @@
+package com.kesherManager.kesherManager.config;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Configuration
+public class MetricsConfig {
+
+    // Tag http.server.requests with the controller and method that handled it
+    @Bean
+    public WebMvcTagsContributor controllerTagsContributor() {
+        return new WebMvcTagsContributor() {
+            @Override
+            public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response,
+                                         Object handler, Throwable exception) {
+                if (handler instanceof HandlerMethod) {
+                    HandlerMethod method = (HandlerMethod) handler;
+                    return Tags.of(
+                            Tag.of("controller", method.getBeanType().getSimpleName()),
+                            Tag.of("handler", method.getMethod().getName()));
+                }
+                return Tags.of(Tag.of("controller", "none"), Tag.of("handler", "none"));
+            }
+
+            @Override
+            public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+                return Tags.empty();
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package com.kesherManager.kesherManager.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+// Non-blocking connection pool for the /api/v2 read endpoints, next to the JDBC pool used by everything else.
+// By default it points at the same database as spring.datasource; kesher.r2dbc.url overrides that.
+// The pool is deliberately not a ConnectionFactory bean: Boot skips DataSource auto-configuration when one exists.
+//
+// Spring MVC writes the items of a streamed Flux on an async executor. Without one configured it starts a new
+// thread per streamed response, so the streams get a bounded pool of their own. It is not an Executor bean
+// either, which would replace Boot's applicationTaskExecutor.
+@Configuration
+@ConditionalOnProperty(prefix = "kesher.r2dbc", name = "enabled", matchIfMissing = true)
+public class ReactiveReadConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final ThreadPoolTaskExecutor streamExecutor = new ThreadPoolTaskExecutor();
+    private ConnectionPool connectionPool;
+
+    @Autowired
+    public ReactiveReadConfig(@Value("${kesher.r2dbc.stream.threads:8}") int streamThreads,
+                              @Value("${kesher.r2dbc.stream.queue-capacity:500}") int streamQueueCapacity) {
+        streamExecutor.setThreadNamePrefix("v2-stream-");
+        streamExecutor.setCorePoolSize(streamThreads);
+        streamExecutor.setMaxPoolSize(streamThreads);
+        // Each open stream has at most one pending write, so this bounds the streams waiting for a thread
+        streamExecutor.setQueueCapacity(streamQueueCapacity);
+        streamExecutor.setDaemon(true);
+        streamExecutor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamExecutor);
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(DataSourceProperties dataSourceProperties,
+                                         @Value("${kesher.r2dbc.url:}") String url,
+                                         @Value("${kesher.r2dbc.pool.initial-size:1}") int initialSize,
+                                         @Value("${kesher.r2dbc.pool.max-size:10}") int maxSize,
+                                         @Value("${kesher.r2dbc.pool.max-idle-time:30m}") Duration maxIdleTime) {
+        String r2dbcUrl = url.isBlank() ? toR2dbcUrl(dataSourceProperties.determineUrl()) : url;
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(r2dbcUrl).mutate();
+        String username = dataSourceProperties.determineUsername();
+        if (username != null && !username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        String password = dataSourceProperties.determinePassword();
+        if (password != null && !password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+
+        ConnectionFactory connectionFactory = ConnectionFactories.get(options.build());
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("r2dbc")
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .maxIdleTime(maxIdleTime)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        streamExecutor.shutdown();
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+
+    // jdbc:postgresql://host:5432/db?x=y -> r2dbc:postgresql://host:5432/db?x=y, jdbc:h2:mem:name -> r2dbc:h2:mem:///name
+    static String toR2dbcUrl(String jdbcUrl) {
+        if (jdbcUrl.startsWith("jdbc:h2:mem:")) {
+            return "r2dbc:h2:mem:///" + jdbcUrl.substring("jdbc:h2:mem:".length());
+        }
+        if (jdbcUrl.startsWith("jdbc:")) {
+            return "r2dbc:" + jdbcUrl.substring("jdbc:".length());
+        }
+        throw new IllegalArgumentException("Cannot derive an R2DBC URL from " + jdbcUrl + "; set kesher.r2dbc.url");
+    }
+}
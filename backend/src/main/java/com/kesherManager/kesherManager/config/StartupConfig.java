@@ -0,0 +1,66 @@
+package com.kesherManager.kesherManager.config;
+
+import com.kesherManager.kesherManager.monitoring.FirstRequestTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+@Configuration
+public class StartupConfig {
+
+    // With spring.main.lazy-initialization (fast-start profile) the database is still opened and the schema
+    // validated during startup, so a broken deployment fails at boot instead of on the first request
+    @Bean
+    public static LazyInitializationExcludeFilter eagerPersistenceBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                DataSource.class, EntityManagerFactory.class, AbstractEntityManagerFactoryBean.class);
+    }
+
+    @Bean
+    public FilterRegistrationBean<FirstRequestTimer> firstRequestTimer(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<FirstRequestTimer> registration =
+                new FilterRegistrationBean<>(new FirstRequestTimer(meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    // Used by the AppCDS training run in the Dockerfile: start, record the loaded classes, exit
+    @Bean
+    @ConditionalOnProperty(name = "kesher.startup.exit-on-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitOnReady(ApplicationContext context) {
+        return new ExitOnReady(context);
+    }
+
+    // Ordered first among the ApplicationReadyEvent listeners, so the jobs and resyncs the others schedule
+    // never start
+    static class ExitOnReady implements ApplicationListener<ApplicationReadyEvent>, Ordered {
+
+        private final ApplicationContext context;
+
+        ExitOnReady(ApplicationContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void onApplicationEvent(ApplicationReadyEvent event) {
+            System.exit(SpringApplication.exit(context));
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.kesherManager.kesherManager.config;
+
+import com.kesherManager.kesherManager.tenant.TenancyProperties;
+import com.kesherManager.kesherManager.tenant.TenantFilter;
+import com.kesherManager.kesherManager.tenant.TenantJpaTransactionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+@EnableConfigurationProperties(TenancyProperties.class)
+public class TenancyConfig {
+
+    // Before the query counter, so the tenant is known to everything the request does
+    @Bean
+    public FilterRegistrationBean<TenantFilter> tenantFilter(TenancyProperties properties) {
+        FilterRegistrationBean<TenantFilter> registration = new FilterRegistrationBean<>(new TenantFilter(properties.getHeader()));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return registration;
+    }
+
+    // Replaces Boot's JpaTransactionManager, with the same customizers, to turn on the tenant filter
+    @Bean
+    public PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        TenantJpaTransactionManager transactionManager = new TenantJpaTransactionManager();
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+}
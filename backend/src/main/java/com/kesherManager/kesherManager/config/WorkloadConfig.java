@@ -0,0 +1,140 @@
+package com.kesherManager.kesherManager.config;
+
+import com.kesherManager.kesherManager.datasource.ReplicaProperties;
+import com.kesherManager.kesherManager.workload.WorkloadFilter;
+import com.kesherManager.kesherManager.workload.WorkloadProperties;
+import com.kesherManager.kesherManager.workload.WorkloadRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@Configuration
+@EnableConfigurationProperties(WorkloadProperties.class)
+public class WorkloadConfig {
+
+    // First of the /api filters: a turned away request costs nothing else, and the latency covers the others
+    @Bean
+    public FilterRegistrationBean<WorkloadFilter> workloadFilter(WorkloadProperties properties, MeterRegistry meterRegistry) {
+        FilterRegistrationBean<WorkloadFilter> registration = new FilterRegistrationBean<>(new WorkloadFilter(properties, meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 3);
+        return registration;
+    }
+
+    // Gives BULK work its own pool to each database. Without a replica that is the "dataSource" pool; with one
+    // (see ReadWriteRoutingConfig) the primary and the replica pool each get theirs, behind the read/write
+    // routing, so BULK reads still go to the replica. The bulk pools take the same Hikari settings as the pool
+    // they sit beside, with their own size.
+    // Declared Ordered, so it is known to run before the unordered query counter wrapper, and that sees the bulk
+    // connections too. Destruction callbacks get the unwrapped bean, so the bulk pools are closed from here.
+    @Bean
+    public static WorkloadRoutingPostProcessor workloadRoutingDataSourcePostProcessor(Environment environment,
+                                                                                      ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        int poolSize = binder.bind("kesher.workload.bulk-pool-size", Integer.class).orElse(2);
+        Map<String, Supplier<HikariDataSource>> bulkPools = new HashMap<>();
+        if (environment.containsProperty("kesher.datasource.replica.url")) {
+            bulkPools.put("primaryDataSource", () -> primaryBulkPool(binder, poolSize, meterRegistry));
+            bulkPools.put("replicaDataSource", () -> replicaBulkPool(binder, poolSize, meterRegistry));
+        } else {
+            bulkPools.put("dataSource", () -> primaryBulkPool(binder, poolSize, meterRegistry));
+        }
+        return new WorkloadRoutingPostProcessor(poolSize, bulkPools);
+    }
+
+    private static HikariDataSource primaryBulkPool(Binder binder, int poolSize, ObjectProvider<MeterRegistry> meterRegistry) {
+        DataSourceProperties properties = binder.bind("spring.datasource", DataSourceProperties.class)
+                .orElseGet(DataSourceProperties::new);
+        try {
+            properties.afterPropertiesSet();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot configure the bulk connection pool", e);
+        }
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        return configured(pool, binder, "spring.datasource.hikari", "bulk", poolSize, meterRegistry);
+    }
+
+    private static HikariDataSource replicaBulkPool(Binder binder, int poolSize, ObjectProvider<MeterRegistry> meterRegistry) {
+        ReplicaProperties properties = binder.bind("kesher.datasource.replica", ReplicaProperties.class)
+                .orElseGet(ReplicaProperties::new);
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .driverClassName(properties.getDriverClassName())
+                .build();
+        pool.setReadOnly(true);
+        return configured(pool, binder, "kesher.datasource.replica.hikari", "bulk-replica", poolSize, meterRegistry);
+    }
+
+    private static HikariDataSource configured(HikariDataSource pool, Binder binder, String hikariPrefix, String name,
+                                               int poolSize, ObjectProvider<MeterRegistry> meterRegistry) {
+        binder.bind(hikariPrefix, Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(poolSize);
+        // Idle between imports
+        pool.setMinimumIdle(0);
+        meterRegistry.ifAvailable(pool::setMetricRegistry);
+        return pool;
+    }
+
+    static class WorkloadRoutingPostProcessor implements DestructionAwareBeanPostProcessor, Ordered {
+
+        private final int poolSize;
+        private final Map<String, Supplier<HikariDataSource>> bulkPools;
+        private final Map<String, WorkloadRoutingDataSource> routing = new ConcurrentHashMap<>();
+
+        WorkloadRoutingPostProcessor(int poolSize, Map<String, Supplier<HikariDataSource>> bulkPools) {
+            this.poolSize = poolSize;
+            this.bulkPools = bulkPools;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            Supplier<HikariDataSource> bulkPool = bulkPools.get(beanName);
+            if (poolSize > 0 && bulkPool != null && bean instanceof DataSource
+                    && !(bean instanceof WorkloadRoutingDataSource)) {
+                WorkloadRoutingDataSource dataSource = new WorkloadRoutingDataSource((DataSource) bean, bulkPool);
+                routing.put(beanName, dataSource);
+                return dataSource;
+            }
+            return bean;
+        }
+
+        @Override
+        public void postProcessBeforeDestruction(Object bean, String beanName) {
+            WorkloadRoutingDataSource dataSource = routing.remove(beanName);
+            if (dataSource != null) {
+                dataSource.closeBulkPool();
+            }
+        }
+
+        @Override
+        public boolean requiresDestruction(Object bean) {
+            return bean instanceof DataSource;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE - 1;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.kesherManager.kesherManager.controller;
+
+import com.kesherManager.kesherManager.search.AutocompleteIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/autocomplete")
+@Tag(name = "Autocomplete Controller", description = "Suggestions for repeating free-text fields of boxes and transports")
+public class AutocompleteController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final AutocompleteIndex autocompleteIndex;
+
+    @Autowired
+    public AutocompleteController(AutocompleteIndex autocompleteIndex) {
+        this.autocompleteIndex = autocompleteIndex;
+    }
+
+    @GetMapping("/{field}")
+    @Operation(summary = "Autocomplete a field",
+            description = "Values of responsiblePerson, associationManager, donationGroup, city (boxes), driverName or createdBy " +
+                    "(transports) starting with the prefix, most used first")
+    public ResponseEntity<List<AutocompleteIndex.Suggestion>> autocomplete(
+            @PathVariable String field,
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        Optional<AutocompleteIndex.Field> indexed = AutocompleteIndex.Field.byProperty(field);
+        if (!indexed.isPresent() || limit < 1 || limit > MAX_LIMIT) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (!autocompleteIndex.isLoaded()) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return new ResponseEntity<>(autocompleteIndex.suggest(indexed.get(), prefix, limit), HttpStatus.OK);
+    }
+}
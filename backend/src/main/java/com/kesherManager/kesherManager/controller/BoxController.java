@@ -1,5 +1,7 @@
 package com.kesherManager.kesherManager.controller;
 
+import com.kesherManager.kesherManager.geo.BoxCluster;
+import com.kesherManager.kesherManager.geo.BoxClusterIndex;
 import com.kesherManager.kesherManager.model.Box;
 import com.kesherManager.kesherManager.model.Transport;
 import com.kesherManager.kesherManager.service.BoxService;
@@ -10,6 +12,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
 import java.util.List;
 import java.util.Optional;
@@ -19,11 +22,15 @@ import java.util.Optional;
 @Tag(name = "Box Controller", description = "API for managing food boxes")
 public class BoxController {
 
+    private static final int MAX_ZOOM = 22;
+
     private final BoxService boxService;
+    private final BoxClusterIndex boxClusterIndex;
 
     @Autowired
-    public BoxController(BoxService boxService) {
+    public BoxController(BoxService boxService, BoxClusterIndex boxClusterIndex) {
         this.boxService = boxService;
+        this.boxClusterIndex = boxClusterIndex;
     }
 
     @GetMapping
@@ -90,11 +97,20 @@ public class BoxController {
     @Operation(summary = "Update box status", description = "Change the status of a food box")
     public ResponseEntity<Box> updateBoxStatus(
             @PathVariable Long id,
-            @RequestParam Box.BoxStatus status) {
+            @RequestParam Box.BoxStatus status,
+            @RequestParam(required = false) Box.BoxStatus expectedStatus) {
 
         try {
+            if (expectedStatus != null) {
+                // Guarded transition: 409 if the box has left expectedStatus in the meantime
+                return boxService.updateStatus(id, expectedStatus, status)
+                        .map(updatedBox -> new ResponseEntity<>(updatedBox, HttpStatus.OK))
+                        .orElseGet(() -> new ResponseEntity<>(HttpStatus.CONFLICT));
+            }
             Box updatedBox = boxService.updateStatus(id, status);
             return new ResponseEntity<>(updatedBox, HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -168,6 +184,37 @@ public class BoxController {
         return new ResponseEntity<>(boxes, HttpStatus.OK);
     }
 
+    @GetMapping("/clusters")
+    @Operation(summary = "Box map clusters",
+            description = "Boxes inside bbox (west,south,east,north in degrees) grouped into grid cells for the map zoom level, " +
+                    "with their mean position, count and counts by status; a cluster of one box carries its boxId")
+    public ResponseEntity<List<BoxCluster>> getClusters(@RequestParam String bbox, @RequestParam int zoom) {
+        String[] edges = bbox.split(",");
+        if (edges.length != 4) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        double[] degrees = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                degrees[i] = Double.parseDouble(edges[i].trim());
+                if (!Double.isFinite(degrees[i])) {
+                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        double west = degrees[0], south = degrees[1], east = degrees[2], north = degrees[3];
+        if (zoom < 0 || zoom > MAX_ZOOM || south > north || Math.abs(south) > 90 || Math.abs(north) > 90
+                || Math.abs(west) > 180 || Math.abs(east) > 180) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (!boxClusterIndex.isLoaded()) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return new ResponseEntity<>(boxClusterIndex.clusters(west, south, east, north, zoom), HttpStatus.OK);
+    }
+
     // Enhanced search endpoint combining all search parameters
     @GetMapping("/advanced-search")
     @Operation(summary = "Advanced box search", description = "Search boxes using multiple criteria")
@@ -0,0 +1,68 @@
+package com.kesherManager.kesherManager.controller;
+
+import com.kesherManager.kesherManager.calendar.CalendarBucket;
+import com.kesherManager.kesherManager.calendar.CalendarHistogram;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/calendar")
+@Tag(name = "Calendar Controller", description = "Per-day and per-week counts of tasks and transports for calendar views")
+public class CalendarController {
+
+    private static final int MAX_DAYS = 400;
+
+    private final CalendarHistogram calendarHistogram;
+
+    @Autowired
+    public CalendarController(CalendarHistogram calendarHistogram) {
+        this.calendarHistogram = calendarHistogram;
+    }
+
+    @GetMapping
+    @Operation(summary = "Calendar histogram",
+            description = "Counts of tasks (by due date) and transports (by scheduled date) per day or week (Sunday to Saturday), " +
+                    "by status, type and priority, in Israel time. from and to are inclusive dates (yyyy-MM-dd)")
+    public ResponseEntity<Map<String, Object>> getCalendar(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "day") String granularity) {
+
+        LocalDate fromDate;
+        LocalDate toDate;
+        CalendarHistogram.Granularity bucketSize;
+        try {
+            fromDate = LocalDate.parse(from);
+            toDate = LocalDate.parse(to);
+            bucketSize = CalendarHistogram.Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (toDate.isBefore(fromDate) || Days.daysBetween(fromDate, toDate).getDays() >= MAX_DAYS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<CalendarBucket> buckets = calendarHistogram.histogram(fromDate, toDate, bucketSize);
+
+        Map<String, Object> calendar = new LinkedHashMap<>();
+        calendar.put("granularity", bucketSize.name().toLowerCase(Locale.ROOT));
+        calendar.put("from", buckets.get(0).getStart());
+        calendar.put("to", buckets.get(buckets.size() - 1).getEnd());
+        calendar.put("buckets", buckets);
+        return new ResponseEntity<>(calendar, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,58 @@
+package com.kesherManager.kesherManager.controller;
+
+import com.kesherManager.kesherManager.geo.GeocodeBackfillJob;
+import com.kesherManager.kesherManager.geo.Geocoder;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/geocoding")
+@Tag(name = "Geocoding Controller", description = "Offline geocoding of box addresses from the local gazetteer")
+public class GeocodingController {
+
+    private final Geocoder geocoder;
+    private final GeocodeBackfillJob backfillJob;
+
+    @Autowired
+    public GeocodingController(Geocoder geocoder, GeocodeBackfillJob backfillJob) {
+        this.geocoder = geocoder;
+        this.backfillJob = backfillJob;
+    }
+
+    @GetMapping
+    @Operation(summary = "Geocode an address",
+            description = "Position of the street in the city, or of the city when the street is not known; the address may end with \", city\"")
+    public ResponseEntity<Geocoder.Location> geocode(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String address) {
+
+        if (!geocoder.isAvailable()) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return geocoder.geocode(city, address)
+                .map(location -> new ResponseEntity<>(location, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @PostMapping("/backfill")
+    @Operation(summary = "Geocode boxes without a position", description = "Start a background backfill of box coordinates")
+    public ResponseEntity<Map<String, Object>> backfill() {
+        if (!geocoder.isAvailable()) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        HttpStatus status = backfillJob.start() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return new ResponseEntity<>(backfillJob.status(), status);
+    }
+
+    @GetMapping("/backfill")
+    @Operation(summary = "Geocoding backfill status", description = "Progress of the current or last backfill")
+    public ResponseEntity<Map<String, Object>> backfillStatus() {
+        return new ResponseEntity<>(backfillJob.status(), HttpStatus.OK);
+    }
+}
@@ -1,8 +1,12 @@
 package com.kesherManager.kesherManager.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kesherManager.kesherManager.geo.Geocoder;
 import com.kesherManager.kesherManager.model.Box;
 import com.kesherManager.kesherManager.service.BoxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,17 +27,33 @@ import java.util.Map;
 public class ImportController {
 
     private final BoxService boxService;
+    private final Geocoder geocoder;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Counter importedCounter;
+    private final Counter failedCounter;
 
     @Autowired
-    public ImportController(BoxService boxService, ObjectMapper objectMapper) {
+    public ImportController(BoxService boxService, Geocoder geocoder, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
         this.boxService = boxService;
+        this.geocoder = geocoder;
         this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.importedCounter = Counter.builder("kesher.import.boxes")
+                .description("Boxes processed by the import endpoints")
+                .tag("result", "imported")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("kesher.import.boxes")
+                .description("Boxes processed by the import endpoints")
+                .tag("result", "failed")
+                .register(meterRegistry);
     }
 
     @PostMapping("/boxes")
     @Operation(summary = "Import boxes", description = "Import boxes from JSON file")
     public ResponseEntity<Map<String, Object>> importBoxes(@RequestParam("file") MultipartFile file) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
         try {
             // Read the JSON file
             String jsonContent = new String(file.getBytes());
@@ -51,82 +71,15 @@ public class ImportController {
             for (int i = 0; i < boxesData.size(); i++) {
                 Map<String, Object> boxData = boxesData.get(i);
                 try {
-                    Box box = new Box();
-
-                    // Set fields from the JSON data
-                    if (boxData.containsKey("city")) {
-                        box.setAddress((String) boxData.get("city"));
-                    }
-
-
-                    if (boxData.containsKey("address")) {
-                        box.setAddress((String) boxData.get("address"));
-                    }
-
-                    if (boxData.containsKey("responsiblePerson")) {
-                        box.setResponsiblePerson((String) boxData.get("responsiblePerson"));
-                    }
-
-                    if (boxData.containsKey("responsiblePersonPhone")) {
-                        box.setResponsiblePersonPhone((String) boxData.get("responsiblePersonPhone"));
-                    }
-
-                    if (boxData.containsKey("associationManager")) {
-                        box.setAssociationManager((String) boxData.get("associationManager"));
-                    }
-
-                    if (boxData.containsKey("donationGroup")) {
-                        box.setDonationGroup((String) boxData.get("donationGroup"));
-                    }
-
-                    if (boxData.containsKey("notes")) {
-                        box.setNotes((String) boxData.get("notes"));
-                    }
-
-                    if (boxData.containsKey("status")) {
-                        String statusStr = (String) boxData.get("status");
-                        if (statusStr != null && !statusStr.isEmpty()) {
-                            try {
-                                box.setStatus(Box.BoxStatus.valueOf(statusStr.toUpperCase()));
-                            } catch (IllegalArgumentException e) {
-                                box.setStatus(Box.BoxStatus.ACTIVE); // Default to ACTIVE if invalid status
-                            }
-                        } else {
-                            box.setStatus(Box.BoxStatus.ACTIVE); // Default status
-                        }
-                    } else {
-                        box.setStatus(Box.BoxStatus.ACTIVE); // Default status
-                    }
-
-                    if (boxData.containsKey("latitude") && boxData.get("latitude") != null) {
-                        if (boxData.get("latitude") instanceof Number) {
-                            box.setLatitude(((Number) boxData.get("latitude")).doubleValue());
-                        } else if (boxData.get("latitude") instanceof String) {
-                            try {
-                                box.setLatitude(Double.parseDouble((String) boxData.get("latitude")));
-                            } catch (NumberFormatException e) {
-                                // Skip latitude if it's not a valid number
-                            }
-                        }
-                    }
-
-                    if (boxData.containsKey("longitude") && boxData.get("longitude") != null) {
-                        if (boxData.get("longitude") instanceof Number) {
-                            box.setLongitude(((Number) boxData.get("longitude")).doubleValue());
-                        } else if (boxData.get("longitude") instanceof String) {
-                            try {
-                                box.setLongitude(Double.parseDouble((String) boxData.get("longitude")));
-                            } catch (NumberFormatException e) {
-                                // Skip longitude if it's not a valid number
-                            }
-                        }
-                    }
+                    Box box = toBox(boxData);
 
                     // Save the box to the database
                     Box savedBox = boxService.saveBox(box);
                     importedBoxes.add(savedBox);
+                    importedCounter.increment();
 
                 } catch (Exception e) {
+                    failedCounter.increment();
                     errors.add("Error importing box at index " + i + ": " + e.getMessage());
                 }
             }
@@ -137,18 +90,25 @@ public class ImportController {
             response.put("successfulImports", importedBoxes.size());
             response.put("errors", errors);
 
+            outcome = "success";
             return new ResponseEntity<>(response, HttpStatus.OK);
 
         } catch (IOException e) {
+            // The whole file is rejected; counted as one failure since its boxes are unknown
+            failedCounter.increment();
+            outcome = "unreadable";
             Map<String, Object> response = new HashMap<>();
             response.put("error", "Failed to parse JSON file: " + e.getMessage());
             return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        } finally {
+            sample.stop(importTimer("file", outcome));
         }
     }
 
     @PostMapping("/boxes/json")
     @Operation(summary = "Import boxes from JSON", description = "Import boxes from JSON payload")
     public ResponseEntity<Map<String, Object>> importBoxesFromJson(@RequestBody List<Map<String, Object>> boxesData) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         List<Box> importedBoxes = new ArrayList<>();
         List<String> errors = new ArrayList<>();
 
@@ -156,81 +116,15 @@ public class ImportController {
         for (int i = 0; i < boxesData.size(); i++) {
             Map<String, Object> boxData = boxesData.get(i);
             try {
-                Box box = new Box();
-
-                // Set fields from the JSON data (same as above)
-                if (boxData.containsKey("city")) {
-                    box.setCity((String) boxData.get("city"));
-                }
-
-                if (boxData.containsKey("address")) {
-                    box.setAddress((String) boxData.get("address"));
-                }
-
-                if (boxData.containsKey("responsiblePerson")) {
-                    box.setResponsiblePerson((String) boxData.get("responsiblePerson"));
-                }
-
-                if (boxData.containsKey("responsiblePersonPhone")) {
-                    box.setResponsiblePersonPhone((String) boxData.get("responsiblePersonPhone"));
-                }
-
-                if (boxData.containsKey("associationManager")) {
-                    box.setAssociationManager((String) boxData.get("associationManager"));
-                }
-
-                if (boxData.containsKey("donationGroup")) {
-                    box.setDonationGroup((String) boxData.get("donationGroup"));
-                }
-
-                if (boxData.containsKey("notes")) {
-                    box.setNotes((String) boxData.get("notes"));
-                }
-
-                if (boxData.containsKey("status")) {
-                    String statusStr = (String) boxData.get("status");
-                    if (statusStr != null && !statusStr.isEmpty()) {
-                        try {
-                            box.setStatus(Box.BoxStatus.valueOf(statusStr.toUpperCase()));
-                        } catch (IllegalArgumentException e) {
-                            box.setStatus(Box.BoxStatus.ACTIVE); // Default to ACTIVE if invalid status
-                        }
-                    } else {
-                        box.setStatus(Box.BoxStatus.ACTIVE); // Default status
-                    }
-                } else {
-                    box.setStatus(Box.BoxStatus.ACTIVE); // Default status
-                }
-
-                if (boxData.containsKey("latitude") && boxData.get("latitude") != null) {
-                    if (boxData.get("latitude") instanceof Number) {
-                        box.setLatitude(((Number) boxData.get("latitude")).doubleValue());
-                    } else if (boxData.get("latitude") instanceof String) {
-                        try {
-                            box.setLatitude(Double.parseDouble((String) boxData.get("latitude")));
-                        } catch (NumberFormatException e) {
-                            // Skip latitude if it's not a valid number
-                        }
-                    }
-                }
-
-                if (boxData.containsKey("longitude") && boxData.get("longitude") != null) {
-                    if (boxData.get("longitude") instanceof Number) {
-                        box.setLongitude(((Number) boxData.get("longitude")).doubleValue());
-                    } else if (boxData.get("longitude") instanceof String) {
-                        try {
-                            box.setLongitude(Double.parseDouble((String) boxData.get("longitude")));
-                        } catch (NumberFormatException e) {
-                            // Skip longitude if it's not a valid number
-                        }
-                    }
-                }
+                Box box = toBox(boxData);
 
                 // Save the box to the database
                 Box savedBox = boxService.saveBox(box);
                 importedBoxes.add(savedBox);
+                importedCounter.increment();
 
             } catch (Exception e) {
+                failedCounter.increment();
                 errors.add("Error importing box at index " + i + ": " + e.getMessage());
             }
         }
@@ -241,6 +135,88 @@ public class ImportController {
         response.put("successfulImports", importedBoxes.size());
         response.put("errors", errors);
 
+        sample.stop(importTimer("json", "success"));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
+
+    // outcome is success, unreadable (the file could not be parsed) or error (anything else thrown)
+    private Timer importTimer(String source, String outcome) {
+        return Timer.builder("kesher.import.duration")
+                .description("Time to process a whole import request")
+                .tag("source", source)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    // Convert a single imported JSON entry into a Box (not yet saved)
+    public Box toBox(Map<String, Object> boxData) {
+        Box box = new Box();
+
+        if (boxData.containsKey("city")) {
+            box.setCity((String) boxData.get("city"));
+        }
+
+        if (boxData.containsKey("address")) {
+            box.setAddress((String) boxData.get("address"));
+        }
+
+        if (boxData.containsKey("responsiblePerson")) {
+            box.setResponsiblePerson((String) boxData.get("responsiblePerson"));
+        }
+
+        if (boxData.containsKey("responsiblePersonPhone")) {
+            box.setResponsiblePersonPhone((String) boxData.get("responsiblePersonPhone"));
+        }
+
+        if (boxData.containsKey("associationManager")) {
+            box.setAssociationManager((String) boxData.get("associationManager"));
+        }
+
+        if (boxData.containsKey("donationGroup")) {
+            box.setDonationGroup((String) boxData.get("donationGroup"));
+        }
+
+        if (boxData.containsKey("notes")) {
+            box.setNotes((String) boxData.get("notes"));
+        }
+
+        String statusStr = (String) boxData.get("status");
+        if (statusStr != null && !statusStr.isEmpty()) {
+            try {
+                box.setStatus(Box.BoxStatus.valueOf(statusStr.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                box.setStatus(Box.BoxStatus.ACTIVE); // Default to ACTIVE if invalid status
+            }
+        } else {
+            box.setStatus(Box.BoxStatus.ACTIVE); // Default status
+        }
+
+        box.setLatitude(toDouble(boxData.get("latitude")));
+        box.setLongitude(toDouble(boxData.get("longitude")));
+
+        // A box without a valid position gets one from its city and address when the gazetteer knows them
+        if (box.getLatitude() == null || box.getLongitude() == null) {
+            geocoder.geocode(box.getCity(), box.getAddress()).ifPresent(location -> {
+                box.setLatitude(location.getLatitude());
+                box.setLongitude(location.getLongitude());
+            });
+        }
+
+        return box;
+    }
+
+    // Skip coordinates that are missing or not a valid number
+    private static Double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
 }
\ No newline at end of file
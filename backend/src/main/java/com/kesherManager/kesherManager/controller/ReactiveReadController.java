@@ -0,0 +1,100 @@
+package com.kesherManager.kesherManager.controller;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.reactive.ReactiveReadRepository;
+import com.kesherManager.kesherManager.reactive.TaskView;
+import com.kesherManager.kesherManager.reactive.TransportView;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Read-only API on R2DBC. Collections are streamed as NDJSON (one JSON object per line) when the client
+ * accepts application/x-ndjson, otherwise collected into a JSON array. While a stream is open the request
+ * is async: no Tomcat thread and no JDBC connection is held, and rows are pulled from the database only as
+ * fast as the client reads them.
+ */
+@RestController
+@RequestMapping("/api/v2")
+@ConditionalOnProperty(prefix = "kesher.r2dbc", name = "enabled", matchIfMissing = true)
+@Tag(name = "Reactive Read Controller", description = "Streaming read-only API for boxes, tasks and transports")
+public class ReactiveReadController {
+
+    private final ReactiveReadRepository repository;
+
+    @Autowired
+    public ReactiveReadController(ReactiveReadRepository repository) {
+        this.repository = repository;
+    }
+
+    @GetMapping(value = "/boxes", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Stream all boxes", description = "Stream every food box")
+    public Flux<Box> getAllBoxes() {
+        return repository.findAllBoxes();
+    }
+
+    @GetMapping("/boxes/{id}")
+    @Operation(summary = "Get box by ID", description = "Retrieve a specific box by its ID")
+    public Mono<ResponseEntity<Box>> getBoxById(@PathVariable Long id) {
+        return found(repository.findBoxById(id));
+    }
+
+    @GetMapping(value = "/boxes/status/{status}", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Stream boxes by status", description = "Stream all boxes with a specific status")
+    public Flux<Box> getBoxesByStatus(@PathVariable Box.BoxStatus status) {
+        return repository.findBoxesByStatus(status);
+    }
+
+    @GetMapping(value = "/tasks", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Stream all tasks", description = "Stream every task; related entities are referenced by id")
+    public Flux<TaskView> getAllTasks() {
+        return repository.findAllTasks();
+    }
+
+    @GetMapping("/tasks/{id}")
+    @Operation(summary = "Get task by ID", description = "Retrieve a specific task by its ID")
+    public Mono<ResponseEntity<TaskView>> getTaskById(@PathVariable Long id) {
+        return found(repository.findTaskById(id));
+    }
+
+    @GetMapping(value = "/tasks/status/{status}", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Stream tasks by status", description = "Stream all tasks with a specific status")
+    public Flux<TaskView> getTasksByStatus(@PathVariable Task.TaskStatus status) {
+        return repository.findTasksByStatus(status);
+    }
+
+    @GetMapping(value = "/transports", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Stream all transports", description = "Stream every transport; boxes are referenced by id")
+    public Flux<TransportView> getAllTransports() {
+        return repository.findAllTransports();
+    }
+
+    @GetMapping("/transports/{id}")
+    @Operation(summary = "Get transport by ID", description = "Retrieve a specific transport by its ID")
+    public Mono<ResponseEntity<TransportView>> getTransportById(@PathVariable Long id) {
+        return found(repository.findTransportById(id));
+    }
+
+    @GetMapping(value = "/transports/status/{status}", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Stream transports by status", description = "Stream all transports with a specific status")
+    public Flux<TransportView> getTransportsByStatus(@PathVariable Transport.TransportStatus status) {
+        return repository.findTransportsByStatus(status);
+    }
+
+    private static <T> Mono<ResponseEntity<T>> found(Mono<T> value) {
+        return value.map(body -> new ResponseEntity<>(body, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+}
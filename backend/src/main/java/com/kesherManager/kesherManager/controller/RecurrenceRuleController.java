@@ -0,0 +1,88 @@
+package com.kesherManager.kesherManager.controller;
+
+import com.kesherManager.kesherManager.model.RecurrenceRule;
+import com.kesherManager.kesherManager.service.RecurrenceRuleService;
+import com.kesherManager.kesherManager.service.RecurringTaskScheduler;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/recurrence-rules")
+@Tag(name = "Recurrence Rule Controller", description = "API for tasks that repeat for every active box")
+public class RecurrenceRuleController {
+
+    private final RecurrenceRuleService recurrenceRuleService;
+    private final RecurringTaskScheduler recurringTaskScheduler;
+
+    @Autowired
+    public RecurrenceRuleController(RecurrenceRuleService recurrenceRuleService, RecurringTaskScheduler recurringTaskScheduler) {
+        this.recurrenceRuleService = recurrenceRuleService;
+        this.recurringTaskScheduler = recurringTaskScheduler;
+    }
+
+    @GetMapping
+    @Operation(summary = "Get all recurrence rules", description = "Retrieve a list of all recurrence rules")
+    public ResponseEntity<List<RecurrenceRule>> getAllRules() {
+        return new ResponseEntity<>(recurrenceRuleService.getAllRules(), HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get recurrence rule by ID", description = "Retrieve a specific recurrence rule by its ID")
+    public ResponseEntity<RecurrenceRule> getRuleById(@PathVariable Long id) {
+        Optional<RecurrenceRule> rule = recurrenceRuleService.getRuleById(id);
+        return rule.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @PostMapping
+    @Operation(summary = "Create a recurrence rule", description = "Repeat a task every intervalDays from startDate for each active box, of donationGroup if set")
+    public ResponseEntity<RecurrenceRule> createRule(@Valid @RequestBody RecurrenceRule rule) {
+        rule.setId(null);
+        return new ResponseEntity<>(recurrenceRuleService.saveRule(rule), HttpStatus.CREATED);
+    }
+
+    @PutMapping("/{id}")
+    @Operation(summary = "Update a recurrence rule", description = "Change a rule; occurrences already generated are kept")
+    public ResponseEntity<RecurrenceRule> updateRule(@PathVariable Long id, @Valid @RequestBody RecurrenceRule ruleDetails) {
+        Optional<RecurrenceRule> existingRule = recurrenceRuleService.getRuleById(id);
+        if (existingRule.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        RecurrenceRule rule = existingRule.get();
+        rule.setTaskType(ruleDetails.getTaskType());
+        rule.setDescription(ruleDetails.getDescription());
+        rule.setPriority(ruleDetails.getPriority());
+        rule.setTaskCategory(ruleDetails.getTaskCategory());
+        rule.setAssignedTo(ruleDetails.getAssignedTo());
+        rule.setDonationGroup(ruleDetails.getDonationGroup());
+        rule.setIntervalDays(ruleDetails.getIntervalDays());
+        rule.setStartDate(ruleDetails.getStartDate());
+        rule.setActive(ruleDetails.isActive());
+        return new ResponseEntity<>(recurrenceRuleService.saveRule(rule), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Delete a recurrence rule", description = "Stop repeating a task; the tasks generated so far are kept")
+    public ResponseEntity<HttpStatus> deleteRule(@PathVariable Long id) {
+        if (recurrenceRuleService.getRuleById(id).isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        recurrenceRuleService.deleteRule(id);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @PostMapping("/generate")
+    @Operation(summary = "Generate recurring tasks", description = "Create the due occurrences of all active rules now instead of waiting for the scheduler")
+    public ResponseEntity<Map<String, Integer>> generate() {
+        return new ResponseEntity<>(Map.of("created", recurringTaskScheduler.run()), HttpStatus.OK);
+    }
+}
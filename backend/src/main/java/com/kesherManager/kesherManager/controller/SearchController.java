@@ -0,0 +1,87 @@
+package com.kesherManager.kesherManager.controller;
+
+import com.kesherManager.kesherManager.search.SearchIndex;
+import com.kesherManager.kesherManager.search.SearchReindexJob;
+import com.kesherManager.kesherManager.search.SearchResult;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/search")
+@Tag(name = "Search Controller", description = "Full-text search across boxes, tasks and transports")
+public class SearchController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_RESULT_WINDOW = 10000;
+
+    private final SearchIndex searchIndex;
+    private final SearchReindexJob reindexJob;
+
+    @Autowired
+    public SearchController(SearchIndex searchIndex, SearchReindexJob reindexJob) {
+        this.searchIndex = searchIndex;
+        this.reindexJob = reindexJob;
+    }
+
+    @GetMapping
+    @Operation(summary = "Search", description = "Ranked full-text search with facet counts by type, status and donation group")
+    public ResponseEntity<SearchResult> search(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String donationGroup,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE || (page + 1L) * size > MAX_RESULT_WINDOW) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        // Facet filters narrow the results; counts are computed over what remains
+        Map<String, String> filters = new LinkedHashMap<>();
+        putIfPresent(filters, "type", type);
+        putIfPresent(filters, "status", status);
+        putIfPresent(filters, "donationGroup", donationGroup);
+
+        // A tenant only searches its own donation group
+        if (TenantContext.current().isPresent()) {
+            if (filters.containsKey("donationGroup") && !TenantContext.allows(donationGroup)) {
+                return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            }
+            filters.put("donationGroup", TenantContext.current().get());
+        }
+
+        try {
+            return new ResponseEntity<>(searchIndex.search(q, filters, page, size), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @PostMapping("/reindex")
+    @Operation(summary = "Rebuild the search index", description = "Start a background rebuild of the index from the database")
+    public ResponseEntity<Map<String, Object>> reindex() {
+        HttpStatus status = reindexJob.start() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return new ResponseEntity<>(reindexJob.status(), status);
+    }
+
+    @GetMapping("/reindex")
+    @Operation(summary = "Search index status", description = "Progress of the current or last index rebuild")
+    public ResponseEntity<Map<String, Object>> reindexStatus() {
+        return new ResponseEntity<>(reindexJob.status(), HttpStatus.OK);
+    }
+
+    private static void putIfPresent(Map<String, String> filters, String dimension, String value) {
+        if (value != null && !value.isBlank()) {
+            filters.put(dimension, value);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.kesherManager.kesherManager.controller;
+
+import com.kesherManager.kesherManager.model.StatusChange;
+import com.kesherManager.kesherManager.service.StatusHistory;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/history/{entityType}")
+@Tag(name = "Status History Controller", description = "Status changes of boxes, tasks and transports over time")
+public class StatusHistoryController {
+
+    // Any ISO date or date-time; without an offset it is taken as UTC
+    private static final DateTimeFormatter ISO_PARSER = ISODateTimeFormat.dateTimeParser().withZoneUTC();
+
+    private final StatusHistory statusHistory;
+
+    @Autowired
+    public StatusHistoryController(StatusHistory statusHistory) {
+        this.statusHistory = statusHistory;
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get status history", description = "Statuses the entity went through, oldest first (entityType is BOX, TASK or TRANSPORT)")
+    public ResponseEntity<List<StatusChange>> getHistory(@PathVariable String entityType, @PathVariable Long id) {
+        Optional<StatusChange.EntityType> type = parseType(entityType);
+        if (!type.isPresent()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(statusHistory.getHistory(type.get(), id), HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}/time-in-state")
+    @Operation(summary = "Get time in state", description = "Seconds the entity has spent in each status so far, the current one included")
+    public ResponseEntity<Map<String, Long>> getTimeInState(@PathVariable String entityType, @PathVariable Long id) {
+        Optional<StatusChange.EntityType> type = parseType(entityType);
+        if (!type.isPresent()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Map<String, Long> seconds = new LinkedHashMap<>();
+        for (Map.Entry<String, Duration> entry : statusHistory.getTimeInState(type.get(), id).entrySet()) {
+            seconds.put(entry.getKey(), entry.getValue().getSeconds());
+        }
+        return new ResponseEntity<>(seconds, HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}/as-of")
+    @Operation(summary = "Get status as of a date", description = "The entity's status at the given time; 404 if none was recorded by then")
+    public ResponseEntity<Map<String, Object>> getStatusAsOf(
+            @PathVariable String entityType,
+            @PathVariable Long id,
+            @RequestParam String date) {
+        Optional<StatusChange.EntityType> type = parseType(entityType);
+        Optional<Date> asOf = parseDate(date);
+        if (!type.isPresent() || !asOf.isPresent()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return statusHistory.getStatusAsOf(type.get(), id, asOf.get())
+                .map(status -> {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("id", id);
+                    body.put("asOf", asOf.get());
+                    body.put("status", status);
+                    return new ResponseEntity<>(body, HttpStatus.OK);
+                })
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("/counts")
+    @Operation(summary = "Count by status as of a date", description = "How many entities of the type were in each status at the given time (default now)")
+    public ResponseEntity<Map<String, Long>> countByStatusAsOf(
+            @PathVariable String entityType,
+            @RequestParam(required = false) String asOf) {
+        Optional<StatusChange.EntityType> type = parseType(entityType);
+        Optional<Date> date = asOf != null ? parseDate(asOf) : Optional.of(new Date());
+        if (!type.isPresent() || !date.isPresent()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(statusHistory.countByStatusAsOf(type.get(), date.get()), HttpStatus.OK);
+    }
+
+    private static Optional<StatusChange.EntityType> parseType(String entityType) {
+        try {
+            return Optional.of(StatusChange.EntityType.valueOf(entityType.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<Date> parseDate(String value) {
+        try {
+            return Optional.of(ISO_PARSER.parseDateTime(value).toDate());
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
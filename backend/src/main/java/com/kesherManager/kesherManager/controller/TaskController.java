@@ -3,6 +3,7 @@ package com.kesherManager.kesherManager.controller;
 import com.kesherManager.kesherManager.model.Box;
 import com.kesherManager.kesherManager.model.Task;
 import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.service.BatchResult;
 import com.kesherManager.kesherManager.service.BoxService;
 import com.kesherManager.kesherManager.service.TaskService;
 import com.kesherManager.kesherManager.service.TransportService;
@@ -15,6 +16,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
 import java.util.Date;
 import java.util.List;
@@ -25,6 +27,9 @@ import java.util.Optional;
 @Tag(name = "Task Controller", description = "API for managing tasks related to food boxes")
 public class TaskController {
 
+    private static final int MAX_NEXT_TASKS = 100;
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private final TaskService taskService;
     private final BoxService boxService;
     private final TransportService transportService;
@@ -74,6 +79,15 @@ public class TaskController {
         return new ResponseEntity<>(savedTask, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Create tasks", description = "Add many tasks at once. Each one is reported as created, with its ID, or rejected, with the reasons; the created ones are saved together")
+    public ResponseEntity<BatchResult> createTasks(@RequestBody List<Task> tasks) {
+        if (tasks.isEmpty() || tasks.size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(taskService.createTasks(tasks), HttpStatus.OK);
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update a task", description = "Update an existing task details")
     public ResponseEntity<Task> updateTask(@PathVariable Long id, @Valid @RequestBody Task taskDetails) {
@@ -134,11 +148,20 @@ public class TaskController {
     @Operation(summary = "Update task status", description = "Change the status of a task")
     public ResponseEntity<Task> updateTaskStatus(
             @PathVariable Long id,
-            @RequestParam Task.TaskStatus status) {
+            @RequestParam Task.TaskStatus status,
+            @RequestParam(required = false) Task.TaskStatus expectedStatus) {
 
         try {
+            if (expectedStatus != null) {
+                // Guarded transition: 409 if the task has left expectedStatus in the meantime
+                return taskService.updateStatus(id, expectedStatus, status)
+                        .map(updatedTask -> new ResponseEntity<>(updatedTask, HttpStatus.OK))
+                        .orElseGet(() -> new ResponseEntity<>(HttpStatus.CONFLICT));
+            }
             Task updatedTask = taskService.updateStatus(id, status);
             return new ResponseEntity<>(updatedTask, HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -153,11 +176,42 @@ public class TaskController {
         try {
             Task assignedTask = taskService.assignTask(id, assignedTo);
             return new ResponseEntity<>(assignedTask, HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    @GetMapping("/next")
+    @Operation(summary = "Get next tasks", description = "Retrieve an assignee's next pending tasks, highest priority and earliest due date first")
+    public ResponseEntity<List<Task>> getNextTasks(
+            @RequestParam String assignee,
+            @RequestParam(defaultValue = "10") int n) {
+
+        if (n < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<Task> tasks = taskService.getNextTasks(assignee, Math.min(n, MAX_NEXT_TASKS));
+        return new ResponseEntity<>(tasks, HttpStatus.OK);
+    }
+
+    @PostMapping("/next/claim")
+    @Operation(summary = "Claim next task", description = "Move the assignee's top pending task to IN_PROGRESS")
+    public ResponseEntity<Task> claimNextTask(@RequestParam String assignee) {
+        return taskService.claimNextTask(assignee)
+                .map(task -> new ResponseEntity<>(task, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NO_CONTENT));
+    }
+
+    @PostMapping("/{id}/claim")
+    @Operation(summary = "Claim task", description = "Move a pending task to IN_PROGRESS for the assignee, unless someone else claimed it first")
+    public ResponseEntity<Task> claimTask(@PathVariable Long id, @RequestParam String assignee) {
+        return taskService.claimTask(id, assignee)
+                .map(task -> new ResponseEntity<>(task, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.CONFLICT));
+    }
+
     @GetMapping("/status/{status}")
     @Operation(summary = "Get tasks by status", description = "Retrieve all tasks with a specific status")
     public ResponseEntity<List<Task>> getTasksByStatus(@PathVariable Task.TaskStatus status) {
@@ -2,6 +2,9 @@ package com.kesherManager.kesherManager.controller;
 
 import com.kesherManager.kesherManager.model.Box;
 import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.routing.RoutePlan;
+import com.kesherManager.kesherManager.routing.RoutePlanner;
+import com.kesherManager.kesherManager.service.BatchResult;
 import com.kesherManager.kesherManager.service.BoxService;
 import com.kesherManager.kesherManager.service.TransportService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,6 +16,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
 import java.util.Date;
 import java.util.List;
@@ -23,13 +27,17 @@ import java.util.Optional;
 @Tag(name = "Transport Controller", description = "API for managing food box transports")
 public class TransportController {
 
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private final TransportService transportService;
     private final BoxService boxService;
+    private final RoutePlanner routePlanner;
 
     @Autowired
-    public TransportController(TransportService transportService, BoxService boxService) {
+    public TransportController(TransportService transportService, BoxService boxService, RoutePlanner routePlanner) {
         this.transportService = transportService;
         this.boxService = boxService;
+        this.routePlanner = routePlanner;
     }
 
     @GetMapping
@@ -75,6 +83,15 @@ public class TransportController {
         return new ResponseEntity<>(savedTransport, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Create transports", description = "Add many transports at once. Each one is reported as created, with its ID, or rejected, with the reasons; the created ones are saved together")
+    public ResponseEntity<BatchResult> createTransports(@RequestBody List<Transport> transports) {
+        if (transports.isEmpty() || transports.size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(transportService.createTransports(transports), HttpStatus.OK);
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update a transport", description = "Update an existing transport details")
     public ResponseEntity<Transport> updateTransport(
@@ -141,11 +158,20 @@ public class TransportController {
     @Operation(summary = "Update transport status", description = "Change the status of a transport")
     public ResponseEntity<Transport> updateTransportStatus(
             @PathVariable Long id,
-            @RequestParam Transport.TransportStatus status) {
+            @RequestParam Transport.TransportStatus status,
+            @RequestParam(required = false) Transport.TransportStatus expectedStatus) {
 
         try {
+            if (expectedStatus != null) {
+                // Guarded transition: 409 if the transport has left expectedStatus in the meantime
+                return transportService.updateStatus(id, expectedStatus, status)
+                        .map(updatedTransport -> new ResponseEntity<>(updatedTransport, HttpStatus.OK))
+                        .orElseGet(() -> new ResponseEntity<>(HttpStatus.CONFLICT));
+            }
             Transport updatedTransport = transportService.updateStatus(id, status);
             return new ResponseEntity<>(updatedTransport, HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -160,6 +186,8 @@ public class TransportController {
         try {
             Transport completedTransport = transportService.completeTransport(id, completionDate);
             return new ResponseEntity<>(completedTransport, HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -191,6 +219,20 @@ public class TransportController {
         return new ResponseEntity<>(transports, HttpStatus.OK);
     }
 
+    @GetMapping("/routes")
+    @Operation(summary = "Plan the day's routes",
+            description = "The PLANNED transports of the date (yyyy-MM-dd) per driver, with the pickups and box drop-offs " +
+                    "in a short visiting order")
+    public ResponseEntity<RoutePlan> getRoutes(@RequestParam String date) {
+        LocalDate day;
+        try {
+            day = LocalDate.parse(date);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(routePlanner.plan(day), HttpStatus.OK);
+    }
+
     @GetMapping("/date-range")
     @Operation(summary = "Get transports by date range", description = "Retrieve all transports scheduled within a date range")
     public ResponseEntity<List<Transport>> getTransportsByDateRange(
@@ -0,0 +1,56 @@
+package com.kesherManager.kesherManager.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Sends @Transactional(readOnly = true) work to the replica and everything else to the primary.
+// Must sit behind a LazyConnectionDataSourceProxy so the read-only flag is known when the connection is fetched.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final DataSource primary;
+    private final ReplicaLagMonitor replicaMonitor;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaMonitor) {
+        this.primary = primary;
+        this.replicaMonitor = replicaMonitor;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaMonitor.isUsable()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object route = determineCurrentLookupKey();
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            if (route != Route.REPLICA) {
+                throw e;
+            }
+            replicaMonitor.markUnusable();
+            return primary.getConnection();
+        }
+    }
+}
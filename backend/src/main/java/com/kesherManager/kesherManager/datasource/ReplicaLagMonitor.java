@@ -0,0 +1,99 @@
+package com.kesherManager.kesherManager.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Periodically checks the replica; reads fall back to the primary while it is down or lagging
+public class ReplicaLagMonitor implements InitializingBean, DisposableBean, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final DataSource replica;
+    private final ReplicaProperties properties;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean usable;
+    private volatile double lagSeconds = -1;
+
+    public ReplicaLagMonitor(DataSource replica, ReplicaProperties properties) {
+        this.replica = replica;
+        this.properties = properties;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("kesher.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replica lag in seconds, -1 when unknown")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("kesher.datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+                .description("1 when read-only transactions are routed to the replica")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        check();
+        long interval = properties.getCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    // Called when a replica connection fails so reads switch over before the next check
+    public void markUnusable() {
+        if (usable) {
+            log.warn("Replica connection failed, routing reads to the primary");
+        }
+        usable = false;
+    }
+
+    void check() {
+        try (Connection connection = replica.getConnection()) {
+            lagSeconds = measureLag(connection);
+            boolean withinLag = lagSeconds <= properties.getMaxLag().toMillis() / 1000.0;
+            if (usable != withinLag) {
+                log.info("Replica lag {}s, routing reads to the {}", lagSeconds, withinLag ? "replica" : "primary");
+            }
+            usable = withinLag;
+        } catch (Exception e) {
+            lagSeconds = -1;
+            markUnusable();
+        }
+    }
+
+    private double measureLag(Connection connection) throws Exception {
+        String lagQuery = properties.getLagQuery();
+        if (lagQuery == null || lagQuery.isBlank()) {
+            return connection.isValid(1) ? 0 : Double.MAX_VALUE;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            return resultSet.next() ? resultSet.getDouble(1) : 0;
+        }
+    }
+}
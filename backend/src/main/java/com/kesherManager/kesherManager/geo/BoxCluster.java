@@ -0,0 +1,44 @@
+package com.kesherManager.kesherManager.geo;
+
+import com.kesherManager.kesherManager.model.Box;
+
+import java.util.Map;
+
+// Boxes of one grid cell on the map: their mean position, how many there are and how many of each status
+public class BoxCluster {
+
+    private final double latitude;
+    private final double longitude;
+    private final int count;
+    private final Map<Box.BoxStatus, Integer> statusCounts;
+    private final Long boxId;
+
+    BoxCluster(double latitude, double longitude, int count, Map<Box.BoxStatus, Integer> statusCounts, Long boxId) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.statusCounts = statusCounts;
+        this.boxId = boxId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Map<Box.BoxStatus, Integer> getStatusCounts() {
+        return statusCounts;
+    }
+
+    // The box itself when the cluster is a single box, so the map can show its marker; null otherwise
+    public Long getBoxId() {
+        return boxId;
+    }
+}
@@ -0,0 +1,410 @@
+package com.kesherManager.kesherManager.geo;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import com.kesherManager.kesherManager.util.Transactions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * Map clusters of boxes for /api/boxes/clusters.
+ *
+ * Box positions are projected to Web Mercator, the projection of the map tiles, and every zoom level from 0
+ * to kesher.clusters.max-zoom has a grid of CELLS_PER_TILE x CELLS_PER_TILE cells per tile (64 pixels on a
+ * 256 pixel tile). Each non-empty cell keeps its number of boxes, their counts by status and the sums of their
+ * coordinates, so a request reads only the cells inside its bounding box: one screen of the map is at most a
+ * few hundred cells, however many boxes there are. Zoom levels above max-zoom are answered from max-zoom,
+ * where a cell is a few hundred meters across and mostly holds a single box.
+ *
+ * Only every LEVEL_STEP-th level, counting down from max-zoom, is stored; deep levels hold about one cell per
+ * box, so this is what the memory goes to. A level in between is merged on request from the next stored level
+ * below it, whose cells are at most 4^(LEVEL_STEP - 1) times as many as the ones returned.
+ *
+ * BoxService reports writes after commit; the position last seen per box is kept so an update takes the box
+ * out of its old cells first. The periodic resync covers writes made elsewhere. Boxes without coordinates
+ * are left out. A resync builds new grids next to the live ones and swaps them in, replaying the writes
+ * reported meanwhile, so map requests do not wait for it.
+ *
+ * As in search.AutocompleteIndex, the grids are kept once over everything and once per donation group; a
+ * request scoped to a tenant (see tenant.TenantContext) is answered from its group's grids only.
+ */
+@Component
+public class BoxClusterIndex implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BoxClusterIndex.class);
+
+    static final int CELLS_PER_TILE = 4;
+    static final int LEVEL_STEP = 3;
+    // Cell coordinates must fit in an int at the deepest level
+    private static final int MAX_SUPPORTED_ZOOM = 24;
+    // Where Web Mercator stops; the poles are infinitely far away
+    private static final double MAX_LATITUDE = 85.05112878;
+    private static final Box.BoxStatus[] STATUSES = Box.BoxStatus.values();
+
+    private final BoxRepository boxRepository;
+    private final int maxZoom;
+    private final Duration resyncInterval;
+
+    // Guards every change to the state, its reads and the swap of a reload
+    private final Object lock = new Object();
+    private State state;
+    // Writes reported while a reload runs, replayed onto its result; null when no reload runs (guarded by lock)
+    private List<Consumer<State>> changesDuringReload;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "box-clusters");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public BoxClusterIndex(BoxRepository boxRepository,
+                           @Value("${kesher.clusters.max-zoom:16}") int maxZoom,
+                           @Value("${kesher.clusters.resync-interval:15m}") Duration resyncInterval) {
+        if (maxZoom < 0 || maxZoom > MAX_SUPPORTED_ZOOM) {
+            throw new IllegalArgumentException("kesher.clusters.max-zoom must be between 0 and " + MAX_SUPPORTED_ZOOM);
+        }
+        this.boxRepository = boxRepository;
+        this.maxZoom = maxZoom;
+        this.resyncInterval = resyncInterval;
+        this.state = new State(maxZoom);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        scheduler.scheduleWithFixedDelay(this::reloadQuietly, resyncInterval.toMillis(), resyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // Rebuilds every grid from the database; one reload runs at a time
+    public synchronized void reload() {
+        synchronized (lock) {
+            changesDuringReload = new ArrayList<>();
+        }
+        try {
+            State fresh = new State(maxZoom);
+            for (Object[] row : boxRepository.findClusterValues()) {
+                Long id = (Long) row[0];
+                Point point = Point.of(id, (Double) row[1], (Double) row[2], (Box.BoxStatus) row[3], (String) row[4]);
+                if (point != null) {
+                    fresh.changed(id, point);
+                }
+            }
+            synchronized (lock) {
+                changesDuringReload.forEach(change -> change.accept(fresh));
+                state = fresh;
+            }
+            loaded = true;
+        } finally {
+            synchronized (lock) {
+                changesDuringReload = null;
+            }
+        }
+    }
+
+    // False until the first load finished
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /*
+     * The clusters of the cells that overlap the bounding box (degrees) at the zoom level, within the current
+     * tenant. A box whose west edge is east of its east edge crosses the antimeridian.
+     */
+    public List<BoxCluster> clusters(double west, double south, double east, double north, int zoom) {
+        int level = Math.min(Math.max(zoom, 0), maxZoom);
+        int stored = storedLevel(level, maxZoom);
+        int shift = stored - level;
+        int size = CELLS_PER_TILE << level;
+        int top = cell(y(north), size);
+        int bottom = cell(y(south), size);
+        int left = cell(x(west), size);
+        int right = cell(x(east), size);
+
+        List<BoxCluster> clusters = new ArrayList<>();
+        synchronized (lock) {
+            Optional<String> tenant = TenantContext.current();
+            Grids grids = tenant.isPresent() ? state.byTenant.get(tenant.get()) : state.all;
+            if (grids == null) {
+                return clusters;
+            }
+            Map<Long, Cell> cells = grids.level(stored);
+            Map<Long, Cell> merged = new LinkedHashMap<>();
+            if (west <= east) {
+                collect(cells, shift, left, right, top, bottom, merged);
+            } else {
+                collect(cells, shift, left, size - 1, top, bottom, merged);
+                collect(cells, shift, 0, right, top, bottom, merged);
+            }
+            for (Cell cell : merged.values()) {
+                clusters.add(cell.toCluster());
+            }
+        }
+        return clusters;
+    }
+
+    // Called after a box is saved; applied once the surrounding transaction commits
+    public void boxSaved(Box box) {
+        Long id = box.getId();
+        Point point = Point.of(id, box.getLatitude(), box.getLongitude(), box.getStatus(), box.getDonationGroup());
+        Transactions.afterCommit(() -> changed(id, point));
+    }
+
+    public void boxDeleted(Long id) {
+        Transactions.afterCommit(() -> changed(id, null));
+    }
+
+    // Applies a write to the live state, and to the one a running reload builds
+    private void changed(Long id, Point point) {
+        Consumer<State> change = target -> target.changed(id, point);
+        synchronized (lock) {
+            change.accept(state);
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+        }
+    }
+
+    // The stored level a zoom level is answered from: itself, or the next stored one below it
+    static int storedLevel(int level, int maxZoom) {
+        return maxZoom - (maxZoom - level) / LEVEL_STEP * LEVEL_STEP;
+    }
+
+    /*
+     * Adds the cells of the range (in cells of the requested level) to merged, by their key at the requested
+     * level; a cell of the stored level is shift levels deeper. Looks each stored cell of the range up, or
+     * scans the level when the range has more cells than the level holds.
+     */
+    private static void collect(Map<Long, Cell> cells, int shift, int left, int right, int top, int bottom,
+                                Map<Long, Cell> merged) {
+        int storedLeft = left << shift;
+        int storedRight = ((right + 1) << shift) - 1;
+        int storedTop = top << shift;
+        int storedBottom = ((bottom + 1) << shift) - 1;
+        if ((long) (storedRight - storedLeft + 1) * (storedBottom - storedTop + 1) <= cells.size()) {
+            for (int cx = storedLeft; cx <= storedRight; cx++) {
+                for (int cy = storedTop; cy <= storedBottom; cy++) {
+                    Cell cell = cells.get(key(cx, cy));
+                    if (cell != null) {
+                        merge(merged, key(cx >> shift, cy >> shift), cell, shift);
+                    }
+                }
+            }
+            return;
+        }
+        for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+            int cx = (int) (entry.getKey() >>> 32);
+            int cy = (int) (entry.getKey() & 0xffffffffL);
+            if (cx >= storedLeft && cx <= storedRight && cy >= storedTop && cy <= storedBottom) {
+                merge(merged, key(cx >> shift, cy >> shift), entry.getValue(), shift);
+            }
+        }
+    }
+
+    // A stored cell is its own cluster at its level; above it, cells are summed into a new one
+    private static void merge(Map<Long, Cell> merged, long key, Cell cell, int shift) {
+        if (shift == 0) {
+            merged.put(key, cell);
+        } else {
+            merged.computeIfAbsent(key, k -> new Cell()).add(cell);
+        }
+    }
+
+    // Web Mercator, scaled to [0, 1] from west to east and from north to south
+    static double x(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    static double y(double latitude) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    private static int cell(double position, int size) {
+        return (int) Math.max(0, Math.min(size - 1, Math.floor(position * size)));
+    }
+
+    private static long key(int cx, int cy) {
+        return (long) cx << 32 | cy;
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Box cluster resync failed", e);
+        }
+    }
+
+    // The position last seen per box, and the grids over everything and per donation group
+    private static final class State {
+        final int maxZoom;
+        final Map<Long, Point> points = new HashMap<>();
+        final Grids all;
+        final Map<String, Grids> byTenant = new HashMap<>();
+
+        State(int maxZoom) {
+            this.maxZoom = maxZoom;
+            this.all = new Grids(maxZoom);
+        }
+
+        // Replaces the box's position (null removes it) in the grids over everything and of its donation group
+        void changed(Long id, Point point) {
+            Point old = point == null ? points.remove(id) : points.put(id, point);
+            if (old != null) {
+                add(old, -1);
+            }
+            if (point != null) {
+                add(point, 1);
+            }
+        }
+
+        private void add(Point point, int sign) {
+            all.add(point, sign);
+            if (point.tenant == null) {
+                return;
+            }
+            Grids grids = byTenant.computeIfAbsent(point.tenant, t -> new Grids(maxZoom));
+            grids.add(point, sign);
+            if (grids.isEmpty()) {
+                byTenant.remove(point.tenant);
+            }
+        }
+    }
+
+    // A box as the grids see it, projected once
+    private static final class Point {
+        final long id;
+        final double latitude;
+        final double longitude;
+        final double x;
+        final double y;
+        final Box.BoxStatus status;
+        final String tenant;
+
+        private Point(long id, double latitude, double longitude, Box.BoxStatus status, String tenant) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.x = x(longitude);
+            this.y = y(latitude);
+            this.status = status;
+            this.tenant = tenant;
+        }
+
+        // Null for a box without valid coordinates
+        static Point of(Long id, Double latitude, Double longitude, Box.BoxStatus status, String donationGroup) {
+            if (id == null || latitude == null || longitude == null
+                    || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+                return null;
+            }
+            String tenant = donationGroup == null || donationGroup.isBlank() ? null : donationGroup.trim();
+            return new Point(id, latitude, longitude, status, tenant);
+        }
+    }
+
+    // The non-empty cells of the stored zoom levels, deepest first, by key(cx, cy)
+    private static final class Grids {
+
+        final int maxZoom;
+        final List<Map<Long, Cell>> levels = new ArrayList<>();
+
+        Grids(int maxZoom) {
+            this.maxZoom = maxZoom;
+            for (int zoom = maxZoom; zoom >= 0; zoom -= LEVEL_STEP) {
+                levels.add(new HashMap<>());
+            }
+        }
+
+        // The cells of a stored level
+        Map<Long, Cell> level(int zoom) {
+            return levels.get((maxZoom - zoom) / LEVEL_STEP);
+        }
+
+        void add(Point point, int sign) {
+            for (int i = 0; i < levels.size(); i++) {
+                int size = CELLS_PER_TILE << (maxZoom - i * LEVEL_STEP);
+                long key = key(cell(point.x, size), cell(point.y, size));
+                Map<Long, Cell> cells = levels.get(i);
+                Cell cell = cells.computeIfAbsent(key, k -> new Cell());
+                cell.add(point, sign);
+                if (cell.count == 0) {
+                    cells.remove(key);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return levels.get(levels.size() - 1).isEmpty();
+        }
+    }
+
+    private static final class Cell {
+        int count;
+        final int[] statusCounts = new int[STATUSES.length];
+        double latitudeSum;
+        double longitudeSum;
+        // The sum of the boxes' ids is the box's id while the cell holds one box
+        long idSum;
+
+        void add(Point point, int sign) {
+            count += sign;
+            if (point.status != null) {
+                statusCounts[point.status.ordinal()] += sign;
+            }
+            latitudeSum += sign * point.latitude;
+            longitudeSum += sign * point.longitude;
+            idSum += sign * point.id;
+        }
+
+        void add(Cell other) {
+            count += other.count;
+            for (int i = 0; i < statusCounts.length; i++) {
+                statusCounts[i] += other.statusCounts[i];
+            }
+            latitudeSum += other.latitudeSum;
+            longitudeSum += other.longitudeSum;
+            idSum += other.idSum;
+        }
+
+        BoxCluster toCluster() {
+            Map<Box.BoxStatus, Integer> byStatus = new EnumMap<>(Box.BoxStatus.class);
+            for (Box.BoxStatus status : STATUSES) {
+                if (statusCounts[status.ordinal()] > 0) {
+                    byStatus.put(status, statusCounts[status.ordinal()]);
+                }
+            }
+            return new BoxCluster(latitudeSum / count, longitudeSum / count, count, byStatus, count == 1 ? idSum : null);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.kesherManager.kesherManager.geo;
+
+import com.kesherManager.kesherManager.search.HebrewNormalizationFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*
+ * Street and city positions for offline geocoding, read from a memory-mapped index file.
+ *
+ * The source is a UTF-8 text file with one place per line: city, street, latitude and longitude separated by
+ * tabs. A line with an empty street is the position of the city itself; lines starting with # are comments.
+ * Alternative names of a place are further lines with the same position.
+ *
+ * The source is compiled once into <directory>/<source name>.idx and recompiled when the source's size or
+ * modification time changes. The index holds the normalized "city|street" keys as UTF-8 bytes in sorted order
+ * and a 12 byte record per key: the key's offset and the position as two int microdegrees. A lookup is a
+ * binary search over the mapped file, which the operating system pages in and shares between processes
+ * instead of it taking heap.
+ *
+ * Layout: magic, source size (long), source modification time (long), entry count, then count + 1 key
+ * offsets interleaved with the positions (the last offset ends the last key), then the keys.
+ */
+public class Gazetteer {
+
+    private static final Logger log = LoggerFactory.getLogger(Gazetteer.class);
+
+    private static final int MAGIC = 0x4B475A31;
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 4;
+    private static final int RECORD_SIZE = 12;
+    private static final double MICRODEGREES = 1_000_000;
+
+    // Words that name the kind of street rather than the street
+    private static final Set<String> STREET_TYPES = Set.of("רחוב", "רח", "שדרות", "שד", "שדרת", "סמטת", "סמ", "כיכר", "ככר");
+
+    private final ByteBuffer index;
+    private final int count;
+    private final int keysStart;
+
+    private Gazetteer(ByteBuffer index) {
+        this.index = index;
+        this.count = index.getInt(HEADER_SIZE - 4);
+        this.keysStart = HEADER_SIZE + count * RECORD_SIZE + 4;
+    }
+
+    // Maps the index of the source in the directory, compiling it first if it is missing or out of date
+    public static Gazetteer open(Path source, Path directory) throws IOException {
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        Path indexFile = directory.resolve(source.getFileName() + ".idx");
+        if (!isCurrent(indexFile, size, modified)) {
+            Files.createDirectories(directory);
+            compile(source, indexFile, size, modified);
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Gazetteer(mapped);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Latitude and longitude of the street in the city, both as normalizeCity and normalizeStreet return them;
+    // an empty street finds the city itself
+    public Optional<double[]> find(String normalizedCity, String normalizedStreet) {
+        byte[] key = key(normalizedCity, normalizedStreet);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compared = compareKey(mid, key);
+            if (compared < 0) {
+                low = mid + 1;
+            } else if (compared > 0) {
+                high = mid - 1;
+            } else {
+                int record = HEADER_SIZE + mid * RECORD_SIZE;
+                return Optional.of(new double[]{index.getInt(record + 4) / MICRODEGREES, index.getInt(record + 8) / MICRODEGREES});
+            }
+        }
+        return Optional.empty();
+    }
+
+    /*
+     * Spelling variants of a name map to one form: lower case, Hebrew marks and gershayim removed and final
+     * letters folded (as in search), punctuation and maqaf as spaces, doubled vav and yod of full spelling
+     * single.
+     */
+    public static String normalizeCity(String city) {
+        return String.join(" ", words(city));
+    }
+
+    // A street also loses a leading street type and anything from the house number on ("רח' הרצל 12" -> "הרצל")
+    public static String normalizeStreet(String street) {
+        List<String> words = words(street);
+        int start = 0;
+        // A house number written first
+        while (start < words.size() && hasDigit(words.get(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < words.size() && !hasDigit(words.get(end))) {
+            end++;
+        }
+        if (end - start > 1 && STREET_TYPES.contains(words.get(start))) {
+            start++;
+        }
+        return String.join(" ", words.subList(start, end));
+    }
+
+    private static boolean hasDigit(String word) {
+        return word.chars().anyMatch(Character::isDigit);
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String folded = HebrewNormalizationFilter.normalize(text.toLowerCase(Locale.ROOT));
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                // Full spelling doubles vav and yod as consonants; a single letter matches both spellings
+                int last = word.length() - 1;
+                if (!((c == 'ו' || c == 'י') && last >= 0 && word.charAt(last) == c)) {
+                    word.append(c);
+                }
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    private static byte[] key(String city, String street) {
+        return (city + "|" + street).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Unsigned byte order of UTF-8 is code point order, the order the keys were sorted in
+    private int compareKey(int entry, byte[] key) {
+        int record = HEADER_SIZE + entry * RECORD_SIZE;
+        int from = keysStart + index.getInt(record);
+        int length = keysStart + index.getInt(record + RECORD_SIZE) - from;
+        int shared = Math.min(length, key.length);
+        for (int i = 0; i < shared; i++) {
+            int compared = Integer.compare(index.get(from + i) & 0xff, key[i] & 0xff);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static boolean isCurrent(Path indexFile, long size, long modified) {
+        if (!Files.isRegularFile(indexFile)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            return in.readInt() == MAGIC && in.readLong() == size && in.readLong() == modified;
+        } catch (IOException e) {
+            // Unreadable or shorter than a header
+            return false;
+        }
+    }
+
+    private static void compile(Path source, Path indexFile, long size, long modified) throws IOException {
+        long started = System.nanoTime();
+        // Sorted by key bytes; the first line of a key wins
+        TreeMap<byte[], int[]> places = new TreeMap<>(Arrays::compareUnsigned);
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                int[] position = fields.length == 4 ? position(fields[2], fields[3]) : null;
+                String city = fields.length == 4 ? normalizeCity(fields[0]) : "";
+                if (position == null || city.isEmpty()) {
+                    skipped++;
+                    continue;
+                }
+                places.putIfAbsent(key(city, normalizeStreet(fields[1])), position);
+            }
+        }
+
+        Path temporary = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(size);
+            out.writeLong(modified);
+            out.writeInt(places.size());
+            int offset = 0;
+            for (Map.Entry<byte[], int[]> place : places.entrySet()) {
+                out.writeInt(offset);
+                out.writeInt(place.getValue()[0]);
+                out.writeInt(place.getValue()[1]);
+                offset += place.getKey().length;
+            }
+            out.writeInt(offset);
+            for (byte[] key : places.keySet()) {
+                out.write(key);
+            }
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Compiled gazetteer {}: {} places ({} lines skipped) in {} ms", source, places.size(), skipped,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Microdegrees, or null for a position that is not a valid coordinate
+    private static int[] position(String latitude, String longitude) {
+        try {
+            double lat = Double.parseDouble(latitude.trim());
+            double lon = Double.parseDouble(longitude.trim());
+            if (!(Math.abs(lat) <= 90) || !(Math.abs(lon) <= 180)) {
+                return null;
+            }
+            return new int[]{(int) Math.round(lat * MICRODEGREES), (int) Math.round(lon * MICRODEGREES)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.kesherManager.kesherManager.geo;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.util.BatchInserts;
+import com.kesherManager.kesherManager.util.Dates;
+import com.kesherManager.kesherManager.workload.Workload;
+import com.kesherManager.kesherManager.workload.WorkloadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Geocodes the boxes that have no position.
+ *
+ * As in search.SearchReindexJob, the ids of the boxes without one are cut into ranges of
+ * kesher.geocoding.backfill-batch-size and kesher.geocoding.backfill-threads workers read a range each in a
+ * read-only transaction, geocode it and write the positions found in one JDBC batch. The update only touches
+ * boxes that still have no position, so an edit made meanwhile wins. The workers run as bulk work (see
+ * workload.WorkloadContext).
+ *
+ * The rows are written past Hibernate, so the boxes are evicted from the second-level cache and the map
+ * clusters are reloaded at the end.
+ */
+@Component
+public class GeocodeBackfillJob {
+
+    private static final Logger log = LoggerFactory.getLogger(GeocodeBackfillJob.class);
+
+    private static final String UPDATE_POSITION =
+            "update boxes set latitude = ?, longitude = ?, updated_at = ? " +
+            "where id = ? and (latitude is null or longitude is null)";
+
+    private final Geocoder geocoder;
+    private final BoxClusterIndex boxClusterIndex;
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int threads;
+    private final int batchSize;
+    private final boolean backfillOnStartup;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong located = new AtomicLong();
+    private final AtomicLong unmatched = new AtomicLong();
+    private volatile Date lastStarted;
+    private volatile Date lastFinished;
+    private volatile String lastError;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public GeocodeBackfillJob(Geocoder geocoder,
+                              BoxClusterIndex boxClusterIndex,
+                              EntityManagerFactory entityManagerFactory,
+                              JdbcTemplate jdbc,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${kesher.geocoding.backfill-threads:4}") int threads,
+                              @Value("${kesher.geocoding.backfill-batch-size:500}") int batchSize,
+                              @Value("${kesher.geocoding.backfill-on-startup:true}") boolean backfillOnStartup) {
+        this.geocoder = geocoder;
+        this.boxClusterIndex = boxClusterIndex;
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup && geocoder.isAvailable()) {
+            start();
+        }
+    }
+
+    // Starts a backfill on a background thread; false if one is already running
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::runGuarded, "geocode-backfill");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    // Runs a backfill on the calling thread; false if one is already running
+    public boolean runNow() throws Exception {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            backfill();
+            return true;
+        } catch (Exception e) {
+            lastError = e.toString();
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("located", located.get());
+        status.put("unmatched", unmatched.get());
+        status.put("lastStarted", lastStarted);
+        status.put("lastFinished", lastFinished);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private void backfill() throws Exception {
+        long started = System.nanoTime();
+        located.set(0);
+        unmatched.set(0);
+        lastStarted = new Date();
+        lastError = null;
+
+        Object[] bounds = readOnlyTransaction.execute(status -> entityManager
+                .createQuery("select min(b.id), max(b.id) from Box b where b.latitude is null or b.longitude is null", Object[].class)
+                .getSingleResult());
+        if (bounds != null && bounds[0] != null) {
+            ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "geocode-backfill-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<?>> batches = new ArrayList<>();
+                long max = (Long) bounds[1];
+                for (long from = (Long) bounds[0]; from <= max; from += batchSize) {
+                    long rangeFrom = from;
+                    long rangeTo = Math.min(from + batchSize - 1, max);
+                    batches.add(workers.submit(() -> WorkloadContext.call(Workload.BULK, () -> {
+                        backfill(rangeFrom, rangeTo);
+                        return null;
+                    })));
+                }
+                for (Future<?> batch : batches) {
+                    batch.get();
+                }
+            } finally {
+                workers.shutdownNow();
+            }
+            if (located.get() > 0) {
+                boxClusterIndex.reload();
+            }
+        }
+
+        lastFinished = new Date();
+        log.info("Geocoding backfill: {} boxes located, {} not found in {} ms", located.get(), unmatched.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void backfill(long from, long to) {
+        List<Object[]> boxes = readOnlyTransaction.execute(status -> entityManager
+                .createQuery("select b.id, b.city, b.address from Box b " +
+                        "where b.id between :from and :to and (b.latitude is null or b.longitude is null)", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList());
+        Timestamp now = BatchInserts.timestamp(Dates.nowUTC());
+        List<Object[]> positions = new ArrayList<>();
+        for (Object[] box : boxes) {
+            Optional<Geocoder.Location> location = geocoder.geocode((String) box[1], (String) box[2]);
+            if (location.isPresent()) {
+                positions.add(new Object[]{location.get().getLatitude(), location.get().getLongitude(), now, box[0]});
+            } else {
+                unmatched.incrementAndGet();
+            }
+        }
+        if (positions.isEmpty()) {
+            return;
+        }
+        int[] updated = transaction.execute(status -> jdbc.batchUpdate(UPDATE_POSITION, positions));
+        for (int i = 0; i < positions.size(); i++) {
+            entityManagerFactory.getCache().evict(Box.class, positions.get(i)[3]);
+            // Drivers that cannot tell report SUCCESS_NO_INFO (-2) for a row that was updated
+            if (updated != null && updated[i] != 0) {
+                located.incrementAndGet();
+            }
+        }
+    }
+
+    private void runGuarded() {
+        try {
+            backfill();
+        } catch (Exception e) {
+            lastError = e.toString();
+            log.error("Geocoding backfill failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+}
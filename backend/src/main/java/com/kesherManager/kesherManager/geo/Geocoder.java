@@ -0,0 +1,126 @@
+package com.kesherManager.kesherManager.geo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ResourceUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+/*
+ * Positions for boxes from their city and address, looked up in the local gazetteer (see Gazetteer) set as
+ * kesher.geocoding.gazetteer; no external service is called. Without a gazetteer nothing is found.
+ *
+ * An address is "street [number][, city]"; the box's city field wins over a city after the comma. A street
+ * the gazetteer does not know falls back to the position of the city. Results, misses included, are cached
+ * by normalized city and street, since imports repeat the same streets.
+ */
+@Component
+public class Geocoder {
+
+    private static final Logger log = LoggerFactory.getLogger(Geocoder.class);
+
+    public enum Precision {
+        STREET, CITY
+    }
+
+    public static class Location {
+        private final double latitude;
+        private final double longitude;
+        private final Precision precision;
+
+        Location(double latitude, double longitude, Precision precision) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.precision = precision;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public Precision getPrecision() {
+            return precision;
+        }
+    }
+
+    // Null when no gazetteer is configured or it could not be read
+    private final Gazetteer gazetteer;
+    private final Cache<String, Optional<Location>> results;
+
+    @Autowired
+    public Geocoder(MeterRegistry meterRegistry,
+                    @Value("${kesher.geocoding.gazetteer:}") String gazetteerLocation,
+                    @Value("${kesher.geocoding.index-directory:${java.io.tmpdir}/kesher-geocoding}") String indexDirectory,
+                    @Value("${kesher.geocoding.cache.max-size:20000}") long cacheSize) {
+        this.gazetteer = open(gazetteerLocation, Paths.get(indexDirectory));
+        this.results = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "geocoding");
+    }
+
+    public boolean isAvailable() {
+        return gazetteer != null;
+    }
+
+    public Optional<Location> geocode(String city, String address) {
+        if (gazetteer == null) {
+            return Optional.empty();
+        }
+        String street = address == null ? "" : address;
+        int comma = street.indexOf(',');
+        if (comma >= 0) {
+            if (city == null || city.isBlank()) {
+                city = street.substring(street.lastIndexOf(',') + 1);
+            }
+            street = street.substring(0, comma);
+        }
+        String cityKey = Gazetteer.normalizeCity(city);
+        if (cityKey.isEmpty()) {
+            return Optional.empty();
+        }
+        String streetKey = Gazetteer.normalizeStreet(street);
+        return results.get(cityKey + "|" + streetKey, key -> lookup(cityKey, streetKey));
+    }
+
+    private Optional<Location> lookup(String city, String street) {
+        if (!street.isEmpty()) {
+            Optional<double[]> found = gazetteer.find(city, street);
+            if (found.isPresent()) {
+                return Optional.of(new Location(found.get()[0], found.get()[1], Precision.STREET));
+            }
+        }
+        return gazetteer.find(city, "").map(position -> new Location(position[0], position[1], Precision.CITY));
+    }
+
+    // A classpath: or file location; geocoding stays off, with a warning, if it cannot be opened
+    private static Gazetteer open(String location, Path indexDirectory) {
+        if (location == null || location.isBlank()) {
+            log.info("No gazetteer configured (kesher.geocoding.gazetteer); geocoding is off");
+            return null;
+        }
+        try {
+            Gazetteer gazetteer = Gazetteer.open(ResourceUtils.getFile(location).toPath(), indexDirectory);
+            log.info("Gazetteer {} loaded: {} places", location, gazetteer.size());
+            return gazetteer;
+        } catch (IOException e) {
+            log.warn("Could not load gazetteer {}; geocoding is off", location, e);
+            return null;
+        }
+    }
+}
@@ -1,11 +1,26 @@
 package com.kesherManager.kesherManager.model;
 
+import com.kesherManager.kesherManager.config.EntityCacheProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import java.util.Date;
 
 @Entity
 @Table(name = "boxes")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheProperties.BOX_REGION)
+// Updates write the changed columns only, so a status change is a two-column UPDATE
+@DynamicUpdate
+// Tenant scoping, enabled per transaction by tenant.TenantJpaTransactionManager; also used by Task and Transport
+@FilterDef(name = "tenant", parameters = @ParamDef(name = "donationGroup", type = "string"))
+@Filter(name = "tenant", condition = "donation_group = :donationGroup")
 public class Box {
 
     @Id
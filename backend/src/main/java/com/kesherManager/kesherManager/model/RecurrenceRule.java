@@ -0,0 +1,158 @@
+package com.kesherManager.kesherManager.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Filter;
+
+import javax.persistence.*;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.util.Date;
+
+// A task that repeats every intervalDays from startDate for each active box (of the donation group, if set).
+// RecurringTaskScheduler materializes the occurrences; generatedThrough is the last one done.
+@Entity
+@Table(name = "recurrence_rules")
+@Filter(name = "tenant", condition = "donation_group = :donationGroup")
+public class RecurrenceRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @NotNull(message = "Task type must be defined")
+    private Task.TaskType taskType;
+
+    @NotBlank(message = "Task description cannot be empty")
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    private Task.TaskPriority priority;
+
+    private String taskCategory;
+
+    private String assignedTo;
+
+    // Null: boxes of every group
+    private String donationGroup;
+
+    @Min(value = 1, message = "Interval must be at least one day")
+    private int intervalDays;
+
+    @NotNull(message = "Start date must be defined")
+    private Date startDate;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Date generatedThrough;
+
+    private boolean active = true;
+
+    private Date createdAt;
+
+    private Date updatedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Task.TaskType getTaskType() {
+        return taskType;
+    }
+
+    public void setTaskType(Task.TaskType taskType) {
+        this.taskType = taskType;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Task.TaskPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Task.TaskPriority priority) {
+        this.priority = priority;
+    }
+
+    public String getTaskCategory() {
+        return taskCategory;
+    }
+
+    public void setTaskCategory(String taskCategory) {
+        this.taskCategory = taskCategory;
+    }
+
+    public String getAssignedTo() {
+        return assignedTo;
+    }
+
+    public void setAssignedTo(String assignedTo) {
+        this.assignedTo = assignedTo;
+    }
+
+    public String getDonationGroup() {
+        return donationGroup;
+    }
+
+    public void setDonationGroup(String donationGroup) {
+        this.donationGroup = donationGroup;
+    }
+
+    public int getIntervalDays() {
+        return intervalDays;
+    }
+
+    public void setIntervalDays(int intervalDays) {
+        this.intervalDays = intervalDays;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Date getGeneratedThrough() {
+        return generatedThrough;
+    }
+
+    public void setGeneratedThrough(Date generatedThrough) {
+        this.generatedThrough = generatedThrough;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,80 @@
+package com.kesherManager.kesherManager.model;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.util.Date;
+
+// One status a box, task or transport entered, and when, with the entity's donation group at the time. Rows are
+// only ever appended (see StatusHistory).
+@Entity
+@Immutable
+@Table(name = "status_history", indexes = {
+        // one entity's history, and its status as of a date
+        @Index(name = "idx_status_history_entity", columnList = "entity_type, entity_id, changed_at"),
+        // all entities of a type as of a date
+        @Index(name = "idx_status_history_type_time", columnList = "entity_type, changed_at"),
+        // the same, for one donation group
+        @Index(name = "idx_status_history_group_type_time", columnList = "donation_group, entity_type, changed_at")
+})
+public class StatusChange {
+
+    public enum EntityType {
+        BOX, TASK, TRANSPORT
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", length = 16, nullable = false)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(length = 32, nullable = false)
+    private String status;
+
+    @Column(name = "changed_at", nullable = false)
+    private Date changedAt;
+
+    @Column(name = "donation_group")
+    private String donationGroup;
+
+    public StatusChange() {
+    }
+
+    public StatusChange(EntityType entityType, Long entityId, String donationGroup, String status, Date changedAt) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.donationGroup = donationGroup;
+        this.status = status;
+        this.changedAt = changedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+
+    public String getDonationGroup() {
+        return donationGroup;
+    }
+}
@@ -4,12 +4,16 @@ import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
 import com.kesherManager.kesherManager.util.Dates ;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Filter;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import java.util.Date;
 
 @Entity
 @Table(name = "tasks")
+@Filter(name = "tenant", condition = "donation_group = :donationGroup")
 public class Task {
 
     @Id
@@ -23,8 +27,10 @@ public class Task {
     @JoinColumn(name = "related_box_id")
     private Box relatedBox;
 
+    // No foreign key: the key of the partitioned transports table is (id, partition_date), so
+    // TransportService.deleteTransport clears the reference instead
     @ManyToOne
-    @JoinColumn(name = "related_transport_id")
+    @JoinColumn(name = "related_transport_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Transport relatedTransport;
 
     @NotBlank(message = "Task description cannot be empty")
@@ -51,6 +57,48 @@ public class Task {
 
     private String taskCategory;
 
+    // The related box's donation group, else the related transport's; kept by TaskService for the tenant filter
+    private String donationGroup;
+
+    // The RecurrenceRule that generated the task, if any
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long recurrenceRuleId;
+
+    // Partition key of the tasks table (see the V1 migration); never serialized, it only follows the dates
+    @Column(nullable = false)
+    private Date partitionDate;
+
+    // The partition_date a task with these dates is stored under: its due date, else its creation time
+    public static Date partitionDate(Date dueDate, Date createdAt) {
+        if (dueDate != null) {
+            return dueDate;
+        }
+        return createdAt != null ? createdAt : Dates.nowUTC();
+    }
+
+    // A changed due date moves the row to another partition
+    @PrePersist
+    @PreUpdate
+    void updatePartitionDate() {
+        partitionDate = partitionDate(dueDate, createdAt);
+    }
+
+    public String getDonationGroup() {
+        return donationGroup;
+    }
+
+    public void setDonationGroup(String donationGroup) {
+        this.donationGroup = donationGroup;
+    }
+
+    public Long getRecurrenceRuleId() {
+        return recurrenceRuleId;
+    }
+
+    public void setRecurrenceRuleId(Long recurrenceRuleId) {
+        this.recurrenceRuleId = recurrenceRuleId;
+    }
+
     // Add new getters and setters
     public String getTaskCategory() {
         return taskCategory;
@@ -4,12 +4,15 @@ import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
 import com.kesherManager.kesherManager.util.Dates ;
 
+import org.hibernate.annotations.Filter;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.util.Date;
 
 @Entity
 @Table(name = "transports")
+@Filter(name = "tenant", condition = "donation_group = :donationGroup")
 public class Transport {
 
     @Id
@@ -70,6 +73,13 @@ public class Transport {
     private String driverName;
     private String driverPhone;
 
+    // The source box's donation group, kept by TransportService so the tenant filter needs no join
+    private String donationGroup;
+
+    // Partition key of the transports table (see the V1 migration); never serialized, it only follows the dates
+    @Column(nullable = false)
+    private Date partitionDate;
+
 
 
 
@@ -217,6 +227,29 @@ public class Transport {
         this.driverPhone = driverPhone;
     }
 
+    // The partition_date a transport with these dates is stored under: its scheduled date, else its creation time
+    public static Date partitionDate(Date scheduledDate, Date createdAt) {
+        if (scheduledDate != null) {
+            return scheduledDate;
+        }
+        return createdAt != null ? createdAt : Dates.nowUTC();
+    }
+
+    // A changed scheduled date moves the row to another partition
+    @PrePersist
+    @PreUpdate
+    void updatePartitionDate() {
+        partitionDate = partitionDate(scheduledDate, createdAt);
+    }
+
+    public String getDonationGroup() {
+        return donationGroup;
+    }
+
+    public void setDonationGroup(String donationGroup) {
+        this.donationGroup = donationGroup;
+    }
+
     // Add convenience methods to access box-related information
     @Transient
     public String getSourceDonationGroup() {
@@ -0,0 +1,47 @@
+package com.kesherManager.kesherManager.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Records the time from JVM start until the first request has been answered (time to first request)
+public class FirstRequestTimer extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(FirstRequestTimer.class);
+
+    private final AtomicLong timeToFirstRequest = new AtomicLong(-1);
+
+    public FirstRequestTimer(MeterRegistry meterRegistry) {
+        TimeGauge.builder("kesher.startup.time-to-first-request", timeToFirstRequest, TimeUnit.MILLISECONDS,
+                        value -> value.get() < 0 ? Double.NaN : value.get())
+                .description("Time from JVM start until the first HTTP request completed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (timeToFirstRequest.get() < 0) {
+                long elapsed = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                if (timeToFirstRequest.compareAndSet(-1, elapsed)) {
+                    log.info("First request {} {} completed {} ms after JVM start",
+                            request.getMethod(), request.getRequestURI(), elapsed);
+                }
+            }
+        }
+    }
+}
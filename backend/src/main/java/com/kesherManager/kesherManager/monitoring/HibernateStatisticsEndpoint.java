@@ -0,0 +1,55 @@
+package com.kesherManager.kesherManager.monitoring;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Exposes Hibernate Statistics at /actuator/hibernate; DELETE resets the counters
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private final Statistics statistics;
+
+    public HibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("sessionsOpened", statistics.getSessionOpenCount());
+        result.put("transactions", statistics.getTransactionCount());
+        result.put("statementsPrepared", statistics.getPrepareStatementCount());
+        result.put("queries", statistics.getQueryExecutionCount());
+        result.put("queryMaxTimeMs", statistics.getQueryExecutionMaxTime());
+        result.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        result.put("entityLoads", statistics.getEntityLoadCount());
+        result.put("entityFetches", statistics.getEntityFetchCount());
+        result.put("entityInserts", statistics.getEntityInsertCount());
+        result.put("entityUpdates", statistics.getEntityUpdateCount());
+        result.put("collectionLoads", statistics.getCollectionLoadCount());
+        result.put("collectionFetches", statistics.getCollectionFetchCount());
+        result.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        result.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        result.put("flushes", statistics.getFlushCount());
+        result.put("optimisticFailures", statistics.getOptimisticFailureCount());
+        return result;
+    }
+
+    @DeleteOperation
+    public void clear() {
+        statistics.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package com.kesherManager.kesherManager.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Counts the SQL statements each API request runs and warns when it goes over budget
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCountFilter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int budget;
+
+    public QueryCountFilter(MeterRegistry meterRegistry, int budget) {
+        this.meterRegistry = meterRegistry;
+        this.budget = budget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // Counts are per thread; take a delta instead of clearing so callers (tests) can still read them
+        long before = QueryCountHolder.getGrandTotal().getTotal();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long statements = QueryCountHolder.getGrandTotal().getTotal() - before;
+            String uri = uriPattern(request);
+
+            DistributionSummary.builder("kesher.request.queries")
+                    .description("SQL statements executed per API request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(statements);
+
+            if (statements > budget) {
+                log.warn("{} {} executed {} SQL statements (budget {})", request.getMethod(), uri, statements, budget);
+            }
+        }
+    }
+
+    private static String uriPattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
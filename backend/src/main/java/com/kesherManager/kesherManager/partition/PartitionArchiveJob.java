@@ -0,0 +1,211 @@
+package com.kesherManager.kesherManager.partition;
+
+import com.kesherManager.kesherManager.calendar.CalendarHistogram;
+import com.kesherManager.kesherManager.search.SearchIndex;
+import com.kesherManager.kesherManager.service.OverdueTaskTracker;
+import com.kesherManager.kesherManager.workload.Workload;
+import com.kesherManager.kesherManager.workload.WorkloadContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * Moves COMPLETED/CANCELLED rows older than kesher.partitioning.archive-after out of the hot tables.
+ *
+ * A month partition that ends before the horizon is detached from the hot table; the rows that have to
+ * stay hot (still open, or a transport a hot task points to) are put back through the parent, where they
+ * land in the default partition, and the partition itself is attached to <table>_archive. Old finished
+ * rows in the default partition are moved to the archive row by row. Each month is one transaction.
+ *
+ * Archived rows are no longer visible to the application; they are dropped from the search index and the
+ * overdue tracker, and the calendar's cached buckets, which were counted from the tables they left, are cleared.
+ */
+@Component
+@ConditionalOnProperty(name = "kesher.partitioning.enabled", havingValue = "true", matchIfMissing = true)
+public class PartitionArchiveJob implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionArchiveJob.class);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+    private final SearchIndex searchIndex;
+    private final OverdueTaskTracker overdueTaskTracker;
+    private final CalendarHistogram calendarHistogram;
+    private final Duration archiveAfter;
+    private final Duration interval;
+    private final Map<PartitionedTable, Counter> archivedRows = new EnumMap<>(PartitionedTable.class);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "partition-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public PartitionArchiveJob(JdbcTemplate jdbc,
+                               PlatformTransactionManager transactionManager,
+                               SearchIndex searchIndex,
+                               OverdueTaskTracker overdueTaskTracker,
+                               CalendarHistogram calendarHistogram,
+                               MeterRegistry meterRegistry,
+                               @Value("${kesher.partitioning.archive-after:180d}") Duration archiveAfter,
+                               @Value("${kesher.partitioning.archive-interval:1d}") Duration interval) {
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.searchIndex = searchIndex;
+        this.overdueTaskTracker = overdueTaskTracker;
+        this.calendarHistogram = calendarHistogram;
+        this.archiveAfter = archiveAfter;
+        this.interval = interval;
+        for (PartitionedTable table : PartitionedTable.values()) {
+            archivedRows.put(table, Counter.builder("kesher.partitions.archived.rows")
+                    .description("Rows moved from the hot tables to the archive")
+                    .tag("table", table.table())
+                    .register(meterRegistry));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!PartitionedTable.available(jdbc)) {
+            log.info("Tables are not partitioned (not PostgreSQL or not migrated); archival is off");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::runQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // Archives everything older than the horizon; returns the number of rows moved
+    public long run() {
+        // Only whole months are detached: those that end on or before the horizon
+        LocalDate horizon = LocalDate.now(ZoneOffset.UTC).minusDays(archiveAfter.toDays());
+        LocalDate firstHotMonth = horizon.withDayOfMonth(1);
+        long moved = 0;
+        for (PartitionedTable table : PartitionedTable.values()) {
+            for (LocalDate month : table.months(jdbc)) {
+                if (month.isBefore(firstHotMonth)) {
+                    moved += inTransaction(table, () -> archiveMonth(table, month));
+                }
+            }
+            moved += inTransaction(table, () -> archiveFromDefault(table, horizon));
+        }
+        return moved;
+    }
+
+    private int inTransaction(PartitionedTable table, Supplier<List<Long>> work) {
+        Integer count = transaction.execute(status -> {
+            PartitionedTable.lock(jdbc);
+            List<Long> ids = work.get();
+            forget(table, ids);
+            return ids.size();
+        });
+        int moved = count != null ? count : 0;
+        archivedRows.get(table).increment(moved);
+        return moved;
+    }
+
+    private List<Long> archiveMonth(PartitionedTable table, LocalDate month) {
+        String hot = table.partition(month);
+        String archived = table.archivePartition(month);
+        String columns = PartitionedTable.columns(jdbc, table.table());
+
+        jdbc.execute("alter table " + table.table() + " detach partition " + hot);
+        int kept = jdbc.update("with kept as (delete from " + hot + " where " + table.keepHot() + " returning *) " +
+                "insert into " + table.table() + " (" + columns + ") select " + columns + " from kept");
+        addMissingColumns(table);
+
+        List<Long> ids;
+        if (jdbc.queryForObject("select to_regclass(?) is not null", Boolean.class, archived)) {
+            ids = jdbc.queryForList("insert into " + table.archive() + " (" + columns + ") select " + columns +
+                    " from " + hot + " returning id", Long.class);
+            jdbc.execute("drop table " + hot);
+        } else {
+            jdbc.execute("alter table " + hot + " rename to " + archived);
+            jdbc.execute("alter table " + table.archive() + " attach partition " + archived +
+                    " for values from ('" + month + "') to ('" + month.plusMonths(1) + "')");
+            ids = jdbc.queryForList("select id from " + archived, Long.class);
+        }
+        log.info("Archived {}: {} rows, {} kept hot", hot, ids.size(), kept);
+        return ids;
+    }
+
+    private List<Long> archiveFromDefault(PartitionedTable table, LocalDate horizon) {
+        String old = table.key() + " < ? and not (" + table.keepHot() + ")";
+        List<LocalDate> months = jdbc.queryForList("select distinct date_trunc('month', " + table.key() + ")::date from " +
+                table.defaultPartition() + " where " + old, LocalDate.class, horizon);
+        if (months.isEmpty()) {
+            return List.of();
+        }
+        addMissingColumns(table);
+        for (LocalDate month : months) {
+            PartitionedTable.ensureMonth(jdbc, table.archive(), month);
+        }
+        String columns = PartitionedTable.columns(jdbc, table.table());
+        return jdbc.queryForList("with moved as (delete from " + table.defaultPartition() + " where " + old +
+                " returning *) insert into " + table.archive() + " (" + columns + ") select " + columns +
+                " from moved returning id", Long.class, horizon);
+    }
+
+    // Columns Hibernate added to the hot table since the archive was created
+    private void addMissingColumns(PartitionedTable table) {
+        List<Map<String, Object>> missing = jdbc.queryForList(
+                "select a.attname as name, format_type(a.atttypid, a.atttypmod) as type from pg_attribute a " +
+                        "where a.attrelid = to_regclass(?) and a.attnum > 0 and not a.attisdropped and not exists " +
+                        "(select 1 from pg_attribute b where b.attrelid = to_regclass(?) and b.attname = a.attname " +
+                        "and not b.attisdropped)", table.table(), table.archive());
+        for (Map<String, Object> column : missing) {
+            jdbc.execute("alter table " + table.archive() + " add column \"" + column.get("name") + "\" " + column.get("type"));
+        }
+    }
+
+    private void forget(PartitionedTable table, List<Long> ids) {
+        if (!ids.isEmpty()) {
+            calendarHistogram.clearAfterCommit();
+        }
+        for (Long id : ids) {
+            if (table == PartitionedTable.TASKS) {
+                searchIndex.deleteTaskAfterCommit(id);
+                overdueTaskTracker.taskDeleted(id);
+            } else {
+                searchIndex.deleteTransportAfterCommit(id);
+            }
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            // Moves whole months: on the bulk connection pool
+            long moved = WorkloadContext.call(Workload.BULK, this::run);
+            if (moved > 0) {
+                log.info("Archived {} rows older than {} days", moved, archiveAfter.toDays());
+            }
+        } catch (Exception e) {
+            log.warn("Partition archival failed", e);
+        }
+    }
+}
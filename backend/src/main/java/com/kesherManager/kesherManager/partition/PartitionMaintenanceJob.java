@@ -0,0 +1,96 @@
+package com.kesherManager.kesherManager.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Keeps monthly partitions of the hot tables created ahead of time: the current month and the next
+ * kesher.partitioning.months-ahead months. Rows dated beyond that land in the default partition and are
+ * moved into their month's partition when it gets created. Month boundaries are in UTC, like the stored dates.
+ */
+@Component
+@ConditionalOnProperty(name = "kesher.partitioning.enabled", havingValue = "true", matchIfMissing = true)
+public class PartitionMaintenanceJob implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceJob.class);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+    private final int monthsAhead;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "partition-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public PartitionMaintenanceJob(JdbcTemplate jdbc,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${kesher.partitioning.months-ahead:3}") int monthsAhead,
+                                   @Value("${kesher.partitioning.maintenance-interval:1d}") Duration interval) {
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.interval = interval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!PartitionedTable.available(jdbc)) {
+            log.info("Tables are not partitioned (not PostgreSQL or not migrated); partition maintenance is off");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::runQuietly, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // Creates missing partitions; returns how many were created
+    public int run() {
+        LocalDate thisMonth = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+        Integer created = transaction.execute(status -> {
+            PartitionedTable.lock(jdbc);
+            int count = 0;
+            for (PartitionedTable table : PartitionedTable.values()) {
+                for (int i = 0; i <= monthsAhead; i++) {
+                    LocalDate month = thisMonth.plusMonths(i);
+                    if (PartitionedTable.ensureMonth(jdbc, table.table(), month)) {
+                        log.info("Created partition {}", table.partition(month));
+                        count++;
+                    }
+                }
+            }
+            return count;
+        });
+        return created != null ? created : 0;
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.warn("Partition maintenance failed", e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.kesherManager.kesherManager.partition;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The tables partitioned by month in db/migration/postgresql/V1__partition_transports_and_tasks_by_month.sql.
+ * Each is partitioned on partition_date and has monthly partitions <table>_YYYY_MM, a <table>_default partition
+ * for rows outside the created months, and a <table>_archive table with <table>_archive_YYYY_MM partitions.
+ *
+ * Declared in archive order: tasks go first, so a transport that is still referenced by a hot task is kept.
+ */
+enum PartitionedTable {
+
+    TASKS("tasks",
+            "status is null or status not in ('COMPLETED', 'CANCELLED')"),
+
+    TRANSPORTS("transports",
+            "status is null or status not in ('COMPLETED', 'CANCELLED') " +
+                    "or id in (select related_transport_id from tasks where related_transport_id is not null)");
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final String table;
+    private final String keepHot;
+
+    PartitionedTable(String table, String keepHot) {
+        this.table = table;
+        this.keepHot = keepHot;
+    }
+
+    String table() {
+        return table;
+    }
+
+    // Partition key column: the date of the row, else its creation time (see Task.partitionDate)
+    String key() {
+        return "partition_date";
+    }
+
+    // Rows matching this stay in the hot table whatever their age
+    String keepHot() {
+        return keepHot;
+    }
+
+    String archive() {
+        return table + "_archive";
+    }
+
+    String defaultPartition() {
+        return table + "_default";
+    }
+
+    String partition(LocalDate month) {
+        return table + "_" + SUFFIX.format(month);
+    }
+
+    String archivePartition(LocalDate month) {
+        return archive() + "_" + SUFFIX.format(month);
+    }
+
+    // Creates the month's partition of the given parent (this table or its archive) if missing
+    static boolean ensureMonth(JdbcTemplate jdbc, String parent, LocalDate month) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "select kesher_ensure_month_partition(?, ?)", Boolean.class, parent, month));
+    }
+
+    // First days of the months that have a partition attached to this table, oldest first
+    List<LocalDate> months(JdbcTemplate jdbc) {
+        List<String> names = jdbc.queryForList(
+                "select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid " +
+                        "where i.inhparent = to_regclass(?) order by c.relname", String.class, table);
+        List<LocalDate> months = new ArrayList<>();
+        String prefix = table + "_";
+        for (String name : names) {
+            String suffix = name.substring(prefix.length());
+            if (suffix.matches("\\d{4}_\\d{2}")) {
+                months.add(LocalDate.of(Integer.parseInt(suffix.substring(0, 4)), Integer.parseInt(suffix.substring(5)), 1));
+            }
+        }
+        return months;
+    }
+
+    // Comma separated, quoted column names of a table in column order
+    static String columns(JdbcTemplate jdbc, String table) {
+        return jdbc.queryForObject(
+                "select string_agg(quote_ident(attname), ', ' order by attnum) from pg_attribute " +
+                        "where attrelid = to_regclass(?) and attnum > 0 and not attisdropped", String.class, table);
+    }
+
+    // Serializes partition DDL across instances for the rest of the transaction
+    static void lock(JdbcTemplate jdbc) {
+        jdbc.execute("select pg_advisory_xact_lock(hashtext('kesher-partitions'))");
+    }
+
+    // True on PostgreSQL once the migration has partitioned the tables
+    static boolean available(JdbcTemplate jdbc) {
+        String product = jdbc.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) {
+            return false;
+        }
+        Integer partitioned = jdbc.queryForObject(
+                "select count(*) from pg_partitioned_table where partrelid in (to_regclass('tasks'), to_regclass('transports'))",
+                Integer.class);
+        return partitioned != null && partitioned == values().length;
+    }
+}
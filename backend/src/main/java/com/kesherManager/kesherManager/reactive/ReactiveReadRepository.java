@@ -0,0 +1,181 @@
+package com.kesherManager.kesherManager.reactive;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Optional;
+
+// Read-only queries over R2DBC for /api/v2; rows are mapped by hand because the entities carry JPA mappings only.
+// Scoped to the request's tenant like the JPA reads, but always against the public schema (no schema routing here).
+@Repository
+@ConditionalOnProperty(prefix = "kesher.r2dbc", name = "enabled", matchIfMissing = true)
+public class ReactiveReadRepository {
+
+    private static final String BOX_COLUMNS = "id, responsible_person, responsible_person_phone, association_manager, " +
+            "donation_group, family_name, city, address, latitude, longitude, status, notes, box_type, " +
+            "delivery_volunteer, delivery_volunteer_phone, created_at, updated_at";
+    private static final String TASK_COLUMNS = "id, task_type, description, assigned_to, due_date, priority, status, " +
+            "notes, task_category, related_box_id, related_transport_id, created_at, updated_at";
+    private static final String TRANSPORT_COLUMNS = "id, source_box_id, destination_type, destination_box_id, " +
+            "destination_id, destination_name, scheduled_date, completion_date, status, notes, created_by, " +
+            "driver_name, driver_phone, created_at, updated_at";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveReadRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<Box> findAllBoxes() {
+        return select(BOX_COLUMNS, "boxes", null, true)
+                .map((row, metadata) -> toBox(row))
+                .all();
+    }
+
+    public Mono<Box> findBoxById(Long id) {
+        return select(BOX_COLUMNS, "boxes", "id = :id", false)
+                .bind("id", id)
+                .map((row, metadata) -> toBox(row))
+                .one();
+    }
+
+    public Flux<Box> findBoxesByStatus(Box.BoxStatus status) {
+        return select(BOX_COLUMNS, "boxes", "status = :status", true)
+                .bind("status", status.name())
+                .map((row, metadata) -> toBox(row))
+                .all();
+    }
+
+    public Flux<TaskView> findAllTasks() {
+        return select(TASK_COLUMNS, "tasks", null, true)
+                .map((row, metadata) -> toTask(row))
+                .all();
+    }
+
+    public Mono<TaskView> findTaskById(Long id) {
+        return select(TASK_COLUMNS, "tasks", "id = :id", false)
+                .bind("id", id)
+                .map((row, metadata) -> toTask(row))
+                .one();
+    }
+
+    public Flux<TaskView> findTasksByStatus(Task.TaskStatus status) {
+        return select(TASK_COLUMNS, "tasks", "status = :status", true)
+                .bind("status", status.name())
+                .map((row, metadata) -> toTask(row))
+                .all();
+    }
+
+    public Flux<TransportView> findAllTransports() {
+        return select(TRANSPORT_COLUMNS, "transports", null, true)
+                .map((row, metadata) -> toTransport(row))
+                .all();
+    }
+
+    public Mono<TransportView> findTransportById(Long id) {
+        return select(TRANSPORT_COLUMNS, "transports", "id = :id", false)
+                .bind("id", id)
+                .map((row, metadata) -> toTransport(row))
+                .one();
+    }
+
+    public Flux<TransportView> findTransportsByStatus(Transport.TransportStatus status) {
+        return select(TRANSPORT_COLUMNS, "transports", "status = :status", true)
+                .bind("status", status.name())
+                .map((row, metadata) -> toTransport(row))
+                .all();
+    }
+
+    // The tenant is read when the query is built, on the request thread
+    private DatabaseClient.GenericExecuteSpec select(String columns, String table, String condition, boolean ordered) {
+        Optional<String> tenant = TenantContext.current();
+        String where = tenant.isPresent()
+                ? (condition != null ? condition + " AND " : "") + "donation_group = :tenant"
+                : condition;
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT " + columns + " FROM " + table
+                + (where != null ? " WHERE " + where : "") + (ordered ? " ORDER BY id" : ""));
+        return tenant.isPresent() ? spec.bind("tenant", tenant.get()) : spec;
+    }
+
+    private static Box toBox(Row row) {
+        Box box = new Box();
+        box.setId(row.get("id", Long.class));
+        box.setResponsiblePerson(row.get("responsible_person", String.class));
+        box.setResponsiblePersonPhone(row.get("responsible_person_phone", String.class));
+        box.setAssociationManager(row.get("association_manager", String.class));
+        box.setDonationGroup(row.get("donation_group", String.class));
+        box.setFamilyName(row.get("family_name", String.class));
+        box.setCity(row.get("city", String.class));
+        box.setAddress(row.get("address", String.class));
+        box.setLatitude(row.get("latitude", Double.class));
+        box.setLongitude(row.get("longitude", Double.class));
+        box.setStatus(toEnum(Box.BoxStatus.class, row.get("status", String.class)));
+        box.setNotes(row.get("notes", String.class));
+        box.setBoxType(row.get("box_type", String.class));
+        box.setDeliveryVolunteer(row.get("delivery_volunteer", String.class));
+        box.setDeliveryVolunteerPhone(row.get("delivery_volunteer_phone", String.class));
+        box.setCreatedAt(toDate(row.get("created_at", LocalDateTime.class)));
+        box.setUpdatedAt(toDate(row.get("updated_at", LocalDateTime.class)));
+        return box;
+    }
+
+    private static TaskView toTask(Row row) {
+        TaskView task = new TaskView();
+        task.setId(row.get("id", Long.class));
+        task.setTaskType(toEnum(Task.TaskType.class, row.get("task_type", String.class)));
+        task.setDescription(row.get("description", String.class));
+        task.setAssignedTo(row.get("assigned_to", String.class));
+        task.setDueDate(toDate(row.get("due_date", LocalDateTime.class)));
+        task.setPriority(toEnum(Task.TaskPriority.class, row.get("priority", String.class)));
+        task.setStatus(toEnum(Task.TaskStatus.class, row.get("status", String.class)));
+        task.setNotes(row.get("notes", String.class));
+        task.setTaskCategory(row.get("task_category", String.class));
+        task.setRelatedBoxId(row.get("related_box_id", Long.class));
+        task.setRelatedTransportId(row.get("related_transport_id", Long.class));
+        task.setCreatedAt(toDate(row.get("created_at", LocalDateTime.class)));
+        task.setUpdatedAt(toDate(row.get("updated_at", LocalDateTime.class)));
+        return task;
+    }
+
+    private static TransportView toTransport(Row row) {
+        TransportView transport = new TransportView();
+        transport.setId(row.get("id", Long.class));
+        transport.setSourceBoxId(row.get("source_box_id", Long.class));
+        transport.setDestinationType(toEnum(Transport.DestinationType.class, row.get("destination_type", String.class)));
+        transport.setDestinationBoxId(row.get("destination_box_id", Long.class));
+        transport.setDestinationId(row.get("destination_id", Long.class));
+        transport.setDestinationName(row.get("destination_name", String.class));
+        transport.setScheduledDate(toDate(row.get("scheduled_date", LocalDateTime.class)));
+        transport.setCompletionDate(toDate(row.get("completion_date", LocalDateTime.class)));
+        transport.setStatus(toEnum(Transport.TransportStatus.class, row.get("status", String.class)));
+        transport.setNotes(row.get("notes", String.class));
+        transport.setCreatedBy(row.get("created_by", String.class));
+        transport.setDriverName(row.get("driver_name", String.class));
+        transport.setDriverPhone(row.get("driver_phone", String.class));
+        transport.setCreatedAt(toDate(row.get("created_at", LocalDateTime.class)));
+        transport.setUpdatedAt(toDate(row.get("updated_at", LocalDateTime.class)));
+        return transport;
+    }
+
+    // Same conversion as JDBC getTimestamp: the column holds local time in the JVM zone
+    private static Date toDate(LocalDateTime value) {
+        return value == null ? null : new Date(Timestamp.valueOf(value).getTime());
+    }
+
+    private static <E extends Enum<E>> E toEnum(Class<E> type, String value) {
+        return value == null ? null : Enum.valueOf(type, value);
+    }
+}
@@ -0,0 +1,127 @@
+package com.kesherManager.kesherManager.reactive;
+
+import com.kesherManager.kesherManager.model.Task;
+
+import java.util.Date;
+
+// Flat task row for /api/v2: related box and transport are referenced by id instead of embedded
+public class TaskView {
+
+    private Long id;
+    private Task.TaskType taskType;
+    private String description;
+    private String assignedTo;
+    private Date dueDate;
+    private Task.TaskPriority priority;
+    private Task.TaskStatus status;
+    private String notes;
+    private String taskCategory;
+    private Long relatedBoxId;
+    private Long relatedTransportId;
+    private Date createdAt;
+    private Date updatedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Task.TaskType getTaskType() {
+        return taskType;
+    }
+
+    public void setTaskType(Task.TaskType taskType) {
+        this.taskType = taskType;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getAssignedTo() {
+        return assignedTo;
+    }
+
+    public void setAssignedTo(String assignedTo) {
+        this.assignedTo = assignedTo;
+    }
+
+    public Date getDueDate() {
+        return dueDate;
+    }
+
+    public void setDueDate(Date dueDate) {
+        this.dueDate = dueDate;
+    }
+
+    public Task.TaskPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Task.TaskPriority priority) {
+        this.priority = priority;
+    }
+
+    public Task.TaskStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Task.TaskStatus status) {
+        this.status = status;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public String getTaskCategory() {
+        return taskCategory;
+    }
+
+    public void setTaskCategory(String taskCategory) {
+        this.taskCategory = taskCategory;
+    }
+
+    public Long getRelatedBoxId() {
+        return relatedBoxId;
+    }
+
+    public void setRelatedBoxId(Long relatedBoxId) {
+        this.relatedBoxId = relatedBoxId;
+    }
+
+    public Long getRelatedTransportId() {
+        return relatedTransportId;
+    }
+
+    public void setRelatedTransportId(Long relatedTransportId) {
+        this.relatedTransportId = relatedTransportId;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
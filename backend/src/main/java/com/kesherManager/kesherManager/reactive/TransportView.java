@@ -0,0 +1,145 @@
+package com.kesherManager.kesherManager.reactive;
+
+import com.kesherManager.kesherManager.model.Transport;
+
+import java.util.Date;
+
+// Flat transport row for /api/v2: source and destination boxes are referenced by id instead of embedded
+public class TransportView {
+
+    private Long id;
+    private Long sourceBoxId;
+    private Transport.DestinationType destinationType;
+    private Long destinationBoxId;
+    private Long destinationId;
+    private String destinationName;
+    private Date scheduledDate;
+    private Date completionDate;
+    private Transport.TransportStatus status;
+    private String notes;
+    private String createdBy;
+    private String driverName;
+    private String driverPhone;
+    private Date createdAt;
+    private Date updatedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getSourceBoxId() {
+        return sourceBoxId;
+    }
+
+    public void setSourceBoxId(Long sourceBoxId) {
+        this.sourceBoxId = sourceBoxId;
+    }
+
+    public Transport.DestinationType getDestinationType() {
+        return destinationType;
+    }
+
+    public void setDestinationType(Transport.DestinationType destinationType) {
+        this.destinationType = destinationType;
+    }
+
+    public Long getDestinationBoxId() {
+        return destinationBoxId;
+    }
+
+    public void setDestinationBoxId(Long destinationBoxId) {
+        this.destinationBoxId = destinationBoxId;
+    }
+
+    public Long getDestinationId() {
+        return destinationId;
+    }
+
+    public void setDestinationId(Long destinationId) {
+        this.destinationId = destinationId;
+    }
+
+    public String getDestinationName() {
+        return destinationName;
+    }
+
+    public void setDestinationName(String destinationName) {
+        this.destinationName = destinationName;
+    }
+
+    public Date getScheduledDate() {
+        return scheduledDate;
+    }
+
+    public void setScheduledDate(Date scheduledDate) {
+        this.scheduledDate = scheduledDate;
+    }
+
+    public Date getCompletionDate() {
+        return completionDate;
+    }
+
+    public void setCompletionDate(Date completionDate) {
+        this.completionDate = completionDate;
+    }
+
+    public Transport.TransportStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Transport.TransportStatus status) {
+        this.status = status;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public String getDriverName() {
+        return driverName;
+    }
+
+    public void setDriverName(String driverName) {
+        this.driverName = driverName;
+    }
+
+    public String getDriverPhone() {
+        return driverPhone;
+    }
+
+    public void setDriverPhone(String driverPhone) {
+        this.driverPhone = driverPhone;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -1,23 +1,56 @@
 package com.kesherManager.kesherManager.repository;
 
+import com.kesherManager.kesherManager.config.EntityCacheProperties;
 import com.kesherManager.kesherManager.model.Box;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BoxRepository extends JpaRepository<Box, Long> {
     // Find boxes by status
 
 
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = EntityCacheProperties.BOX_QUERY_REGION)
+    })
     List<Box> findByStatus(Box.BoxStatus status);
 
     // New methods for additional fields
     List<Box> findByResponsiblePersonContainingIgnoreCase(String responsiblePerson);
     List<Box> findByAssociationManagerContainingIgnoreCase(String associationManager);
+
+    // Box reference data changes rarely; results are kept in the query cache
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = EntityCacheProperties.BOX_QUERY_REGION)
+    })
     List<Box> findByDonationGroup(String donationGroup);
 
     // Find boxes by address (partial match, case insensitive)
     List<Box> findByAddressContainingIgnoreCase(String address);
+
+    // Id, the free-text fields AutocompleteIndex suggests in AutocompleteIndex.Field order, and the tenant
+    @Query("select b.id, b.responsiblePerson, b.associationManager, b.donationGroup, b.city, b.donationGroup from Box b")
+    List<Object[]> findAutocompleteValues();
+
+    // Id, position, status and tenant of the boxes geo.BoxClusterIndex places on the map
+    @Query("select b.id, b.latitude, b.longitude, b.status, b.donationGroup from Box b " +
+            "where b.latitude is not null and b.longitude is not null")
+    List<Object[]> findClusterValues();
+
+    // The box with its row locked until the transaction ends (SELECT ... FOR UPDATE), for guarded status
+    // transitions. A query, so the tenant filter applies.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Box b where b.id = :id")
+    Optional<Box> findByIdForUpdate(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.kesherManager.kesherManager.repository;
+
+import com.kesherManager.kesherManager.model.RecurrenceRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RecurrenceRuleRepository extends JpaRepository<RecurrenceRule, Long> {
+
+    @Query("select r.id from RecurrenceRule r where r.active = true")
+    List<Long> findActiveIds();
+
+    // Row lock held while the rule's occurrences are generated, so two instances never generate the same one
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from RecurrenceRule r where r.id = :id")
+    Optional<RecurrenceRule> findByIdForUpdate(@Param("id") Long id);
+}
@@ -0,0 +1,37 @@
+package com.kesherManager.kesherManager.repository;
+
+import com.kesherManager.kesherManager.model.StatusChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+// Reads only; rows are written in JDBC batches by StatusHistory
+@Repository
+public interface StatusChangeRepository extends JpaRepository<StatusChange, Long> {
+
+    List<StatusChange> findByEntityTypeAndEntityIdOrderByChangedAtAscIdAsc(StatusChange.EntityType entityType, Long entityId);
+
+    // Latest change: the entity's current status and donation group
+    Optional<StatusChange> findFirstByEntityTypeAndEntityIdOrderByChangedAtDescIdDesc(StatusChange.EntityType entityType, Long entityId);
+
+    // Latest change at or before the date: the entity's status at that time
+    Optional<StatusChange> findFirstByEntityTypeAndEntityIdAndChangedAtLessThanEqualOrderByChangedAtDescIdDesc(
+            StatusChange.EntityType entityType, Long entityId, Date asOf);
+
+    // Status -> number of entities of the type in it at the date (each entity's latest change at or before it);
+    // entities whose latest change is the deleted status are not counted. With a donation group, only the entities
+    // that were in that group at the date.
+    @Query("select h.status, count(h) from StatusChange h " +
+            "where h.entityType = :entityType and h.changedAt <= :asOf and h.status <> :deleted " +
+            "and (:donationGroup is null or h.donationGroup = :donationGroup) and not exists (" +
+            "  select n.id from StatusChange n where n.entityType = h.entityType and n.entityId = h.entityId " +
+            "  and n.changedAt <= :asOf and (n.changedAt > h.changedAt or (n.changedAt = h.changedAt and n.id > h.id))) " +
+            "group by h.status")
+    List<Object[]> countByStatusAsOf(@Param("entityType") StatusChange.EntityType entityType, @Param("asOf") Date asOf,
+                                     @Param("deleted") String deleted, @Param("donationGroup") String donationGroup);
+}
@@ -4,6 +4,9 @@ import com.kesherManager.kesherManager.model.Box;
 import com.kesherManager.kesherManager.model.Task;
 import com.kesherManager.kesherManager.model.Transport;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
@@ -20,9 +23,64 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
     // Find overdue tasks (due date is before current date and not completed)
     List<Task> findByDueDateBeforeAndStatusNot(Date currentDate, Task.TaskStatus completedStatus);
 
+    // Id and due date of every task that can still become overdue, used to seed OverdueTaskTracker
+    @Query("select t.id, t.dueDate from Task t where t.dueDate is not null and t.status <> :completedStatus")
+    List<Object[]> findOpenTaskDueDates(@Param("completedStatus") Task.TaskStatus completedStatus);
+
+    // Id, assignee, priority and due date of assigned tasks in a status, used to seed AssigneeTaskQueues
+    @Query("select t.id, t.assignedTo, t.priority, t.dueDate from Task t where t.status = :status and t.assignedTo is not null")
+    List<Object[]> findAssignedTaskKeys(@Param("status") Task.TaskStatus status);
+
+    // Moves a PENDING task to IN_PROGRESS for the assignee in one statement; returns 0 if someone else got it first
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Task t set t.status = :inProgress, t.assignedTo = :assignee, t.updatedAt = :now " +
+            "where t.id = :id and t.status = :pending and (t.assignedTo = :assignee or t.assignedTo is null)")
+    int claim(@Param("id") Long id,
+              @Param("assignee") String assignee,
+              @Param("pending") Task.TaskStatus pending,
+              @Param("inProgress") Task.TaskStatus inProgress,
+              @Param("now") Date now);
+
+    // Sets the status in one statement; returns 0 if there is no such task or it already has the status
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Task t set t.status = :status, t.updatedAt = :now " +
+            "where t.id = :id and (t.status is null or t.status <> :status)")
+    int updateStatus(@Param("id") Long id, @Param("status") Task.TaskStatus status, @Param("now") Date now);
+
+    // Same, only if the task is still in the expected status; returns 0 otherwise
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Task t set t.status = :status, t.updatedAt = :now where t.id = :id and t.status = :expected")
+    int updateStatus(@Param("id") Long id,
+                     @Param("expected") Task.TaskStatus expected,
+                     @Param("status") Task.TaskStatus status,
+                     @Param("now") Date now);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Task t set t.assignedTo = :assignedTo, t.updatedAt = :now where t.id = :id")
+    int assign(@Param("id") Long id, @Param("assignedTo") String assignedTo, @Param("now") Date now);
+
+    // Follows a box that moved to another donation group: its tasks, and those of its transports that have no box
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Task t set t.donationGroup = :donationGroup where t.relatedBox.id = :boxId " +
+            "or (t.relatedBox is null and t.relatedTransport.id in (select tr.id from Transport tr where tr.sourceBox.id = :boxId))")
+    int updateDonationGroup(@Param("boxId") Long boxId, @Param("donationGroup") String donationGroup);
+
+    // Tasks of a transport that is deleted lose the reference; no foreign key does it (see Task.relatedTransport)
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Task t set t.relatedTransport = null, t.updatedAt = :now where t.relatedTransport.id = :transportId")
+    int detachTransport(@Param("transportId") Long transportId, @Param("now") Date now);
+
+    // The tasks one INSERT ... SELECT of a recurrence rule's occurrence created, with their boxes
+    @Query("select t from Task t left join fetch t.relatedBox " +
+            "where t.recurrenceRuleId = :ruleId and t.dueDate = :dueDate and t.createdAt = :createdAt")
+    List<Task> findGenerated(@Param("ruleId") Long ruleId, @Param("dueDate") Date dueDate, @Param("createdAt") Date createdAt);
+
     // Find tasks related to a specific box
     List<Task> findByRelatedBox(Box box);
 
+    // Tasks that belong to a box through one of its transports only
+    List<Task> findByRelatedBoxIsNullAndRelatedTransport_SourceBox(Box sourceBox);
+
     // Find tasks related to a specific transport
     List<Task> findByRelatedTransport(Transport transport);
 
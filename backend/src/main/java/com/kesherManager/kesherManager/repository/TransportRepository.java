@@ -3,6 +3,9 @@ package com.kesherManager.kesherManager.repository;
 import com.kesherManager.kesherManager.model.Box;
 import com.kesherManager.kesherManager.model.Transport;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
@@ -37,4 +40,55 @@ public interface TransportRepository extends JpaRepository<Transport, Long> {
     List<Transport> findBySourceBox_DonationGroup(String donationGroup);
     List<Transport> findByDestinationBox_DonationGroup(String donationGroup);
     List<Transport> findByDriverNameContainingIgnoreCase(String driverName);
+
+    // Id, the free-text fields AutocompleteIndex suggests in AutocompleteIndex.Field order, and the tenant
+    @Query("select t.id, t.driverName, t.createdBy, t.donationGroup from Transport t")
+    List<Object[]> findAutocompleteValues();
+
+    // Follows a box that moved to another donation group
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Transport t set t.donationGroup = :donationGroup where t.sourceBox.id = :boxId")
+    int updateDonationGroup(@Param("boxId") Long boxId, @Param("donationGroup") String donationGroup);
+
+    // Sets the status in one statement; returns 0 if there is no such transport or it already has the status
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Transport t set t.status = :status, t.updatedAt = :now " +
+            "where t.id = :id and (t.status is null or t.status <> :status)")
+    int updateStatus(@Param("id") Long id, @Param("status") Transport.TransportStatus status, @Param("now") Date now);
+
+    // Same, only if the transport is still in the expected status; returns 0 otherwise
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Transport t set t.status = :status, t.updatedAt = :now where t.id = :id and t.status = :expected")
+    int updateStatus(@Param("id") Long id,
+                     @Param("expected") Transport.TransportStatus expected,
+                     @Param("status") Transport.TransportStatus status,
+                     @Param("now") Date now);
+
+    // Status change to COMPLETED: keeps an existing completion date, otherwise sets it to now; returns 0 if
+    // there is no such transport or it is completed already
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Transport t set t.status = :completed, t.completionDate = coalesce(t.completionDate, :now), " +
+            "t.updatedAt = :now where t.id = :id and (t.status is null or t.status <> :completed)")
+    int markCompleted(@Param("id") Long id,
+                      @Param("completed") Transport.TransportStatus completed,
+                      @Param("now") Date now);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Transport t set t.status = :completed, t.completionDate = coalesce(t.completionDate, :now), " +
+            "t.updatedAt = :now where t.id = :id and t.status = :expected")
+    int markCompleted(@Param("id") Long id,
+                      @Param("expected") Transport.TransportStatus expected,
+                      @Param("completed") Transport.TransportStatus completed,
+                      @Param("now") Date now);
+
+    boolean existsByIdAndStatus(Long id, Transport.TransportStatus status);
+
+    // Completes the transport with the given completion date
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Transport t set t.status = :completed, t.completionDate = :completionDate, " +
+            "t.updatedAt = :now where t.id = :id")
+    int complete(@Param("id") Long id,
+                 @Param("completed") Transport.TransportStatus completed,
+                 @Param("completionDate") Date completionDate,
+                 @Param("now") Date now);
 }
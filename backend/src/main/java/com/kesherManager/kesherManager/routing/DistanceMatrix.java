@@ -0,0 +1,99 @@
+package com.kesherManager.kesherManager.routing;
+
+import java.util.Arrays;
+
+/*
+ * Great-circle (haversine) distances in meters between every pair of a set of boxes, in one row-major
+ * double array. Boxes are addressed by their index in the sorted id array.
+ *
+ * The matrix is built from Points, which compare by ids and coordinates, so RoutePlanner can cache it
+ * across requests and a box that moved gets a new matrix.
+ */
+public final class DistanceMatrix {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    // Box ids in ascending order with their positions
+    public static final class Points {
+        private final long[] ids;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final int hash;
+
+        // The ids must be ascending
+        public Points(long[] ids, double[] latitudes, double[] longitudes) {
+            this.ids = ids;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.hash = 31 * (31 * Arrays.hashCode(ids) + Arrays.hashCode(latitudes)) + Arrays.hashCode(longitudes);
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Points)) {
+                return false;
+            }
+            Points other = (Points) o;
+            return hash == other.hash && Arrays.equals(ids, other.ids)
+                    && Arrays.equals(latitudes, other.latitudes) && Arrays.equals(longitudes, other.longitudes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final long[] ids;
+    private final double[] meters;
+
+    private DistanceMatrix(long[] ids, double[] meters) {
+        this.ids = ids;
+        this.meters = meters;
+    }
+
+    public static DistanceMatrix build(Points points) {
+        int n = points.size();
+        double[] latitudes = new double[n];
+        double[] cosLatitudes = new double[n];
+        double[] longitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = Math.toRadians(points.latitudes[i]);
+            cosLatitudes[i] = Math.cos(latitudes[i]);
+            longitudes[i] = Math.toRadians(points.longitudes[i]);
+        }
+        // Symmetric: each pair is computed once
+        double[] meters = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double sinLatitude = Math.sin((latitudes[j] - latitudes[i]) / 2);
+                double sinLongitude = Math.sin((longitudes[j] - longitudes[i]) / 2);
+                double a = sinLatitude * sinLatitude + cosLatitudes[i] * cosLatitudes[j] * sinLongitude * sinLongitude;
+                double distance = 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+                meters[i * n + j] = distance;
+                meters[j * n + i] = distance;
+            }
+        }
+        return new DistanceMatrix(points.ids, meters);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    // Index of the box, or a negative number if it is not in the matrix
+    public int indexOf(long boxId) {
+        return Arrays.binarySearch(ids, boxId);
+    }
+
+    public double meters(int from, int to) {
+        return meters[from * ids.length + to];
+    }
+}
@@ -0,0 +1,133 @@
+package com.kesherManager.kesherManager.routing;
+
+/*
+ * Orders a driver's stops into a short open route (it ends at the last stop, not back at the start).
+ *
+ * The stops are the pickups and drop-offs of the driver's transports; a drop-off has to come after its
+ * pickup. A nearest-neighbor walk builds a first route and 2-opt improves it: reversing a stretch of the route
+ * whenever that makes it shorter, until no reversal helps or the deadline passes. A reversal that contains
+ * both the pickup and the drop-off of a transport would swap them, so it is not made.
+ *
+ * Distances come from a local copy of the stops' rows of the matrix, so the inner loops read one small array.
+ */
+final class RouteOptimizer {
+
+    private RouteOptimizer() {
+    }
+
+    /*
+     * locations: each stop's index in the matrix; pickupOf: for a drop-off, the index of its pickup stop,
+     * otherwise -1. Returns the stops in visiting order.
+     */
+    static int[] optimize(DistanceMatrix matrix, int[] locations, int[] pickupOf, long deadlineNanos) {
+        int n = locations.length;
+        double[] distances = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances[i * n + j] = matrix.meters(locations[i], locations[j]);
+            }
+        }
+        int[] route = nearestNeighbor(distances, n, pickupOf);
+        twoOpt(route, distances, n, pickupOf, deadlineNanos);
+        return route;
+    }
+
+    static double length(int[] route, DistanceMatrix matrix, int[] locations) {
+        double length = 0;
+        for (int i = 1; i < route.length; i++) {
+            length += matrix.meters(locations[route[i - 1]], locations[route[i]]);
+        }
+        return length;
+    }
+
+    // Starts from the pickup farthest from all the others, an end of the area, and always goes to the closest
+    // stop that may come next
+    private static int[] nearestNeighbor(double[] distances, int n, int[] pickupOf) {
+        int[] route = new int[n];
+        if (n == 0) {
+            return route;
+        }
+        int start = -1;
+        double farthest = -1;
+        for (int i = 0; i < n; i++) {
+            if (pickupOf[i] >= 0) {
+                continue;
+            }
+            double total = 0;
+            for (int j = 0; j < n; j++) {
+                total += distances[i * n + j];
+            }
+            if (total > farthest) {
+                farthest = total;
+                start = i;
+            }
+        }
+
+        boolean[] visited = new boolean[n];
+        route[0] = start;
+        visited[start] = true;
+        for (int k = 1; k < n; k++) {
+            int from = route[k - 1];
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (!visited[i] && (pickupOf[i] < 0 || visited[pickupOf[i]])
+                        && (next < 0 || distances[from * n + i] < distances[from * n + next])) {
+                    next = i;
+                }
+            }
+            route[k] = next;
+            visited[next] = true;
+        }
+        return route;
+    }
+
+    // First-improvement 2-opt on an open route: reversing route[i..j] replaces the edges into route[i] and out
+    // of route[j] (when there are such edges) with edges into route[j] and out of route[i]
+    private static void twoOpt(int[] route, double[] distances, int n, int[] pickupOf, long deadlineNanos) {
+        int[] position = new int[n];
+        for (int k = 0; k < n; k++) {
+            position[route[k]] = k;
+        }
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i < n - 1; i++) {
+                if (System.nanoTime() - deadlineNanos > 0) {
+                    return;
+                }
+                int before = i > 0 ? route[i - 1] : -1;
+                int first = route[i];
+                for (int j = i + 1; j < n; j++) {
+                    int last = route[j];
+                    // Every longer stretch from i would also hold this drop-off's pickup
+                    if (pickupOf[last] >= 0 && position[pickupOf[last]] >= i) {
+                        break;
+                    }
+                    int after = j < n - 1 ? route[j + 1] : -1;
+                    double removed = (before >= 0 ? distances[before * n + first] : 0)
+                            + (after >= 0 ? distances[last * n + after] : 0);
+                    double added = (before >= 0 ? distances[before * n + last] : 0)
+                            + (after >= 0 ? distances[first * n + after] : 0);
+                    // Small margin so rounding cannot make two reversals undo each other forever
+                    if (added < removed - 1e-6) {
+                        reverse(route, position, i, j);
+                        improved = true;
+                        first = route[i];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void reverse(int[] route, int[] position, int from, int to) {
+        while (from < to) {
+            int stop = route[from];
+            route[from] = route[to];
+            route[to] = stop;
+            position[route[from]] = from;
+            position[route[to]] = to;
+            from++;
+            to--;
+        }
+    }
+}
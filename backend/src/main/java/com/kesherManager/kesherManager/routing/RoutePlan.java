@@ -0,0 +1,108 @@
+package com.kesherManager.kesherManager.routing;
+
+import java.util.List;
+
+// A day's planned transports as one ordered route per driver
+public class RoutePlan {
+
+    public enum Action {
+        PICKUP, DROP_OFF
+    }
+
+    public static class Stop {
+        private final Long transportId;
+        private final Action action;
+        private final Long boxId;
+        private final String address;
+        private final double latitude;
+        private final double longitude;
+
+        Stop(Long transportId, Action action, Long boxId, String address, double latitude, double longitude) {
+            this.transportId = transportId;
+            this.action = action;
+            this.boxId = boxId;
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public Long getTransportId() {
+            return transportId;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public Long getBoxId() {
+            return boxId;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    public static class Route {
+        private final String driverName;
+        private final long distanceMeters;
+        private final List<Stop> stops;
+        private final List<Long> unrouted;
+
+        Route(String driverName, long distanceMeters, List<Stop> stops, List<Long> unrouted) {
+            this.driverName = driverName;
+            this.distanceMeters = distanceMeters;
+            this.stops = stops;
+            this.unrouted = unrouted;
+        }
+
+        public String getDriverName() {
+            return driverName;
+        }
+
+        // Straight-line length of the route from its first stop to its last
+        public long getDistanceMeters() {
+            return distanceMeters;
+        }
+
+        public List<Stop> getStops() {
+            return stops;
+        }
+
+        // The driver's transports whose source box has no position, so they could not be placed on the route
+        public List<Long> getUnrouted() {
+            return unrouted;
+        }
+    }
+
+    private final String date;
+    private final List<Route> routes;
+    private final List<Long> unassigned;
+
+    RoutePlan(String date, List<Route> routes, List<Long> unassigned) {
+        this.date = date;
+        this.routes = routes;
+        this.unassigned = unassigned;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    // Planned transports without a driver
+    public List<Long> getUnassigned() {
+        return unassigned;
+    }
+}
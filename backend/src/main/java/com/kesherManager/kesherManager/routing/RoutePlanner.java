@@ -0,0 +1,184 @@
+package com.kesherManager.kesherManager.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.service.TransportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.joda.time.LocalDate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Plans the routes of /api/transports/routes: the day's PLANNED transports are grouped by driver and every
+ * driver's stops are ordered by RouteOptimizer, the drivers in parallel on kesher.routes.threads threads.
+ *
+ * A transport is a pickup at its source box and, when it goes to another box, a drop-off there. Families
+ * and stores have no position, so only their pickup is placed. Transports whose source box has no position
+ * are returned as unrouted.
+ *
+ * Each driver's distance matrix is cached by the driver's boxes and their positions (see
+ * DistanceMatrix.Points), so asking for the same day again skips the distance computation; a moved box or a
+ * changed assignment gets a new matrix. Route improvement stops kesher.routes.time-limit after the request
+ * started and keeps the best order found by then.
+ */
+@Component
+public class RoutePlanner implements DisposableBean {
+
+    private final TransportService transportService;
+    private final Duration timeLimit;
+    private final Cache<DistanceMatrix.Points, DistanceMatrix> matrices;
+    private final ExecutorService workers;
+    private final Timer planningTimer;
+
+    @Autowired
+    public RoutePlanner(TransportService transportService,
+                        MeterRegistry meterRegistry,
+                        @Value("${kesher.routes.threads:4}") int threads,
+                        @Value("${kesher.routes.time-limit:800ms}") Duration timeLimit,
+                        @Value("${kesher.routes.matrix-cache.max-bytes:67108864}") long matrixCacheBytes) {
+        this.transportService = transportService;
+        this.timeLimit = timeLimit;
+        this.matrices = Caffeine.newBuilder()
+                .maximumWeight(matrixCacheBytes)
+                .weigher((DistanceMatrix.Points points, DistanceMatrix matrix) ->
+                        (int) Math.min(Integer.MAX_VALUE, 8L * matrix.size() * matrix.size()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, matrices, "route-matrices");
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "route-planner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.planningTimer = Timer.builder("kesher.routes.planning")
+                .description("Time to plan the routes of a day")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+
+    public RoutePlan plan(LocalDate day) {
+        return planningTimer.record(() -> {
+            long deadline = System.nanoTime() + timeLimit.toNanos();
+            Map<String, List<Transport>> byDriver = new TreeMap<>();
+            List<Long> unassigned = new ArrayList<>();
+            for (Transport transport : transportService.getTransportsOnDay(day, Transport.TransportStatus.PLANNED)) {
+                String driver = transport.getDriverName() == null ? "" : transport.getDriverName().trim();
+                if (driver.isEmpty()) {
+                    unassigned.add(transport.getId());
+                } else {
+                    byDriver.computeIfAbsent(driver, d -> new ArrayList<>()).add(transport);
+                }
+            }
+
+            List<Callable<RoutePlan.Route>> drivers = new ArrayList<>();
+            byDriver.forEach((driver, transports) -> drivers.add(() -> route(driver, transports, deadline)));
+            List<RoutePlan.Route> routes = new ArrayList<>();
+            try {
+                for (Future<RoutePlan.Route> route : workers.invokeAll(drivers)) {
+                    routes.add(route.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Route planning was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Route planning failed", e.getCause());
+            }
+            return new RoutePlan(day.toString(), routes, unassigned);
+        });
+    }
+
+    private RoutePlan.Route route(String driver, List<Transport> transports, long deadline) {
+        // Each transport's pickup, followed by its drop-off if it has one
+        List<PendingStop> pending = new ArrayList<>();
+        List<Long> unrouted = new ArrayList<>();
+        SortedMap<Long, Box> boxes = new TreeMap<>();
+        for (Transport transport : transports) {
+            Box source = transport.getSourceBox();
+            if (!hasPosition(source)) {
+                unrouted.add(transport.getId());
+                continue;
+            }
+            int pickup = pending.size();
+            pending.add(new PendingStop(transport, RoutePlan.Action.PICKUP, source, -1));
+            boxes.put(source.getId(), source);
+            Box destination = transport.getDestinationType() == Transport.DestinationType.BOX ? transport.getDestinationBox() : null;
+            if (hasPosition(destination)) {
+                pending.add(new PendingStop(transport, RoutePlan.Action.DROP_OFF, destination, pickup));
+                boxes.put(destination.getId(), destination);
+            }
+        }
+
+        DistanceMatrix matrix = matrices.get(points(boxes), DistanceMatrix::build);
+        int[] locations = new int[pending.size()];
+        int[] pickupOf = new int[pending.size()];
+        for (int i = 0; i < pending.size(); i++) {
+            locations[i] = matrix.indexOf(pending.get(i).box.getId());
+            pickupOf[i] = pending.get(i).pickup;
+        }
+        int[] order = RouteOptimizer.optimize(matrix, locations, pickupOf, deadline);
+
+        List<RoutePlan.Stop> stops = new ArrayList<>(order.length);
+        for (int i : order) {
+            PendingStop stop = pending.get(i);
+            stops.add(new RoutePlan.Stop(stop.transport.getId(), stop.action, stop.box.getId(), stop.box.getAddress(),
+                    stop.box.getLatitude(), stop.box.getLongitude()));
+        }
+        long meters = Math.round(RouteOptimizer.length(order, matrix, locations));
+        return new RoutePlan.Route(driver, meters, stops, unrouted);
+    }
+
+    private static DistanceMatrix.Points points(SortedMap<Long, Box> boxes) {
+        long[] ids = new long[boxes.size()];
+        double[] latitudes = new double[boxes.size()];
+        double[] longitudes = new double[boxes.size()];
+        int i = 0;
+        for (Box box : boxes.values()) {
+            ids[i] = box.getId();
+            latitudes[i] = box.getLatitude();
+            longitudes[i] = box.getLongitude();
+            i++;
+        }
+        return new DistanceMatrix.Points(ids, latitudes, longitudes);
+    }
+
+    private static boolean hasPosition(Box box) {
+        return box != null && box.getLatitude() != null && box.getLongitude() != null;
+    }
+
+    private static final class PendingStop {
+        final Transport transport;
+        final RoutePlan.Action action;
+        final Box box;
+        // Index of the pickup a drop-off belongs to, -1 for a pickup
+        final int pickup;
+
+        PendingStop(Transport transport, RoutePlan.Action action, Box box, int pickup) {
+            this.transport = transport;
+            this.action = action;
+            this.box = box;
+            this.pickup = pickup;
+        }
+    }
+}
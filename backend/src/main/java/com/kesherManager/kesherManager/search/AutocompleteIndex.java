@@ -0,0 +1,447 @@
+package com.kesherManager.kesherManager.search;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import com.kesherManager.kesherManager.util.Transactions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Prefix suggestions for the free-text fields whose values repeat: people, groups and cities on boxes,
+ * drivers and creators on transports.
+ *
+ * Per field, the distinct values are kept as a sorted array of normalized keys (lower case, single spaces,
+ * Hebrew marks removed and final letters folded, as in search) with their counts. The keys with a prefix
+ * are one contiguous range found by binary search; a sparse table of the most frequent key in every
+ * power-of-two range gives the top k of that range in O(k log k), however many keys it holds. Each key is
+ * shown in its most common spelling.
+ *
+ * The arrays are immutable snapshots. BoxService and TransportService report writes after commit; counts
+ * are updated right away and the changed fields' snapshots rebuilt on the index's own thread. The last
+ * values seen per box and transport are kept so an update can take back the old ones. The periodic resync
+ * covers writes made elsewhere.
+ *
+ * Counts and snapshots are kept once over everything and once per donation group; a request scoped to a
+ * tenant (see tenant.TenantContext) is answered from its group's partition only.
+ */
+@Component
+public class AutocompleteIndex implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompleteIndex.class);
+
+    public enum Field {
+        RESPONSIBLE_PERSON("responsiblePerson"),
+        ASSOCIATION_MANAGER("associationManager"),
+        DONATION_GROUP("donationGroup"),
+        CITY("city"),
+        DRIVER_NAME("driverName"),
+        CREATED_BY("createdBy");
+
+        private static final Field[] BOX_FIELDS = {RESPONSIBLE_PERSON, ASSOCIATION_MANAGER, DONATION_GROUP, CITY};
+        private static final Field[] TRANSPORT_FIELDS = {DRIVER_NAME, CREATED_BY};
+
+        private final String property;
+
+        Field(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        // By entity property name, as used in the URL
+        public static Optional<Field> byProperty(String property) {
+            for (Field field : values()) {
+                if (field.property.equals(property)) {
+                    return Optional.of(field);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    public static class Suggestion {
+        private final String value;
+        private final int count;
+
+        Suggestion(String value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    private final BoxRepository boxRepository;
+    private final TransportRepository transportRepository;
+    private final Duration resyncInterval;
+
+    // Guarded by this: the values last seen per entity (the fields, then the donation group)
+    private final Map<Long, String[]> boxValues = new HashMap<>();
+    private final Map<Long, String[]> transportValues = new HashMap<>();
+
+    // Everything, and one partition per donation group; the partitions' counts are guarded by this
+    private final Partition all = new Partition();
+    private final Map<String, Partition> byTenant = new ConcurrentHashMap<>();
+    private final Set<Partition> dirty = new HashSet<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autocomplete-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public AutocompleteIndex(BoxRepository boxRepository,
+                             TransportRepository transportRepository,
+                             @Value("${kesher.autocomplete.resync-interval:15m}") Duration resyncInterval) {
+        this.boxRepository = boxRepository;
+        this.transportRepository = transportRepository;
+        this.resyncInterval = resyncInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        scheduler.scheduleWithFixedDelay(this::reloadQuietly, resyncInterval.toMillis(), resyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // Rebuilds every field from the database
+    public synchronized void reload() {
+        List<Object[]> boxes = boxRepository.findAutocompleteValues();
+        List<Object[]> transports = transportRepository.findAutocompleteValues();
+        boxValues.clear();
+        transportValues.clear();
+        // Partitions are reused so that suggestions keep coming from the old snapshots until the new ones are built
+        all.clear();
+        byTenant.values().forEach(Partition::clear);
+        for (Object[] row : boxes) {
+            apply(boxValues, Field.BOX_FIELDS, (Long) row[0], values(row));
+        }
+        for (Object[] row : transports) {
+            apply(transportValues, Field.TRANSPORT_FIELDS, (Long) row[0], values(row));
+        }
+        dirty.clear();
+        all.rebuild();
+        byTenant.values().forEach(Partition::rebuild);
+        byTenant.values().removeIf(Partition::isEmpty);
+        loaded = true;
+    }
+
+    // False until the first load finished
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Up to limit values of the field starting with the prefix, most frequent first, within the current tenant
+    public List<Suggestion> suggest(Field field, String prefix, int limit) {
+        Optional<String> tenant = TenantContext.current();
+        Partition partition = tenant.isPresent() ? byTenant.get(tenant.get()) : all;
+        if (partition == null) {
+            return new ArrayList<>();
+        }
+        return partition.snapshot(field).top(normalize(prefix == null ? "" : prefix), limit);
+    }
+
+    // Called after a box is saved; applied once the surrounding transaction commits
+    public void boxSaved(Box box) {
+        Long id = box.getId();
+        String[] values = {box.getResponsiblePerson(), box.getAssociationManager(), box.getDonationGroup(), box.getCity(),
+                box.getDonationGroup()};
+        Transactions.afterCommit(() -> changed(boxValues, Field.BOX_FIELDS, id, values));
+    }
+
+    public void boxDeleted(Long id) {
+        Transactions.afterCommit(() -> changed(boxValues, Field.BOX_FIELDS, id, null));
+    }
+
+    public void transportSaved(Transport transport) {
+        Long id = transport.getId();
+        String[] values = {transport.getDriverName(), transport.getCreatedBy(), transport.getDonationGroup()};
+        Transactions.afterCommit(() -> changed(transportValues, Field.TRANSPORT_FIELDS, id, values));
+    }
+
+    public void transportDeleted(Long id) {
+        Transactions.afterCommit(() -> changed(transportValues, Field.TRANSPORT_FIELDS, id, null));
+    }
+
+    private void changed(Map<Long, String[]> seen, Field[] fields, Long id, String[] values) {
+        synchronized (this) {
+            apply(seen, fields, id, values);
+            if (dirty.isEmpty()) {
+                return;
+            }
+        }
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::rebuildDirty);
+        }
+    }
+
+    // Replaces the entity's values (null removes it) and adjusts the counts of the fields that changed, in the
+    // whole and in its donation group's partition; an entity that changed group moves between partitions
+    private void apply(Map<Long, String[]> seen, Field[] fields, Long id, String[] values) {
+        String[] old = values == null ? seen.remove(id) : seen.put(id, values);
+        all.apply(fields, old, values, dirty);
+        String oldTenant = tenantOf(old);
+        String newTenant = tenantOf(values);
+        if (Objects.equals(oldTenant, newTenant)) {
+            if (newTenant != null) {
+                partition(newTenant).apply(fields, old, values, dirty);
+            }
+            return;
+        }
+        if (oldTenant != null) {
+            partition(oldTenant).apply(fields, old, null, dirty);
+        }
+        if (newTenant != null) {
+            partition(newTenant).apply(fields, null, values, dirty);
+        }
+    }
+
+    private Partition partition(String tenant) {
+        return byTenant.computeIfAbsent(tenant, t -> new Partition());
+    }
+
+    private static String tenantOf(String[] values) {
+        String tenant = values == null ? null : values[values.length - 1];
+        return tenant == null || tenant.isBlank() ? null : tenant.trim();
+    }
+
+    private void rebuildDirty() {
+        rebuildScheduled.set(false);
+        synchronized (this) {
+            dirty.forEach(Partition::rebuildDirty);
+            dirty.clear();
+        }
+    }
+
+    private static String[] values(Object[] row) {
+        String[] values = new String[row.length - 1];
+        for (int i = 1; i < row.length; i++) {
+            values[i - 1] = (String) row[i];
+        }
+        return values;
+    }
+
+    static String normalize(String value) {
+        return HebrewNormalizationFilter.normalize(value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT));
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Autocomplete index resync failed", e);
+        }
+    }
+
+    // Per field key -> spelling -> count, and the snapshots built from them
+    private static final class Partition {
+
+        final Map<Field, Map<String, Map<String, Integer>>> counts = new EnumMap<>(Field.class);
+        final Map<Field, Snapshot> snapshots = new ConcurrentHashMap<>();
+        final Set<Field> dirtyFields = EnumSet.noneOf(Field.class);
+
+        Partition() {
+            for (Field field : Field.values()) {
+                counts.put(field, new HashMap<>());
+                snapshots.put(field, Snapshot.EMPTY);
+            }
+        }
+
+        Snapshot snapshot(Field field) {
+            return snapshots.get(field);
+        }
+
+        void clear() {
+            counts.values().forEach(Map::clear);
+            dirtyFields.clear();
+        }
+
+        boolean isEmpty() {
+            return counts.values().stream().allMatch(Map::isEmpty);
+        }
+
+        void apply(Field[] fields, String[] old, String[] values, Set<Partition> dirty) {
+            for (int i = 0; i < fields.length; i++) {
+                String before = old == null ? null : old[i];
+                String after = values == null ? null : values[i];
+                if (Objects.equals(before, after)) {
+                    continue;
+                }
+                count(fields[i], before, -1);
+                count(fields[i], after, 1);
+                dirtyFields.add(fields[i]);
+                dirty.add(this);
+            }
+        }
+
+        private void count(Field field, String value, int delta) {
+            if (value == null || value.isBlank()) {
+                return;
+            }
+            String spelling = value.trim();
+            String key = normalize(spelling);
+            Map<String, Map<String, Integer>> keys = counts.get(field);
+            Map<String, Integer> spellings = keys.computeIfAbsent(key, k -> new HashMap<>(2));
+            spellings.merge(spelling, delta, (a, b) -> a + b == 0 ? null : a + b);
+            if (spellings.isEmpty()) {
+                keys.remove(key);
+            }
+        }
+
+        void rebuild() {
+            for (Field field : Field.values()) {
+                snapshots.put(field, Snapshot.build(counts.get(field)));
+            }
+            dirtyFields.clear();
+        }
+
+        void rebuildDirty() {
+            for (Field field : dirtyFields) {
+                snapshots.put(field, Snapshot.build(counts.get(field)));
+            }
+            dirtyFields.clear();
+        }
+    }
+
+    // Sorted keys of one field with their display spelling and count, and the range-maximum table over the counts
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new String[0], new String[0], new int[0]);
+
+        final String[] keys;
+        final String[] display;
+        final int[] counts;
+        // best[j][i]: index of the most frequent key in [i, i + 2^j); level 0 is the index itself
+        final int[][] best;
+
+        Snapshot(String[] keys, String[] display, int[] counts) {
+            this.keys = keys;
+            this.display = display;
+            this.counts = counts;
+            int levels = keys.length == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(keys.length);
+            best = new int[levels][];
+            for (int j = 1; j < levels; j++) {
+                int half = 1 << (j - 1);
+                best[j] = new int[keys.length - (1 << j) + 1];
+                for (int i = 0; i < best[j].length; i++) {
+                    best[j][i] = better(at(j - 1, i), at(j - 1, i + half));
+                }
+            }
+        }
+
+        static Snapshot build(Map<String, Map<String, Integer>> counts) {
+            String[] keys = counts.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            String[] display = new String[keys.length];
+            int[] totals = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                int max = -1;
+                for (Map.Entry<String, Integer> spelling : counts.get(keys[i]).entrySet()) {
+                    totals[i] += spelling.getValue();
+                    if (spelling.getValue() > max) {
+                        max = spelling.getValue();
+                        display[i] = spelling.getKey();
+                    }
+                }
+            }
+            return new Snapshot(keys, display, totals);
+        }
+
+        List<Suggestion> top(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE) - 1;
+            List<Suggestion> top = new ArrayList<>(Math.min(limit, Math.max(0, to - from + 1)));
+            if (from > to || limit <= 0) {
+                return top;
+            }
+            // Ranges ordered by their most frequent key; taking one splits it around that key
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> a[2] == b[2] ? 0 : better(a[2], b[2]) == a[2] ? -1 : 1);
+            ranges.add(new int[]{from, to, argMax(from, to)});
+            while (!ranges.isEmpty() && top.size() < limit) {
+                int[] range = ranges.poll();
+                int m = range[2];
+                top.add(new Suggestion(display[m], counts[m]));
+                if (range[0] < m) {
+                    ranges.add(new int[]{range[0], m - 1, argMax(range[0], m - 1)});
+                }
+                if (m < range[1]) {
+                    ranges.add(new int[]{m + 1, range[1], argMax(m + 1, range[1])});
+                }
+            }
+            return top;
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Most frequent key in [from, to]; ties go to the first in order
+        private int argMax(int from, int to) {
+            int j = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+            return better(at(j, from), at(j, to - (1 << j) + 1));
+        }
+
+        private int at(int level, int i) {
+            return level == 0 ? i : best[level][i];
+        }
+
+        private int better(int a, int b) {
+            return counts[a] > counts[b] || (counts[a] == counts[b] && a < b) ? a : b;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.kesherManager.kesherManager.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+/*
+ * Analyzer for the mixed Hebrew/English text in boxes, tasks and transports.
+ * StandardTokenizer keeps acronyms such as צה"ל in one token; the filters then drop niqqud and
+ * gershayim, fold final letters and add prefix-stripped forms (והבית -> הבית, בית).
+ * Used both for indexing and for parsing queries so both sides agree.
+ */
+public class HebrewAnalyzer extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        StandardTokenizer tokenizer = new StandardTokenizer();
+        TokenStream stream = new LowerCaseFilter(tokenizer);
+        stream = new ASCIIFoldingFilter(stream);
+        stream = new HebrewNormalizationFilter(stream);
+        stream = new HebrewPrefixFilter(stream);
+        return new TokenStreamComponents(tokenizer, stream);
+    }
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return new HebrewNormalizationFilter(new ASCIIFoldingFilter(new LowerCaseFilter(in)));
+    }
+}
@@ -0,0 +1,68 @@
+package com.kesherManager.kesherManager.search;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+import java.io.IOException;
+
+// Removes niqqud, cantillation and gershayim and folds final letters (ם -> מ) so spelling variants match
+public final class HebrewNormalizationFilter extends TokenFilter {
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+
+    public HebrewNormalizationFilter(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (!input.incrementToken()) {
+            return false;
+        }
+        char[] buffer = termAtt.buffer();
+        int length = termAtt.length();
+        int out = 0;
+        for (int i = 0; i < length; i++) {
+            char c = buffer[i];
+            if (isMarkOrGeresh(c)) {
+                continue;
+            }
+            buffer[out++] = fold(c);
+        }
+        // A token made only of marks is kept as is rather than emitted empty
+        if (out > 0) {
+            termAtt.setLength(out);
+        }
+        return true;
+    }
+
+    // The same normalization outside an analyzer (see AutocompleteIndex and geo.Gazetteer)
+    public static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!isMarkOrGeresh(c)) {
+                normalized.append(fold(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    // U+0591-U+05C7 are cantillation and niqqud, except the punctuation maqaf, paseq, sof pasuq and nun hafukha
+    private static boolean isMarkOrGeresh(char c) {
+        return (c >= '\u0591' && c <= '\u05C7' && c != '\u05BE' && c != '\u05C0' && c != '\u05C3' && c != '\u05C6')
+                || c == '\u05F3' || c == '\u05F4' || c == '\'' || c == '"';
+    }
+
+    private static char fold(char c) {
+        switch (c) {
+            case 'ך': return 'כ';
+            case 'ם': return 'מ';
+            case 'ן': return 'נ';
+            case 'ף': return 'פ';
+            case 'ץ': return 'צ';
+            default: return c;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.kesherManager.kesherManager.search;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/*
+ * Hebrew attaches prepositions and conjunctions to the next word (ו, ה, ב, כ, ל, מ, ש).
+ * For a Hebrew token starting with up to two such letters, the forms without them are emitted at the
+ * same position, so "ובבית" also matches "בבית" and "בית". The original token is kept because the
+ * leading letter is often part of the word itself.
+ */
+public final class HebrewPrefixFilter extends TokenFilter {
+
+    private static final String PREFIX_LETTERS = "והבכלמש";
+    private static final int MAX_PREFIXES = 2;
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+    private final Deque<String> stems = new ArrayDeque<>();
+    private State state;
+
+    public HebrewPrefixFilter(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (!stems.isEmpty()) {
+            restoreState(state);
+            termAtt.setEmpty().append(stems.poll());
+            posIncAtt.setPositionIncrement(0);
+            return true;
+        }
+        if (!input.incrementToken()) {
+            return false;
+        }
+        char[] buffer = termAtt.buffer();
+        int length = termAtt.length();
+        if (length > 0 && isHebrewLetter(buffer[0])) {
+            int stripped = 0;
+            while (stripped < MAX_PREFIXES
+                    && length - stripped - 1 >= MIN_STEM_LENGTH
+                    && PREFIX_LETTERS.indexOf(buffer[stripped]) >= 0) {
+                stripped++;
+                stems.add(new String(buffer, stripped, length - stripped));
+            }
+            if (!stems.isEmpty()) {
+                state = captureState();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        stems.clear();
+        state = null;
+    }
+
+    private static boolean isHebrewLetter(char c) {
+        return c >= 'א' && c <= 'ת';
+    }
+}
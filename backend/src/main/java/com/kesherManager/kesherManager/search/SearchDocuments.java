@@ -0,0 +1,101 @@
+package com.kesherManager.kesherManager.search;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.index.Term;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+// Maps entities to Lucene documents: a boosted title, a body with the other free text, a stored label and facets
+final class SearchDocuments {
+
+    static final String TYPE_BOX = "box";
+    static final String TYPE_TASK = "task";
+    static final String TYPE_TRANSPORT = "transport";
+
+    static final String FIELD_UID = "uid";
+    static final String FIELD_TYPE = "type";
+    static final String FIELD_ID = "id";
+    static final String FIELD_TITLE = "title";
+    static final String FIELD_BODY = "body";
+    static final String FIELD_LABEL = "label";
+    static final String FIELD_STATUS = "status";
+
+    static final String FACET_TYPE = "type";
+    static final String FACET_STATUS = "status";
+    static final String FACET_DONATION_GROUP = "donationGroup";
+
+    private SearchDocuments() {
+    }
+
+    static Term uid(String type, Long id) {
+        return new Term(FIELD_UID, type + ":" + id);
+    }
+
+    static Document box(Box box) {
+        String title = join(box.getFamilyName(), box.getAddress(), box.getCity());
+        String body = join(box.getResponsiblePerson(), box.getAssociationManager(), box.getDonationGroup(),
+                box.getDeliveryVolunteer(), box.getBoxType(), box.getNotes());
+        return document(TYPE_BOX, box.getId(), title, body, title, box.getStatus(), box.getDonationGroup());
+    }
+
+    static Document task(Task task) {
+        Box box = task.getRelatedBox();
+        String body = join(task.getNotes(), task.getAssignedTo(), task.getTaskCategory(),
+                box != null ? box.getFamilyName() : null, box != null ? box.getAddress() : null);
+        return document(TYPE_TASK, task.getId(), task.getDescription(), body, task.getDescription(),
+                task.getStatus(), task.getDonationGroup());
+    }
+
+    static Document transport(Transport transport) {
+        Box source = transport.getSourceBox();
+        Box destination = transport.getDestinationBox();
+        String destinationName = destination != null ? destination.getAddress() : transport.getDestinationName();
+        String title = join(transport.getDriverName(), destinationName);
+        String body = join(transport.getNotes(), transport.getCreatedBy(),
+                source != null ? source.getAddress() : null, transport.getDestinationName());
+        return document(TYPE_TRANSPORT, transport.getId(), title, body, title, transport.getStatus(),
+                transport.getDonationGroup());
+    }
+
+    private static Document document(String type, Long id, String title, String body, String label,
+                                     Enum<?> status, String donationGroup) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_UID, type + ":" + id, Field.Store.NO));
+        document.add(new StoredField(FIELD_TYPE, type));
+        document.add(new StoredField(FIELD_ID, id));
+        document.add(new TextField(FIELD_TITLE, Objects.toString(title, ""), Field.Store.NO));
+        document.add(new TextField(FIELD_BODY, Objects.toString(body, ""), Field.Store.NO));
+        if (label != null) {
+            document.add(new StoredField(FIELD_LABEL, label));
+        }
+
+        document.add(new SortedSetDocValuesFacetField(FACET_TYPE, type));
+        if (status != null) {
+            document.add(new StoredField(FIELD_STATUS, status.name()));
+            document.add(new SortedSetDocValuesFacetField(FACET_STATUS, status.name()));
+        }
+        if (donationGroup != null && !donationGroup.isBlank()) {
+            document.add(new SortedSetDocValuesFacetField(FACET_DONATION_GROUP, donationGroup));
+        }
+        return document;
+    }
+
+    private static String join(String... values) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                joiner.add(value);
+            }
+        }
+        return joiner.toString();
+    }
+}
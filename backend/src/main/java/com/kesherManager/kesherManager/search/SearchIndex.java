@@ -0,0 +1,246 @@
+package com.kesherManager.kesherManager.search;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.util.Transactions;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.DrillDownQuery;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Embedded Lucene index over boxes, tasks and transports.
+ *
+ * The services push changes after their transaction commits; a reopen thread makes them searchable
+ * within kesher.search.max-staleness (near real time) and a background commit makes them durable.
+ * With an empty kesher.search.directory the index lives in memory and is rebuilt on startup.
+ */
+@Component
+public class SearchIndex implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+
+    private static final int FACET_LIMIT = 20;
+
+    private final Analyzer analyzer = new HebrewAnalyzer();
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private final ScheduledExecutorService committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-index-commit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Facet ordinals are per reader, so the state is rebuilt only when the searcher changes
+    private volatile SortedSetDocValuesReaderState facetState;
+
+    @Autowired
+    public SearchIndex(@Value("${kesher.search.directory:}") String path,
+                       @Value("${kesher.search.max-staleness:1s}") Duration maxStaleness,
+                       @Value("${kesher.search.commit-interval:30s}") Duration commitInterval) throws IOException {
+        this.directory = path.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(path));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+
+        this.reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager,
+                maxStaleness.toMillis() / 1000.0, 0.025);
+        reopenThread.setName("search-index-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+
+        committer.scheduleWithFixedDelay(this::commitQuietly, commitInterval.toMillis(), commitInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        committer.shutdownNow();
+        reopenThread.close();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    // Called by the services; the change is applied once the surrounding transaction commits
+    public void indexAfterCommit(Box box) {
+        updateAfterCommit(SearchDocuments.uid(SearchDocuments.TYPE_BOX, box.getId()), SearchDocuments.box(box));
+    }
+
+    public void indexAfterCommit(Task task) {
+        updateAfterCommit(SearchDocuments.uid(SearchDocuments.TYPE_TASK, task.getId()), SearchDocuments.task(task));
+    }
+
+    public void indexAfterCommit(Transport transport) {
+        updateAfterCommit(SearchDocuments.uid(SearchDocuments.TYPE_TRANSPORT, transport.getId()), SearchDocuments.transport(transport));
+    }
+
+    public void deleteBoxAfterCommit(Long id) {
+        deleteAfterCommit(SearchDocuments.uid(SearchDocuments.TYPE_BOX, id));
+    }
+
+    public void deleteTaskAfterCommit(Long id) {
+        deleteAfterCommit(SearchDocuments.uid(SearchDocuments.TYPE_TASK, id));
+    }
+
+    public void deleteTransportAfterCommit(Long id) {
+        deleteAfterCommit(SearchDocuments.uid(SearchDocuments.TYPE_TRANSPORT, id));
+    }
+
+    private void deleteAfterCommit(Term uid) {
+        Transactions.afterCommit(() -> {
+            try {
+                writer.deleteDocuments(uid);
+            } catch (IOException e) {
+                log.warn("Could not remove {} from the search index", uid.text(), e);
+            }
+        });
+    }
+
+    public long documentCount() {
+        return writer.getDocStats().numDocs;
+    }
+
+    public SearchResult search(String text, Map<String, String> filters, int page, int size) throws IOException {
+        Query query = parse(text);
+        if (!filters.isEmpty()) {
+            DrillDownQuery drillDown = new DrillDownQuery(facetsConfig, query);
+            filters.forEach(drillDown::add);
+            query = drillDown;
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            if (searcher.getIndexReader().numDocs() == 0) {
+                return new SearchResult(0, page, size, new ArrayList<>(), new LinkedHashMap<>());
+            }
+            FacetsCollector facetsCollector = new FacetsCollector();
+            TopDocs topDocs = FacetsCollector.search(searcher, query, (page + 1) * size, facetsCollector);
+
+            List<SearchResult.Hit> hits = new ArrayList<>(size);
+            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+            for (int i = page * size; i < scoreDocs.length; i++) {
+                Document document = searcher.doc(scoreDocs[i].doc);
+                hits.add(new SearchResult.Hit(
+                        document.get(SearchDocuments.FIELD_TYPE),
+                        document.getField(SearchDocuments.FIELD_ID).numericValue().longValue(),
+                        scoreDocs[i].score,
+                        document.get(SearchDocuments.FIELD_LABEL),
+                        document.get(SearchDocuments.FIELD_STATUS)));
+            }
+
+            SortedSetDocValuesFacetCounts counts = new SortedSetDocValuesFacetCounts(facetState(searcher.getIndexReader()), facetsCollector);
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            for (FacetResult result : counts.getAllDims(FACET_LIMIT)) {
+                Map<String, Integer> values = new LinkedHashMap<>();
+                for (LabelAndValue labelAndValue : result.labelValues) {
+                    values.put(labelAndValue.label, labelAndValue.value.intValue());
+                }
+                facets.put(result.dim, values);
+            }
+            return new SearchResult(topDocs.totalHits.value, page, size, hits, facets);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    // Used by the reindex job
+    void deleteAll() throws IOException {
+        writer.deleteAll();
+    }
+
+    void update(Term uid, Document document) throws IOException {
+        writer.updateDocument(uid, facetsConfig.build(document));
+    }
+
+    void commitAndRefresh() throws IOException {
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    private Query parse(String text) {
+        if (text == null || text.isBlank()) {
+            return new MatchAllDocsQuery();
+        }
+        Map<String, Float> weights = new HashMap<>();
+        weights.put(SearchDocuments.FIELD_TITLE, 2.0f);
+        weights.put(SearchDocuments.FIELD_BODY, 1.0f);
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, weights);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(text);
+        // A query made only of operators parses to null
+        return query != null ? query : new MatchAllDocsQuery();
+    }
+
+    private SortedSetDocValuesReaderState facetState(IndexReader reader) throws IOException {
+        SortedSetDocValuesReaderState state = facetState;
+        if (state == null || state.getReader() != reader) {
+            state = new DefaultSortedSetDocValuesReaderState(reader, facetsConfig);
+            facetState = state;
+        }
+        return state;
+    }
+
+    private void updateAfterCommit(Term uid, Document document) {
+        Transactions.afterCommit(() -> {
+            try {
+                update(uid, document);
+            } catch (IOException e) {
+                log.warn("Could not index {}", uid.text(), e);
+            }
+        });
+    }
+
+    private void commitQuietly() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Search index commit failed", e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.kesherManager.kesherManager.search;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/*
+ * Rebuilds the search index from the database.
+ *
+ * Each entity's id space is cut into ranges of kesher.search.reindex-batch-size ids and the ranges are
+ * read in parallel by kesher.search.reindex-threads readers, each in its own read-only transaction
+ * (so they go to the replica when one is configured). IndexWriter is thread safe, so every reader
+ * writes its own documents. Updates made by the services while the job runs are kept because both
+ * sides replace documents by uid.
+ */
+@Component
+public class SearchReindexJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchReindexJob.class);
+
+    private final SearchIndex searchIndex;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int threads;
+    private final int batchSize;
+    private final boolean reindexOnStartup;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong indexed = new AtomicLong();
+    private volatile Date lastStarted;
+    private volatile Date lastFinished;
+    private volatile String lastError;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public SearchReindexJob(SearchIndex searchIndex,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${kesher.search.reindex-threads:4}") int threads,
+                            @Value("${kesher.search.reindex-batch-size:500}") int batchSize,
+                            @Value("${kesher.search.reindex-on-startup:true}") boolean reindexOnStartup) {
+        this.searchIndex = searchIndex;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.reindexOnStartup = reindexOnStartup;
+    }
+
+    // An empty index (first start, or an in-memory index) is filled in the background
+    @EventListener(ApplicationReadyEvent.class)
+    public void reindexIfEmpty() {
+        if (reindexOnStartup && searchIndex.documentCount() == 0) {
+            start();
+        }
+    }
+
+    // Starts a rebuild on a background thread; false if one is already running
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::runGuarded, "search-reindex");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    // Runs a rebuild on the calling thread; false if one is already running
+    public boolean runNow() throws Exception {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            rebuild();
+            return true;
+        } catch (Exception e) {
+            lastError = e.toString();
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void rebuild() throws Exception {
+        long started = System.nanoTime();
+        indexed.set(0);
+        lastStarted = new Date();
+        lastError = null;
+
+        ExecutorService readers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "search-reindex-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            searchIndex.deleteAll();
+            List<Future<?>> batches = new ArrayList<>();
+            batches.addAll(submit(readers, Box.class, SearchDocuments.TYPE_BOX,
+                    "select b from Box b where b.id between :from and :to",
+                    SearchDocuments::box, Box::getId));
+            batches.addAll(submit(readers, Task.class, SearchDocuments.TYPE_TASK,
+                    "select t from Task t left join fetch t.relatedBox left join fetch t.relatedTransport where t.id between :from and :to",
+                    SearchDocuments::task, Task::getId));
+            batches.addAll(submit(readers, Transport.class, SearchDocuments.TYPE_TRANSPORT,
+                    "select t from Transport t left join fetch t.sourceBox left join fetch t.destinationBox where t.id between :from and :to",
+                    SearchDocuments::transport, Transport::getId));
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+            searchIndex.commitAndRefresh();
+        } finally {
+            readers.shutdownNow();
+        }
+
+        lastFinished = new Date();
+        log.info("Search index rebuilt: {} documents in {} ms", indexed.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("indexed", indexed.get());
+        status.put("documents", searchIndex.documentCount());
+        status.put("lastStarted", lastStarted);
+        status.put("lastFinished", lastFinished);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private <T> List<Future<?>> submit(ExecutorService readers, Class<T> entityType, String type, String jpql,
+                                       Function<T, Document> toDocument, Function<T, Long> idOf) {
+        Object[] bounds = readOnlyTransaction.execute(status -> entityManager
+                .createQuery("select min(e.id), max(e.id) from " + entityType.getSimpleName() + " e", Object[].class)
+                .getSingleResult());
+        List<Future<?>> batches = new ArrayList<>();
+        if (bounds == null || bounds[0] == null) {
+            return batches;
+        }
+        long min = (Long) bounds[0];
+        long max = (Long) bounds[1];
+        for (long from = min; from <= max; from += batchSize) {
+            long to = Math.min(from + batchSize - 1, max);
+            long rangeFrom = from;
+            batches.add(readers.submit(() -> {
+                List<T> entities = readOnlyTransaction.execute(status -> entityManager
+                        .createQuery(jpql, entityType)
+                        .setParameter("from", rangeFrom)
+                        .setParameter("to", to)
+                        .getResultList());
+                for (T entity : entities) {
+                    Term uid = SearchDocuments.uid(type, idOf.apply(entity));
+                    searchIndex.update(uid, toDocument.apply(entity));
+                }
+                indexed.addAndGet(entities.size());
+                return null;
+            }));
+        }
+        return batches;
+    }
+
+    private void runGuarded() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            lastError = e.toString();
+            log.error("Search reindex failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.kesherManager.kesherManager.search;
+
+import java.util.List;
+import java.util.Map;
+
+// One page of ranked hits plus facet counts over all matches
+public class SearchResult {
+
+    public static class Hit {
+        private final String type;
+        private final Long id;
+        private final float score;
+        private final String label;
+        private final String status;
+
+        public Hit(String type, Long id, float score, String label, String status) {
+            this.type = type;
+            this.id = id;
+            this.score = score;
+            this.label = label;
+            this.status = status;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public float getScore() {
+            return score;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+
+    private final long total;
+    private final int page;
+    private final int size;
+    private final List<Hit> hits;
+    private final Map<String, Map<String, Integer>> facets;
+
+    public SearchResult(long total, int page, int size, List<Hit> hits, Map<String, Map<String, Integer>> facets) {
+        this.total = total;
+        this.page = page;
+        this.size = size;
+        this.hits = hits;
+        this.facets = facets;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public List<Hit> getHits() {
+        return hits;
+    }
+
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+}
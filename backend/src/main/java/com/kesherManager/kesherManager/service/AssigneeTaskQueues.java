@@ -0,0 +1,200 @@
+package com.kesherManager.kesherManager.service;
+
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.util.Transactions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * Per-assignee queues of PENDING tasks ordered by priority (highest first), then due date (earliest
+ * first, undated last), then id. Each queue is a sorted set rather than a heap so the top n can be
+ * read without popping and a task can be removed by id in O(log n) when it changes.
+ *
+ * Kept in sync by TaskService after commit; the periodic resync covers writes made elsewhere.
+ *
+ * A resync builds new queues next to the live ones and swaps them in, so readers never see them empty
+ * or half filled. Changes committed while it runs are replayed onto the new queues, as in OverdueTaskTracker.
+ */
+@Component
+public class AssigneeTaskQueues implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AssigneeTaskQueues.class);
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt((Entry entry) -> -entry.priority)
+            .thenComparingLong(entry -> entry.dueMillis)
+            .thenComparingLong(entry -> entry.taskId);
+
+    private static final class Entry {
+        final long taskId;
+        final String assignee;
+        final int priority;
+        final long dueMillis;
+
+        Entry(long taskId, String assignee, Task.TaskPriority priority, Date dueDate) {
+            this.taskId = taskId;
+            this.assignee = assignee;
+            this.priority = priority == null ? -1 : priority.ordinal();
+            this.dueMillis = dueDate == null ? Long.MAX_VALUE : dueDate.getTime();
+        }
+    }
+
+    private final TaskRepository taskRepository;
+    private final Duration resyncInterval;
+
+    // The structures a reload replaces as a whole
+    private static final class State {
+        final Map<String, ConcurrentSkipListSet<Entry>> queues = new ConcurrentHashMap<>();
+        final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    }
+
+    // Guards every change to the queues and the swap of a reload
+    private final Object lock = new Object();
+    private volatile State state = new State();
+    // Changes made while a reload runs, replayed onto its result; null when no reload runs (guarded by lock)
+    private List<Consumer<State>> changesDuringReload;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "assignee-task-queues");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public AssigneeTaskQueues(TaskRepository taskRepository,
+                              @Value("${kesher.task-queues.resync-interval:15m}") Duration resyncInterval) {
+        this.taskRepository = taskRepository;
+        this.resyncInterval = resyncInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        scheduler.scheduleWithFixedDelay(this::reloadQuietly, resyncInterval.toMillis(), resyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // Rebuilds every queue from the database; one reload runs at a time
+    public synchronized void reload() {
+        synchronized (lock) {
+            changesDuringReload = new ArrayList<>();
+        }
+        try {
+            List<Object[]> rows = taskRepository.findAssignedTaskKeys(Task.TaskStatus.PENDING);
+            State fresh = new State();
+            for (Object[] row : rows) {
+                add(fresh, new Entry((Long) row[0], (String) row[1], (Task.TaskPriority) row[2], (Date) row[3]));
+            }
+            synchronized (lock) {
+                changesDuringReload.forEach(change -> change.accept(fresh));
+                state = fresh;
+            }
+            loaded = true;
+        } finally {
+            synchronized (lock) {
+                changesDuringReload = null;
+            }
+        }
+    }
+
+    // False until the first load finished; callers fall back to the database
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Ids of the assignee's next n tasks, in queue order
+    public List<Long> peek(String assignee, int n) {
+        ConcurrentSkipListSet<Entry> queue = state.queues.get(assignee);
+        if (queue == null || n <= 0) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(Math.min(n, 16));
+        for (Entry entry : queue) {
+            ids.add(entry.taskId);
+            if (ids.size() == n) {
+                break;
+            }
+        }
+        return ids;
+    }
+
+    // Called after a task is saved; applied once the surrounding transaction commits
+    public void taskSaved(Task task) {
+        Long id = task.getId();
+        Entry entry = task.getStatus() == Task.TaskStatus.PENDING && task.getAssignedTo() != null
+                ? new Entry(id, task.getAssignedTo(), task.getPriority(), task.getDueDate())
+                : null;
+        Transactions.afterCommit(() -> apply(target -> {
+            remove(target, id);
+            if (entry != null) {
+                add(target, entry);
+            }
+        }));
+    }
+
+    public void taskDeleted(Long id) {
+        Transactions.afterCommit(() -> apply(target -> remove(target, id)));
+    }
+
+    private void apply(Consumer<State> change) {
+        synchronized (lock) {
+            change.accept(state);
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+        }
+    }
+
+    private static void add(State target, Entry entry) {
+        target.entries.put(entry.taskId, entry);
+        target.queues.computeIfAbsent(entry.assignee, assignee -> new ConcurrentSkipListSet<>(ORDER)).add(entry);
+    }
+
+    private static void remove(State target, Long id) {
+        Entry entry = target.entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        ConcurrentSkipListSet<Entry> queue = target.queues.get(entry.assignee);
+        if (queue != null) {
+            queue.remove(entry);
+            if (queue.isEmpty()) {
+                target.queues.remove(entry.assignee);
+            }
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Assignee task queue resync failed", e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.kesherManager.kesherManager.service;
+
+import java.util.List;
+
+// Outcome of a batch create: one item per submitted entry, in the order they were sent
+public class BatchResult {
+
+    public enum Outcome {
+        CREATED, REJECTED
+    }
+
+    public static class Item {
+        private final int index;
+        private final Outcome outcome;
+        private final Long id;
+        private final List<String> errors;
+
+        private Item(int index, Outcome outcome, Long id, List<String> errors) {
+            this.index = index;
+            this.outcome = outcome;
+            this.id = id;
+            this.errors = errors;
+        }
+
+        public static Item created(int index, Long id) {
+            return new Item(index, Outcome.CREATED, id, List.of());
+        }
+
+        public static Item rejected(int index, List<String> errors) {
+            return new Item(index, Outcome.REJECTED, null, List.copyOf(errors));
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    private final List<Item> items;
+
+    public BatchResult(List<Item> items) {
+        this.items = items;
+    }
+
+    public int getCreated() {
+        return (int) items.stream().filter(item -> item.outcome == Outcome.CREATED).count();
+    }
+
+    public int getRejected() {
+        return items.size() - getCreated();
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+}
@@ -25,6 +25,9 @@ public interface BoxService {
     // Update box status
     Box updateStatus(Long boxId, Box.BoxStatus newStatus);
 
+    // Update box status only if it is still expectedStatus; empty if it has changed in the meantime
+    Optional<Box> updateStatus(Long boxId, Box.BoxStatus expectedStatus, Box.BoxStatus newStatus);
+
     // Get transports related to a box
     List<Transport> getOutgoingTransports(Long boxId);
 
@@ -0,0 +1,238 @@
+package com.kesherManager.kesherManager.service;
+
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.util.Transactions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * Keeps open tasks in memory ordered by due date so overdue tasks are known without a query.
+ * A task is overdue when its due date has passed and it is not COMPLETED (same rule as Task.isOverdue).
+ *
+ * Pending tasks sit in a priority queue keyed by due date; a ticker moves every head entry whose
+ * deadline has passed into the overdue set and publishes a TaskOverdueEvent. Replaced entries are
+ * left in the queue and skipped when they reach the head. Writes made outside TaskService (or by
+ * another instance) are picked up by the periodic resync.
+ *
+ * A resync builds new structures next to the live ones and swaps them in. Changes committed while it
+ * runs are applied to the live structures and replayed onto the new ones, so none is lost in between.
+ */
+@Component
+public class OverdueTaskTracker implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueTaskTracker.class);
+
+    private static final class Entry implements Comparable<Entry> {
+        final long taskId;
+        final long dueMillis;
+
+        Entry(long taskId, long dueMillis) {
+            this.taskId = taskId;
+            this.dueMillis = dueMillis;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(dueMillis, other.dueMillis);
+        }
+    }
+
+    // The structures a reload replaces as a whole
+    private static final class State {
+        // Latest entry per open task; queue entries that are no longer current are stale
+        final Map<Long, Entry> openTasks = new ConcurrentHashMap<>();
+        // Guarded by the tracker's lock
+        final PriorityQueue<Entry> pending = new PriorityQueue<>();
+        final Set<Long> overdue = ConcurrentHashMap.newKeySet();
+    }
+
+    private final TaskRepository taskRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration tickInterval;
+    private final Duration resyncInterval;
+
+    // Guards every change to the structures and the swap of a reload
+    private final Object lock = new Object();
+    private volatile State state = new State();
+    // Changes made while a reload runs, replayed onto its result; null when no reload runs (guarded by lock)
+    private List<Consumer<State>> changesDuringReload;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "overdue-task-tracker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public OverdueTaskTracker(TaskRepository taskRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${kesher.overdue.tick-interval:1s}") Duration tickInterval,
+                              @Value("${kesher.overdue.resync-interval:15m}") Duration resyncInterval) {
+        this.taskRepository = taskRepository;
+        this.eventPublisher = eventPublisher;
+        this.tickInterval = tickInterval;
+        this.resyncInterval = resyncInterval;
+        Gauge.builder("kesher.tasks.overdue", this, tracker -> tracker.state.overdue.size())
+                .description("Open tasks past their due date")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        scheduler.scheduleWithFixedDelay(this::tick, tickInterval.toMillis(), tickInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::reloadQuietly, resyncInterval.toMillis(), resyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // Rebuilds the structures from the database; one reload runs at a time
+    public synchronized void reload() {
+        synchronized (lock) {
+            changesDuringReload = new ArrayList<>();
+        }
+        try {
+            List<Object[]> rows = taskRepository.findOpenTaskDueDates(Task.TaskStatus.COMPLETED);
+            State fresh = new State();
+            long now = System.currentTimeMillis();
+            for (Object[] row : rows) {
+                place(fresh, (Long) row[0], ((Date) row[1]).getTime(), now);
+            }
+            synchronized (lock) {
+                changesDuringReload.forEach(change -> change.accept(fresh));
+                state = fresh;
+            }
+            loaded = true;
+        } finally {
+            synchronized (lock) {
+                changesDuringReload = null;
+            }
+        }
+    }
+
+    // False until the first load finished; callers fall back to the database
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Ids of overdue tasks, earliest due first
+    public List<Long> getOverdueTaskIds() {
+        State current = state;
+        Set<Long> overdue = current.overdue;
+        Map<Long, Entry> openTasks = current.openTasks;
+        List<Entry> entries = new ArrayList<>(overdue.size());
+        for (Long id : overdue) {
+            Entry entry = openTasks.get(id);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        Collections.sort(entries);
+        List<Long> ids = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            ids.add(entry.taskId);
+        }
+        return ids;
+    }
+
+    // Called after a task is saved; applied once the surrounding transaction commits
+    public void taskSaved(Task task) {
+        Long id = task.getId();
+        Date dueDate = task.getDueDate();
+        boolean open = task.getStatus() != Task.TaskStatus.COMPLETED && dueDate != null;
+        Transactions.afterCommit(() -> apply(target -> {
+            forget(target, id);
+            if (open) {
+                place(target, id, dueDate.getTime(), System.currentTimeMillis());
+            }
+        }));
+    }
+
+    public void taskDeleted(Long id) {
+        Transactions.afterCommit(() -> apply(target -> forget(target, id)));
+    }
+
+    void tick() {
+        try {
+            List<TaskOverdueEvent> events = new ArrayList<>();
+            synchronized (lock) {
+                State current = state;
+                long now = System.currentTimeMillis();
+                Entry head;
+                while ((head = current.pending.peek()) != null && head.dueMillis <= now) {
+                    current.pending.poll();
+                    if (current.openTasks.get(head.taskId) != head) {
+                        continue; // replaced or removed since it was queued
+                    }
+                    current.overdue.add(head.taskId);
+                    events.add(new TaskOverdueEvent(head.taskId, new Date(head.dueMillis)));
+                }
+            }
+            // Listeners run outside the lock so they cannot hold up task saves
+            events.forEach(eventPublisher::publishEvent);
+        } catch (Exception e) {
+            log.warn("Overdue task tick failed", e);
+        }
+    }
+
+    private void apply(Consumer<State> change) {
+        synchronized (lock) {
+            change.accept(state);
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+        }
+    }
+
+    private static void place(State target, Long id, long dueMillis, long now) {
+        Entry entry = new Entry(id, dueMillis);
+        target.openTasks.put(id, entry);
+        if (dueMillis <= now) {
+            target.overdue.add(id);
+        } else {
+            target.pending.add(entry);
+        }
+    }
+
+    private static void forget(State target, Long id) {
+        target.openTasks.remove(id);
+        target.overdue.remove(id);
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Overdue task resync failed", e);
+        }
+    }
+}
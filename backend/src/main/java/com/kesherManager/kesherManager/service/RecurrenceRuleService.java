@@ -0,0 +1,21 @@
+package com.kesherManager.kesherManager.service;
+
+import com.kesherManager.kesherManager.model.RecurrenceRule;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface RecurrenceRuleService {
+    List<RecurrenceRule> getAllRules();
+
+    Optional<RecurrenceRule> getRuleById(Long id);
+
+    RecurrenceRule saveRule(RecurrenceRule rule);
+
+    // Generated tasks are kept
+    void deleteRule(Long id);
+
+    // Generates the rule's occurrences after its last generated one, up to until; returns the number of tasks created
+    int generateThrough(Long ruleId, Date until);
+}
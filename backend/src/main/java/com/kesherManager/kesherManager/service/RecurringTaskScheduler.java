@@ -0,0 +1,96 @@
+package com.kesherManager.kesherManager.service;
+
+import com.kesherManager.kesherManager.repository.RecurrenceRuleRepository;
+import com.kesherManager.kesherManager.workload.Workload;
+import com.kesherManager.kesherManager.workload.WorkloadContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Materializes the occurrences of active recurrence rules that fall due within kesher.recurrence.lookahead.
+ * Each occurrence is one INSERT ... SELECT over boxes (TaskService.generateOccurrence) instead of a save per
+ * box. Rules are generated one per transaction, under a row lock on the rule; an occurrence that already has
+ * its task for a box is skipped, so a rerun or a second instance creates nothing twice.
+ */
+@Component
+public class RecurringTaskScheduler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RecurringTaskScheduler.class);
+
+    private final RecurrenceRuleRepository recurrenceRuleRepository;
+    private final RecurrenceRuleService recurrenceRuleService;
+    private final Duration lookahead;
+    private final Duration interval;
+    private final Counter createdTasks;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recurring-tasks");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public RecurringTaskScheduler(RecurrenceRuleRepository recurrenceRuleRepository,
+                                  RecurrenceRuleService recurrenceRuleService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${kesher.recurrence.lookahead:7d}") Duration lookahead,
+                                  @Value("${kesher.recurrence.interval:1h}") Duration interval) {
+        this.recurrenceRuleRepository = recurrenceRuleRepository;
+        this.recurrenceRuleService = recurrenceRuleService;
+        this.lookahead = lookahead;
+        this.interval = interval;
+        this.createdTasks = Counter.builder("kesher.recurrence.tasks.created")
+                .description("Tasks generated from recurrence rules")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::runQuietly, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // Generates every active rule's due occurrences; returns the number of tasks created
+    public int run() {
+        Date until = new Date(System.currentTimeMillis() + lookahead.toMillis());
+        int created = 0;
+        for (Long ruleId : recurrenceRuleRepository.findActiveIds()) {
+            try {
+                created += recurrenceRuleService.generateThrough(ruleId, until);
+            } catch (RuntimeException e) {
+                log.warn("Generating tasks of recurrence rule {} failed", ruleId, e);
+            }
+        }
+        createdTasks.increment(created);
+        return created;
+    }
+
+    private void runQuietly() {
+        try {
+            // Bulk inserts: on the bulk connection pool
+            int created = WorkloadContext.call(Workload.BULK, this::run);
+            if (created > 0) {
+                log.info("Generated {} recurring tasks", created);
+            }
+        } catch (Exception e) {
+            log.warn("Recurring task generation failed", e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.kesherManager.kesherManager.service;
+
+import com.kesherManager.kesherManager.model.StatusChange;
+import com.kesherManager.kesherManager.repository.StatusChangeRepository;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/*
+ * Append-only history of the statuses boxes, tasks and transports go through (status_history).
+ *
+ * The services record a status when they write one that differs from the stored one, and DELETED when
+ * they delete the entity. Each entry carries the entity's donation group. When a box moves to another
+ * group, it and its tasks and transports get a group-move marker: an entry that repeats the current status
+ * in the new group. The history and the time in each state drop repeats of a status, so a marker does not
+ * start a period, and as-of finds the same status either way. A tenant (see TenantContext) only sees the
+ * history of entities whose latest entry is in its group, and counts of its group.
+ *
+ * The entries of a transaction are inserted in JDBC batches of kesher.status-history.batch-size just before
+ * it commits, on the transaction's own connection (Hibernate cannot batch inserts into an IDENTITY table,
+ * hence plain JDBC), so they commit or roll back with the change itself.
+ */
+@Component
+public class StatusHistory {
+
+    // Status of the last entry of a deleted entity; it is not counted from then on
+    public static final String DELETED = "DELETED";
+
+    private static final String INSERT =
+            "insert into status_history (entity_type, entity_id, donation_group, status, changed_at) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final StatusChangeRepository statusChangeRepository;
+    private final int batchSize;
+
+    // The entries one transaction recorded; synchronizations are suspended with their transaction
+    private final class PendingChanges implements TransactionSynchronization {
+        final List<StatusChange> changes = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insert(changes);
+        }
+    }
+
+    @Autowired
+    public StatusHistory(JdbcTemplate jdbc,
+                         StatusChangeRepository statusChangeRepository,
+                         @Value("${kesher.status-history.batch-size:500}") int batchSize) {
+        this.jdbc = jdbc;
+        this.statusChangeRepository = statusChangeRepository;
+        this.batchSize = batchSize;
+    }
+
+    // Records that the entity, of the donation group, is in the status as of the given time, with the current transaction
+    public void record(StatusChange.EntityType entityType, Long entityId, String donationGroup, Enum<?> status,
+                       Date changedAt) {
+        if (entityId == null || status == null) {
+            return;
+        }
+        add(new StatusChange(entityType, entityId, donationGroup, status.name(), changedAt));
+    }
+
+    // Records that the entity was deleted at the given time, with the current transaction
+    public void recordDeleted(StatusChange.EntityType entityType, Long entityId, String donationGroup, Date deletedAt) {
+        if (entityId == null) {
+            return;
+        }
+        add(new StatusChange(entityType, entityId, donationGroup, DELETED, deletedAt));
+    }
+
+    // Status periods of one entity, oldest first; repeats of the same status are dropped. Empty for another
+    // group's entity.
+    public List<StatusChange> getHistory(StatusChange.EntityType entityType, Long entityId) {
+        if (!visible(entityType, entityId)) {
+            return List.of();
+        }
+        List<StatusChange> periods = new ArrayList<>();
+        for (StatusChange change : statusChangeRepository.findByEntityTypeAndEntityIdOrderByChangedAtAscIdAsc(entityType, entityId)) {
+            if (periods.isEmpty() || !periods.get(periods.size() - 1).getStatus().equals(change.getStatus())) {
+                periods.add(change);
+            }
+        }
+        return periods;
+    }
+
+    // The entity's status at the given time; empty if nothing was recorded for it before then, or it is another
+    // group's entity
+    public Optional<String> getStatusAsOf(StatusChange.EntityType entityType, Long entityId, Date asOf) {
+        if (!visible(entityType, entityId)) {
+            return Optional.empty();
+        }
+        return statusChangeRepository
+                .findFirstByEntityTypeAndEntityIdAndChangedAtLessThanEqualOrderByChangedAtDescIdDesc(entityType, entityId, asOf)
+                .map(StatusChange::getStatus);
+    }
+
+    // How many entities of the type were in each status at the given time, in the tenant's group if there is one;
+    // deleted ones are left out
+    public Map<String, Long> countByStatusAsOf(StatusChange.EntityType entityType, Date asOf) {
+        Map<String, Long> counts = new TreeMap<>();
+        String donationGroup = TenantContext.current().orElse(null);
+        for (Object[] row : statusChangeRepository.countByStatusAsOf(entityType, asOf, DELETED, donationGroup)) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    // Total time the entity has spent in each status up to now (or its deletion), the current status included
+    public Map<String, Duration> getTimeInState(StatusChange.EntityType entityType, Long entityId) {
+        List<StatusChange> periods = getHistory(entityType, entityId);
+        Map<String, Duration> totals = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < periods.size(); i++) {
+            if (DELETED.equals(periods.get(i).getStatus())) {
+                continue;
+            }
+            long start = periods.get(i).getChangedAt().getTime();
+            long end = i + 1 < periods.size() ? periods.get(i + 1).getChangedAt().getTime() : now;
+            totals.merge(periods.get(i).getStatus(), Duration.ofMillis(Math.max(0, end - start)), Duration::plus);
+        }
+        return totals;
+    }
+
+    // Whether the current tenant may see the entity's history: its latest entry is in the tenant's group
+    private boolean visible(StatusChange.EntityType entityType, Long entityId) {
+        if (!TenantContext.current().isPresent()) {
+            return true;
+        }
+        return statusChangeRepository.findFirstByEntityTypeAndEntityIdOrderByChangedAtDescIdDesc(entityType, entityId)
+                .map(latest -> TenantContext.allows(latest.getDonationGroup()))
+                .orElse(false);
+    }
+
+    private void add(StatusChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(change));
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges) {
+                ((PendingChanges) synchronization).changes.add(change);
+                return;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        pending.changes.add(change);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    private void insert(List<StatusChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate(INSERT, changes, batchSize, (statement, row) -> {
+            statement.setString(1, row.getEntityType().name());
+            statement.setLong(2, row.getEntityId());
+            statement.setString(3, row.getDonationGroup());
+            statement.setString(4, row.getStatus());
+            statement.setTimestamp(5, new Timestamp(row.getChangedAt().getTime()));
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.kesherManager.kesherManager.service;
+
+import java.util.Date;
+
+// Published by OverdueTaskTracker when an open task passes its due date
+public class TaskOverdueEvent {
+
+    private final Long taskId;
+    private final Date dueDate;
+
+    public TaskOverdueEvent(Long taskId, Date dueDate) {
+        this.taskId = taskId;
+        this.dueDate = dueDate;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public Date getDueDate() {
+        return dueDate;
+    }
+}
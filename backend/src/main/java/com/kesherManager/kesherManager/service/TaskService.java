@@ -1,6 +1,7 @@
 package com.kesherManager.kesherManager.service;
 
 import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.RecurrenceRule;
 import com.kesherManager.kesherManager.model.Task;
 import com.kesherManager.kesherManager.model.Transport;
 
@@ -16,8 +17,14 @@ public interface TaskService {
 
     Task saveTask(Task task);
 
+    // Creates many tasks in one transaction; tasks with missing references or invalid fields are skipped
+    BatchResult createTasks(List<Task> tasks);
+
     void deleteTask(Long id);
 
+    // Creates the rule's task due at dueDate for every matching active box that does not have it yet; returns how many
+    int generateOccurrence(RecurrenceRule rule, Date dueDate);
+
     // Custom operations
     List<Task> getTasksByStatus(Task.TaskStatus status);
 
@@ -38,9 +45,21 @@ public interface TaskService {
     // Update task status
     Task updateStatus(Long taskId, Task.TaskStatus newStatus);
 
+    // Update task status only if it is still expectedStatus; empty if it has changed in the meantime
+    Optional<Task> updateStatus(Long taskId, Task.TaskStatus expectedStatus, Task.TaskStatus newStatus);
+
     // Assign task to a person
     Task assignTask(Long taskId, String assignedTo);
 
+    // Assignee's next PENDING tasks by priority, then due date
+    List<Task> getNextTasks(String assignee, int count);
+
+    // Atomically moves a PENDING task to IN_PROGRESS for the assignee; empty if it is no longer available
+    Optional<Task> claimTask(Long taskId, String assignee);
+
+    // Claims the assignee's top PENDING task; empty if there is none left
+    Optional<Task> claimNextTask(String assignee);
+
     List<Task> getTasksByDonationGroup(String donationGroup);
     List<Task> getTasksByAssociationManager(String associationManager);
     List<Task> getTasksByCategory(String category);
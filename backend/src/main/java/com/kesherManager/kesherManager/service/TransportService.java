@@ -2,6 +2,7 @@ package com.kesherManager.kesherManager.service;
 
 import com.kesherManager.kesherManager.model.Box;
 import com.kesherManager.kesherManager.model.Transport;
+import org.joda.time.LocalDate;
 
 import java.util.Date;
 import java.util.List;
@@ -15,6 +16,9 @@ public interface TransportService {
 
     Transport saveTransport(Transport transport);
 
+    // Creates many transports in one transaction; transports with missing boxes or invalid fields are skipped
+    BatchResult createTransports(List<Transport> transports);
+
     void deleteTransport(Long id);
 
     // Custom operations
@@ -32,9 +36,16 @@ public interface TransportService {
 
     List<Transport> getTodayTransports(Transport.TransportStatus status);
 
+    // Transports with the status scheduled on the day (Israel time)
+    List<Transport> getTransportsOnDay(LocalDate day, Transport.TransportStatus status);
+
     // Update transport status
     Transport updateStatus(Long transportId, Transport.TransportStatus newStatus);
 
+    // Update transport status only if it is still expectedStatus; empty if it has changed in the meantime
+    Optional<Transport> updateStatus(Long transportId, Transport.TransportStatus expectedStatus,
+                                     Transport.TransportStatus newStatus);
+
     // Complete a transport
     Transport completeTransport(Long transportId, Date completionDate);
 
@@ -1,28 +1,57 @@
 package com.kesherManager.kesherManager.service.impl;
 
+import com.kesherManager.kesherManager.calendar.CalendarHistogram;
+import com.kesherManager.kesherManager.geo.BoxClusterIndex;
 import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.StatusChange;
+import com.kesherManager.kesherManager.model.Task;
 import com.kesherManager.kesherManager.model.Transport;
 import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.TaskRepository;
 import com.kesherManager.kesherManager.repository.TransportRepository;
+import com.kesherManager.kesherManager.search.AutocompleteIndex;
+import com.kesherManager.kesherManager.search.SearchIndex;
 import com.kesherManager.kesherManager.service.BoxService;
+import com.kesherManager.kesherManager.service.StatusHistory;
+import com.kesherManager.kesherManager.tenant.TenantContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.kesherManager.kesherManager.util.Dates;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
+@Transactional(readOnly = true)
 public class BoxServiceImpl implements BoxService {
 
     private final BoxRepository boxRepository;
     private final TransportRepository transportRepository;
+    private final TaskRepository taskRepository;
+    private final SearchIndex searchIndex;
+    private final StatusHistory statusHistory;
+    private final AutocompleteIndex autocompleteIndex;
+    private final CalendarHistogram calendarHistogram;
+    private final BoxClusterIndex boxClusterIndex;
 
     @Autowired
-    public BoxServiceImpl(BoxRepository boxRepository, TransportRepository transportRepository) {
+    public BoxServiceImpl(BoxRepository boxRepository, TransportRepository transportRepository,
+                          TaskRepository taskRepository, SearchIndex searchIndex, StatusHistory statusHistory,
+                          AutocompleteIndex autocompleteIndex, CalendarHistogram calendarHistogram,
+                          BoxClusterIndex boxClusterIndex) {
         this.boxRepository = boxRepository;
         this.transportRepository = transportRepository;
+        this.taskRepository = taskRepository;
+        this.searchIndex = searchIndex;
+        this.statusHistory = statusHistory;
+        this.autocompleteIndex = autocompleteIndex;
+        this.calendarHistogram = calendarHistogram;
+        this.boxClusterIndex = boxClusterIndex;
     }
 
     @Override
@@ -32,10 +61,12 @@ public class BoxServiceImpl implements BoxService {
 
     @Override
     public Optional<Box> getBoxById(Long id) {
-        return boxRepository.findById(id);
+        // Loads by id are not filtered by tenant
+        return boxRepository.findById(id).filter(box -> TenantContext.allows(box.getDonationGroup()));
     }
 
     @Override
+    @Transactional
     public Box saveBox(Box box) {
         // Update timestamps before saving
         if (box.getId() == null) {
@@ -43,12 +74,26 @@ public class BoxServiceImpl implements BoxService {
         }
         box.setUpdatedAt(Dates.nowUTC());
 
-        return boxRepository.save(box);
+        // The stored row, to keep a tenant to its own boxes and to see whether the box changes group
+        Optional<Box> existing = box.getId() == null ? Optional.empty() : boxRepository.findById(box.getId());
+        if (existing.isPresent() && !TenantContext.allows(existing.get().getDonationGroup())) {
+            throw new EntityNotFoundException("Box not found with ID: " + box.getId());
+        }
+        return save(box, existing.isPresent(), existing.map(Box::getDonationGroup).orElse(null),
+                existing.map(Box::getStatus).orElse(null));
     }
 
     @Override
+    @Transactional
     public void deleteBox(Long id) {
+        checkTenant(id);
+        // Loaded into the persistence context, where deleteById finds it again
+        String donationGroup = boxRepository.findById(id).map(Box::getDonationGroup).orElse(null);
         boxRepository.deleteById(id);
+        statusHistory.recordDeleted(StatusChange.EntityType.BOX, id, donationGroup, Dates.nowUTC());
+        searchIndex.deleteBoxAfterCommit(id);
+        autocompleteIndex.boxDeleted(id);
+        boxClusterIndex.boxDeleted(id);
     }
 
     @Override
@@ -64,19 +109,32 @@ public class BoxServiceImpl implements BoxService {
     }
 
     @Override
+    @Transactional
     public Box updateStatus(Long boxId, Box.BoxStatus newStatus) {
-        Box box = boxRepository.findById(boxId)
+        // Usually loaded from the second-level cache. The flush writes the changed columns only (Box is
+        // @DynamicUpdate) and replaces the cache entry of this box alone, where a bulk UPDATE would empty
+        // the whole Box region.
+        Box box = getBoxById(boxId)
                 .orElseThrow(() -> new EntityNotFoundException("Box not found with ID: " + boxId));
+        return changeStatus(box, newStatus);
+    }
 
-        box.setStatus(newStatus);
-        box.setUpdatedAt(Dates.nowUTC());
-
-        return boxRepository.save(box);
+    @Override
+    @Transactional
+    public Optional<Box> updateStatus(Long boxId, Box.BoxStatus expectedStatus, Box.BoxStatus newStatus) {
+        // The row stays locked from the check to the commit, so two transitions from the same status
+        // cannot both succeed
+        Box box = boxRepository.findByIdForUpdate(boxId)
+                .orElseThrow(() -> new EntityNotFoundException("Box not found with ID: " + boxId));
+        if (box.getStatus() != expectedStatus) {
+            return Optional.empty();
+        }
+        return Optional.of(changeStatus(box, newStatus));
     }
 
     @Override
     public List<Transport> getOutgoingTransports(Long boxId) {
-        Box box = boxRepository.findById(boxId)
+        Box box = getBoxById(boxId)
                 .orElseThrow(() -> new EntityNotFoundException("Box not found with ID: " + boxId));
 
         return transportRepository.findBySourceBox(box);
@@ -84,7 +142,7 @@ public class BoxServiceImpl implements BoxService {
 
     @Override
     public List<Transport> getIncomingTransports(Long boxId) {
-        Box box = boxRepository.findById(boxId)
+        Box box = getBoxById(boxId)
                 .orElseThrow(() -> new EntityNotFoundException("Box not found with ID: " + boxId));
 
         return transportRepository.findByDestinationBox(box);
@@ -106,9 +164,12 @@ public class BoxServiceImpl implements BoxService {
     }
 
     @Override
+    @Transactional
     public Box updateBoxDetails(Long boxId, Box boxDetails) {
-        Box box = boxRepository.findById(boxId)
+        Box box = getBoxById(boxId)
                 .orElseThrow(() -> new EntityNotFoundException("Box not found with ID: " + boxId));
+        String previousGroup = box.getDonationGroup();
+        Box.BoxStatus previousStatus = box.getStatus();
 
         // Update all box fields from the details object
         box.setDonationGroup(boxDetails.getDonationGroup());
@@ -127,6 +188,76 @@ public class BoxServiceImpl implements BoxService {
         // Update the timestamp
         box.setUpdatedAt(Dates.nowUTC());
 
-        return boxRepository.save(box);
+        return save(box, true, previousGroup, previousStatus);
+    }
+
+    private Box save(Box box, boolean stored, String previousGroup, Box.BoxStatus previousStatus) {
+        box.setDonationGroup(TenantContext.resolve(box.getDonationGroup()));
+        Box saved = recorded(indexed(boxRepository.save(box)), previousStatus);
+        if (stored && !Objects.equals(previousGroup, saved.getDonationGroup())) {
+            regrouped(saved, previousStatus);
+        }
+        return saved;
+    }
+
+    // Tasks and transports keep a copy of their box's donation group (see the tenant filter); moves them along
+    // with the box and refreshes what is partitioned or faceted by group. The history gets a group-move marker
+    // for each one (see StatusHistory), so that it is counted in the new group from now on; the box needs none if
+    // its status changed in the same save, which was recorded in the new group already.
+    private void regrouped(Box box, Box.BoxStatus previousStatus) {
+        transportRepository.updateDonationGroup(box.getId(), box.getDonationGroup());
+        taskRepository.updateDonationGroup(box.getId(), box.getDonationGroup());
+        Date now = Dates.nowUTC();
+        if (box.getStatus() == previousStatus) {
+            statusHistory.record(StatusChange.EntityType.BOX, box.getId(), box.getDonationGroup(), box.getStatus(), now);
+        }
+        for (Transport transport : transportRepository.findBySourceBox(box)) {
+            searchIndex.indexAfterCommit(transport);
+            autocompleteIndex.transportSaved(transport);
+            statusHistory.record(StatusChange.EntityType.TRANSPORT, transport.getId(), transport.getDonationGroup(),
+                    transport.getStatus(), now);
+        }
+        List<Task> tasks = new ArrayList<>(taskRepository.findByRelatedBox(box));
+        tasks.addAll(taskRepository.findByRelatedBoxIsNullAndRelatedTransport_SourceBox(box));
+        for (Task task : tasks) {
+            searchIndex.indexAfterCommit(task);
+            statusHistory.record(StatusChange.EntityType.TASK, task.getId(), task.getDonationGroup(), task.getStatus(), now);
+        }
+        calendarHistogram.clearAfterCommit();
+    }
+
+    // Sets the status of a managed box; written when the transaction flushes, and not at all if unchanged
+    private Box changeStatus(Box box, Box.BoxStatus newStatus) {
+        if (box.getStatus() == newStatus) {
+            return box;
+        }
+        Box.BoxStatus previousStatus = box.getStatus();
+        box.setStatus(newStatus);
+        box.setUpdatedAt(Dates.nowUTC());
+        return recorded(indexed(box), previousStatus);
+    }
+
+    // A saved box's status goes to the history if it differs from the stored one (null for a new box)
+    private Box recorded(Box box, Box.BoxStatus previousStatus) {
+        if (box.getStatus() != previousStatus) {
+            statusHistory.record(StatusChange.EntityType.BOX, box.getId(), box.getDonationGroup(), box.getStatus(),
+                    box.getUpdatedAt());
+        }
+        return box;
+    }
+
+    // Loads by id and bulk updates are not filtered by tenant; this count query is
+    private void checkTenant(Long boxId) {
+        if (TenantContext.current().isPresent() && !boxRepository.existsById(boxId)) {
+            throw new EntityNotFoundException("Box not found with ID: " + boxId);
+        }
+    }
+
+    // Keeps the search and autocomplete indexes and the map clusters in step with a saved box
+    private Box indexed(Box box) {
+        searchIndex.indexAfterCommit(box);
+        autocompleteIndex.boxSaved(box);
+        boxClusterIndex.boxSaved(box);
+        return box;
     }
-}
\ No newline at end of file
+}
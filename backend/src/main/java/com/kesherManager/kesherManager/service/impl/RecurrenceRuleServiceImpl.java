@@ -0,0 +1,97 @@
+package com.kesherManager.kesherManager.service.impl;
+
+import com.kesherManager.kesherManager.model.RecurrenceRule;
+import com.kesherManager.kesherManager.repository.RecurrenceRuleRepository;
+import com.kesherManager.kesherManager.service.RecurrenceRuleService;
+import com.kesherManager.kesherManager.service.TaskService;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import com.kesherManager.kesherManager.util.Dates;
+import org.joda.time.Days;
+import org.joda.time.LocalDateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Transactional(readOnly = true)
+public class RecurrenceRuleServiceImpl implements RecurrenceRuleService {
+
+    private final RecurrenceRuleRepository recurrenceRuleRepository;
+    private final TaskService taskService;
+
+    @Autowired
+    public RecurrenceRuleServiceImpl(RecurrenceRuleRepository recurrenceRuleRepository, TaskService taskService) {
+        this.recurrenceRuleRepository = recurrenceRuleRepository;
+        this.taskService = taskService;
+    }
+
+    @Override
+    public List<RecurrenceRule> getAllRules() {
+        return recurrenceRuleRepository.findAll();
+    }
+
+    @Override
+    public Optional<RecurrenceRule> getRuleById(Long id) {
+        // Loads by id are not filtered by tenant
+        return recurrenceRuleRepository.findById(id).filter(rule -> TenantContext.allows(rule.getDonationGroup()));
+    }
+
+    @Override
+    @Transactional
+    public RecurrenceRule saveRule(RecurrenceRule rule) {
+        if (rule.getId() == null) {
+            rule.setCreatedAt(Dates.nowUTC());
+        } else {
+            checkTenant(rule.getId());
+        }
+        rule.setUpdatedAt(Dates.nowUTC());
+        rule.setDonationGroup(TenantContext.resolve(rule.getDonationGroup()));
+        return recurrenceRuleRepository.save(rule);
+    }
+
+    @Override
+    @Transactional
+    public void deleteRule(Long id) {
+        checkTenant(id);
+        recurrenceRuleRepository.deleteById(id);
+    }
+
+    @Override
+    @Transactional
+    public int generateThrough(Long ruleId, Date until) {
+        // Locked until commit: the occurrences and the new generatedThrough are written together
+        RecurrenceRule rule = recurrenceRuleRepository.findByIdForUpdate(ruleId)
+                .orElseThrow(() -> new EntityNotFoundException("Recurrence rule not found with ID: " + ruleId));
+        if (!rule.isActive()) {
+            return 0;
+        }
+        // Occurrences are counted in days of local time, so they keep their time of day across DST changes
+        LocalDateTime start = Dates.atLocalTime(rule.getStartDate());
+        Date last = rule.getGeneratedThrough();
+        int k = last == null ? 0 : Math.max(0, Days.daysBetween(start, Dates.atLocalTime(last)).getDays() / rule.getIntervalDays());
+        int created = 0;
+        for (Date occurrence = occurrence(start, rule, k); !occurrence.after(until); occurrence = occurrence(start, rule, ++k)) {
+            if (last == null || occurrence.after(last)) {
+                created += taskService.generateOccurrence(rule, occurrence);
+                rule.setGeneratedThrough(occurrence);
+            }
+        }
+        return created;
+    }
+
+    private static Date occurrence(LocalDateTime start, RecurrenceRule rule, int k) {
+        return Dates.atUtc(start.plusDays(k * rule.getIntervalDays()));
+    }
+
+    // Loads by id are not filtered by tenant; this count query is
+    private void checkTenant(Long ruleId) {
+        if (TenantContext.current().isPresent() && !recurrenceRuleRepository.existsById(ruleId)) {
+            throw new EntityNotFoundException("Recurrence rule not found with ID: " + ruleId);
+        }
+    }
+}
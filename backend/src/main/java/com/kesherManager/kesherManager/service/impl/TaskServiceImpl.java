@@ -1,30 +1,105 @@
 package com.kesherManager.kesherManager.service.impl;
 
+import com.kesherManager.kesherManager.calendar.CalendarHistogram;
 import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.RecurrenceRule;
+import com.kesherManager.kesherManager.model.StatusChange;
 import com.kesherManager.kesherManager.model.Task;
 import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.repository.BoxRepository;
 import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import com.kesherManager.kesherManager.search.SearchIndex;
+import com.kesherManager.kesherManager.service.AssigneeTaskQueues;
+import com.kesherManager.kesherManager.service.BatchResult;
+import com.kesherManager.kesherManager.service.OverdueTaskTracker;
+import com.kesherManager.kesherManager.service.StatusHistory;
 import com.kesherManager.kesherManager.service.TaskService;
+import com.kesherManager.kesherManager.tenant.ForeignTenantException;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import com.kesherManager.kesherManager.util.BatchInserts;
 import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
 import org.joda.time.LocalTime;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.kesherManager.kesherManager.util.Dates ;
 
 import javax.persistence.EntityNotFoundException;
+import javax.validation.Validator;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
+@Transactional(readOnly = true)
 public class TaskServiceImpl implements TaskService {
 
+    private static final int CLAIM_CANDIDATES = 5;
+
+    // Same columns Hibernate writes for Task
+    private static final String INSERT_TASK = "insert into tasks (task_type, related_box_id, related_transport_id, " +
+            "description, assigned_to, due_date, priority, status, notes, task_category, donation_group, created_at, " +
+            "updated_at, partition_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // One occurrence of a recurrence rule for all matching active boxes in one statement. A box that already
+    // has the occurrence is skipped, so running it again creates nothing.
+    private static final String INSERT_OCCURRENCE = "insert into tasks (task_type, related_box_id, description, " +
+            "assigned_to, due_date, priority, status, task_category, donation_group, recurrence_rule_id, created_at, " +
+            "updated_at, partition_date) select ?, b.id, ?, ?, ?, ?, ?, ?, b.donation_group, ?, ?, ?, ? from boxes b " +
+            "where b.status = ? and not exists (select 1 from tasks t where t.recurrence_rule_id = ? " +
+            "and t.related_box_id = b.id and t.due_date = ?)";
+
+    // Same order as AssigneeTaskQueues, used before the queues are loaded
+    private static final Comparator<Task> NEXT_TASK_ORDER = Comparator
+            .comparing(Task::getPriority, Comparator.nullsLast(Comparator.<Task.TaskPriority>reverseOrder()))
+            .thenComparing(Task::getDueDate, Comparator.nullsLast(Comparator.<Date>naturalOrder()))
+            .thenComparing(Task::getId);
+
     private final TaskRepository taskRepository;
+    private final BoxRepository boxRepository;
+    private final TransportRepository transportRepository;
+    private final OverdueTaskTracker overdueTaskTracker;
+    private final AssigneeTaskQueues assigneeTaskQueues;
+    private final SearchIndex searchIndex;
+    private final StatusHistory statusHistory;
+    private final CalendarHistogram calendarHistogram;
+    private final JdbcTemplate jdbc;
+    private final Validator validator;
 
     @Autowired
-    public TaskServiceImpl(TaskRepository taskRepository) {
+    public TaskServiceImpl(TaskRepository taskRepository,
+                           BoxRepository boxRepository,
+                           TransportRepository transportRepository,
+                           OverdueTaskTracker overdueTaskTracker,
+                           AssigneeTaskQueues assigneeTaskQueues,
+                           SearchIndex searchIndex,
+                           StatusHistory statusHistory,
+                           CalendarHistogram calendarHistogram,
+                           JdbcTemplate jdbc,
+                           Validator validator) {
         this.taskRepository = taskRepository;
+        this.boxRepository = boxRepository;
+        this.transportRepository = transportRepository;
+        this.overdueTaskTracker = overdueTaskTracker;
+        this.assigneeTaskQueues = assigneeTaskQueues;
+        this.searchIndex = searchIndex;
+        this.statusHistory = statusHistory;
+        this.calendarHistogram = calendarHistogram;
+        this.jdbc = jdbc;
+        this.validator = validator;
     }
 
     @Override
@@ -34,23 +109,162 @@ public class TaskServiceImpl implements TaskService {
 
     @Override
     public Optional<Task> getTaskById(Long id) {
-        return taskRepository.findById(id);
+        // Loads by id are not filtered by tenant
+        return taskRepository.findById(id).filter(task -> TenantContext.allows(task.getDonationGroup()));
     }
 
     @Override
+    @Transactional
     public Task saveTask(Task task) {
         // Update timestamps before saving
         if (task.getId() == null) {
             task.setCreatedAt(Dates.nowUTC());
         }
         task.setUpdatedAt(Dates.nowUTC());
+        Task.TaskStatus previousStatus = null;
+        if (task.getId() != null) {
+            checkTenant(task.getId());
+            // The stored status; the save below merges into the row loaded here instead of loading it again
+            previousStatus = taskRepository.findById(task.getId()).map(Task::getStatus).orElse(null);
+        }
+        task.setDonationGroup(TenantContext.resolve(donationGroupOf(task)));
+
+        return recorded(tracked(taskRepository.save(task)), previousStatus);
+    }
 
-        return taskRepository.save(task);
+    @Override
+    @Transactional
+    public BatchResult createTasks(List<Task> tasks) {
+        // One query per referenced entity type for the whole batch. They are filtered by tenant like any query,
+        // so another group's boxes and transports count as missing.
+        Set<Long> boxIds = new HashSet<>();
+        Set<Long> transportIds = new HashSet<>();
+        for (Task task : tasks) {
+            if (task.getRelatedBox() != null && task.getRelatedBox().getId() != null) {
+                boxIds.add(task.getRelatedBox().getId());
+            }
+            if (task.getRelatedTransport() != null && task.getRelatedTransport().getId() != null) {
+                transportIds.add(task.getRelatedTransport().getId());
+            }
+        }
+        Map<Long, Box> boxes = new HashMap<>();
+        boxRepository.findAllById(boxIds).forEach(box -> boxes.put(box.getId(), box));
+        Map<Long, Transport> transports = new HashMap<>();
+        transportRepository.findAllById(transportIds).forEach(transport -> transports.put(transport.getId(), transport));
+
+        Date now = Dates.nowUTC();
+        BatchResult.Item[] items = new BatchResult.Item[tasks.size()];
+        List<Task> valid = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            List<String> errors = validator.validate(task).stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .collect(Collectors.toList());
+            if (task.getRelatedBox() != null) {
+                Box box = boxes.get(task.getRelatedBox().getId());
+                if (box == null) {
+                    errors.add("relatedBox: no box with id " + task.getRelatedBox().getId());
+                }
+                task.setRelatedBox(box);
+            }
+            if (task.getRelatedTransport() != null) {
+                Transport transport = transports.get(task.getRelatedTransport().getId());
+                if (transport == null) {
+                    errors.add("relatedTransport: no transport with id " + task.getRelatedTransport().getId());
+                }
+                task.setRelatedTransport(transport);
+            }
+            if (errors.isEmpty()) {
+                try {
+                    task.setDonationGroup(TenantContext.resolve(donationGroupOf(task)));
+                } catch (ForeignTenantException e) {
+                    errors.add("donationGroup: " + e.getMessage());
+                }
+            }
+            if (!errors.isEmpty()) {
+                items[i] = BatchResult.Item.rejected(i, errors);
+                continue;
+            }
+            task.setId(null);
+            task.setCreatedAt(now);
+            task.setUpdatedAt(now);
+            valid.add(task);
+        }
+
+        BatchInserts.insert(jdbc, INSERT_TASK, valid, (statement, task) -> {
+            statement.setString(1, BatchInserts.name(task.getTaskType()));
+            statement.setObject(2, task.getRelatedBox() != null ? task.getRelatedBox().getId() : null, Types.BIGINT);
+            statement.setObject(3, task.getRelatedTransport() != null ? task.getRelatedTransport().getId() : null, Types.BIGINT);
+            statement.setString(4, task.getDescription());
+            statement.setString(5, task.getAssignedTo());
+            statement.setTimestamp(6, BatchInserts.timestamp(task.getDueDate()));
+            statement.setString(7, BatchInserts.name(task.getPriority()));
+            statement.setString(8, BatchInserts.name(task.getStatus()));
+            statement.setString(9, task.getNotes());
+            statement.setString(10, task.getTaskCategory());
+            statement.setString(11, task.getDonationGroup());
+            statement.setTimestamp(12, BatchInserts.timestamp(task.getCreatedAt()));
+            statement.setTimestamp(13, BatchInserts.timestamp(task.getUpdatedAt()));
+            statement.setTimestamp(14, BatchInserts.timestamp(Task.partitionDate(task.getDueDate(), task.getCreatedAt())));
+        }, Task::setId);
+
+        int next = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null) {
+                Task task = recorded(tracked(valid.get(next++)), null);
+                items[i] = BatchResult.Item.created(i, task.getId());
+            }
+        }
+        return new BatchResult(Arrays.asList(items));
     }
 
     @Override
+    @Transactional
+    public int generateOccurrence(RecurrenceRule rule, Date dueDate) {
+        Date now = Dates.nowUTC();
+        Timestamp due = BatchInserts.timestamp(dueDate);
+        Timestamp created = BatchInserts.timestamp(now);
+        String sql = rule.getDonationGroup() != null ? INSERT_OCCURRENCE + " and b.donation_group = ?" : INSERT_OCCURRENCE;
+        int inserted = jdbc.update(sql, statement -> {
+            statement.setString(1, BatchInserts.name(rule.getTaskType()));
+            statement.setString(2, rule.getDescription());
+            statement.setString(3, rule.getAssignedTo());
+            statement.setTimestamp(4, due);
+            statement.setString(5, BatchInserts.name(rule.getPriority()));
+            statement.setString(6, Task.TaskStatus.PENDING.name());
+            statement.setString(7, rule.getTaskCategory());
+            statement.setLong(8, rule.getId());
+            statement.setTimestamp(9, created);
+            statement.setTimestamp(10, created);
+            statement.setTimestamp(11, due);
+            statement.setString(12, Box.BoxStatus.ACTIVE.name());
+            statement.setLong(13, rule.getId());
+            statement.setTimestamp(14, due);
+            if (rule.getDonationGroup() != null) {
+                statement.setString(15, rule.getDonationGroup());
+            }
+        });
+        if (inserted > 0) {
+            // One query for the new rows, to keep the in-memory structures and the history in step
+            for (Task task : taskRepository.findGenerated(rule.getId(), dueDate, now)) {
+                recorded(tracked(task), null);
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    @Transactional
     public void deleteTask(Long id) {
+        checkTenant(id);
+        // Loaded into the persistence context, where deleteById finds it again
+        String donationGroup = taskRepository.findById(id).map(Task::getDonationGroup).orElse(null);
         taskRepository.deleteById(id);
+        statusHistory.recordDeleted(StatusChange.EntityType.TASK, id, donationGroup, Dates.nowUTC());
+        overdueTaskTracker.taskDeleted(id);
+        assigneeTaskQueues.taskDeleted(id);
+        searchIndex.deleteTaskAfterCommit(id);
+        calendarHistogram.clearAfterCommit();
     }
 
     @Override
@@ -65,7 +279,13 @@ public class TaskServiceImpl implements TaskService {
 
     @Override
     public List<Task> getOverdueTasks() {
-        return taskRepository.findByDueDateBeforeAndStatusNot(Dates.nowUTC(), Task.TaskStatus.COMPLETED);
+        if (!overdueTaskTracker.isLoaded()) {
+            return taskRepository.findByDueDateBeforeAndStatusNot(Dates.nowUTC(), Task.TaskStatus.COMPLETED);
+        }
+        // Overdue ids come from memory; only those rows are loaded, by primary key
+        List<Task> tasks = taskRepository.findAllById(overdueTaskTracker.getOverdueTaskIds());
+        tasks.sort(Comparator.comparing(Task::getDueDate));
+        return tasks;
     }
 
     @Override
@@ -105,28 +325,156 @@ public class TaskServiceImpl implements TaskService {
     }
 
     @Override
+    @Transactional
     public Task updateStatus(Long taskId, Task.TaskStatus newStatus) {
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new EntityNotFoundException("Task not found with ID: " + taskId));
-
-        task.setStatus(newStatus);
-        task.setUpdatedAt(Dates.nowUTC());
+        // One UPDATE of the changed columns instead of loading the task and writing the whole row back
+        checkTenant(taskId);
+        Date now = Dates.nowUTC();
+        boolean updated = taskRepository.updateStatus(taskId, newStatus, now) > 0;
+        // Nothing updated: no such task (this throws), or it already had the status
+        Task task = reloaded(taskId);
+        if (updated) {
+            statusHistory.record(StatusChange.EntityType.TASK, taskId, task.getDonationGroup(), newStatus, now);
+        }
+        return task;
+    }
 
-        return taskRepository.save(task);
+    @Override
+    @Transactional
+    public Optional<Task> updateStatus(Long taskId, Task.TaskStatus expectedStatus, Task.TaskStatus newStatus) {
+        checkTenant(taskId);
+        Date now = Dates.nowUTC();
+        if (taskRepository.updateStatus(taskId, expectedStatus, newStatus, now) == 0) {
+            if (!taskRepository.existsById(taskId)) {
+                throw new EntityNotFoundException("Task not found with ID: " + taskId);
+            }
+            return Optional.empty();
+        }
+        Task task = reloaded(taskId);
+        if (newStatus != expectedStatus) {
+            statusHistory.record(StatusChange.EntityType.TASK, taskId, task.getDonationGroup(), newStatus, now);
+        }
+        return Optional.of(task);
     }
 
     @Override
+    @Transactional
     public Task assignTask(Long taskId, String assignedTo) {
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new EntityNotFoundException("Task not found with ID: " + taskId));
+        checkTenant(taskId);
+        if (taskRepository.assign(taskId, assignedTo, Dates.nowUTC()) == 0) {
+            throw new EntityNotFoundException("Task not found with ID: " + taskId);
+        }
+        return reloaded(taskId);
+    }
 
-        task.setAssignedTo(assignedTo);
-        task.setUpdatedAt(Dates.nowUTC());
+    @Override
+    public List<Task> getNextTasks(String assignee, int count) {
+        if (!assigneeTaskQueues.isLoaded()) {
+            return taskRepository.findByAssignedTo(assignee).stream()
+                    .filter(task -> task.getStatus() == Task.TaskStatus.PENDING)
+                    .sorted(NEXT_TASK_ORDER)
+                    .limit(count)
+                    .collect(Collectors.toList());
+        }
+        List<Long> ids = assigneeTaskQueues.peek(assignee, count);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // findAllById does not keep the order of the ids
+        Map<Long, Task> byId = new HashMap<>();
+        for (Task task : taskRepository.findAllById(ids)) {
+            byId.put(task.getId(), task);
+        }
+        List<Task> tasks = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Task task = byId.get(id);
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Task> claimTask(Long taskId, String assignee) {
+        if (TenantContext.current().isPresent() && !taskRepository.existsById(taskId)) {
+            return Optional.empty();
+        }
+        Date now = Dates.nowUTC();
+        int claimed = taskRepository.claim(taskId, assignee, Task.TaskStatus.PENDING, Task.TaskStatus.IN_PROGRESS, now);
+        if (claimed == 0) {
+            return Optional.empty();
+        }
+        return taskRepository.findById(taskId).map(task -> {
+            statusHistory.record(StatusChange.EntityType.TASK, taskId, task.getDonationGroup(), Task.TaskStatus.IN_PROGRESS, now);
+            return tracked(task);
+        });
+    }
+
+    @Override
+    @Transactional
+    public Optional<Task> claimNextTask(String assignee) {
+        // A candidate can lose the race to another claim, so try the next few in order
+        for (Long id : assigneeTaskQueues.peek(assignee, CLAIM_CANDIDATES)) {
+            Optional<Task> claimed = claimTask(id, assignee);
+            if (claimed.isPresent()) {
+                return claimed;
+            }
+        }
+        return Optional.empty();
+    }
+
+    // The row as just updated, for the response and the in-memory structures
+    private Task reloaded(Long taskId) {
+        return tracked(taskRepository.findById(taskId)
+                .orElseThrow(() -> new EntityNotFoundException("Task not found with ID: " + taskId)));
+    }
+
+    // A task belongs to its box's donation group, else its transport's, else keeps its own. The references may
+    // be id-only (as sent by clients), so the group is looked up when missing; boxes come from the second-level cache.
+    private String donationGroupOf(Task task) {
+        String group = null;
+        Box box = task.getRelatedBox();
+        if (box != null && box.getId() != null) {
+            group = box.getDonationGroup() != null ? box.getDonationGroup()
+                    : boxRepository.findById(box.getId()).map(Box::getDonationGroup).orElse(null);
+        }
+        Transport transport = task.getRelatedTransport();
+        if (group == null && transport != null && transport.getId() != null) {
+            group = transport.getDonationGroup() != null ? transport.getDonationGroup()
+                    : transportRepository.findById(transport.getId()).map(Transport::getDonationGroup).orElse(null);
+        }
+        return group != null ? group : task.getDonationGroup();
+    }
+
+    // Loads by id and bulk updates are not filtered by tenant; this count query is
+    private void checkTenant(Long taskId) {
+        if (TenantContext.current().isPresent() && !taskRepository.existsById(taskId)) {
+            throw new EntityNotFoundException("Task not found with ID: " + taskId);
+        }
+    }
+
+    // A saved task's status goes to the history if it differs from the stored one (null for a new task)
+    private Task recorded(Task task, Task.TaskStatus previousStatus) {
+        if (task.getStatus() != previousStatus) {
+            statusHistory.record(StatusChange.EntityType.TASK, task.getId(), task.getDonationGroup(), task.getStatus(),
+                    task.getUpdatedAt());
+        }
+        return task;
+    }
 
-        return taskRepository.save(task);
+    // Keeps the in-memory overdue tracker, assignee queues, search index and calendar cache in step with a saved task
+    private Task tracked(Task task) {
+        overdueTaskTracker.taskSaved(task);
+        assigneeTaskQueues.taskSaved(task);
+        searchIndex.indexAfterCommit(task);
+        calendarHistogram.evictAfterCommit(task.getDonationGroup(), task.getDueDate());
+        return task;
     }
 
     // Helper method to create a task with a local date
+    @Transactional
     public Task createTask(Task.TaskType taskType, String description, LocalDate dueLocalDate, Task.TaskPriority priority) {
         Task task = new Task();
         task.setTaskType(taskType);
@@ -136,8 +484,9 @@ public class TaskServiceImpl implements TaskService {
         task.setStatus(Task.TaskStatus.PENDING);
         task.setCreatedAt(Dates.nowUTC());
         task.setUpdatedAt(Dates.nowUTC());
+        task.setDonationGroup(TenantContext.current().orElse(null));
 
-        return taskRepository.save(task);
+        return recorded(tracked(taskRepository.save(task)), null);
     }
 
     // Helper method to get tasks due today
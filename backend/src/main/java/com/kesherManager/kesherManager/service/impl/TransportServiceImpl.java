@@ -1,29 +1,77 @@
 package com.kesherManager.kesherManager.service.impl;
 
+import com.kesherManager.kesherManager.calendar.CalendarHistogram;
 import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.StatusChange;
 import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.TaskRepository;
 import com.kesherManager.kesherManager.repository.TransportRepository;
+import com.kesherManager.kesherManager.search.AutocompleteIndex;
+import com.kesherManager.kesherManager.search.SearchIndex;
+import com.kesherManager.kesherManager.service.BatchResult;
+import com.kesherManager.kesherManager.service.StatusHistory;
 import com.kesherManager.kesherManager.service.TransportService;
+import com.kesherManager.kesherManager.tenant.ForeignTenantException;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import com.kesherManager.kesherManager.util.BatchInserts;
 import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
 import org.joda.time.LocalTime;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.kesherManager.kesherManager.util.Dates ;
 
 import javax.persistence.EntityNotFoundException;
+import javax.validation.Validator;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
+@Transactional(readOnly = true)
 public class TransportServiceImpl implements TransportService {
 
+    // Same columns Hibernate writes for Transport, but quantity: it has no accessors, so requests never set it
+    private static final String INSERT_TRANSPORT = "insert into transports (source_box_id, destination_type, " +
+            "destination_box_id, destination_id, destination_name, scheduled_date, completion_date, status, notes, " +
+            "created_by, driver_name, driver_phone, donation_group, created_at, updated_at, partition_date) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final TransportRepository transportRepository;
+    private final BoxRepository boxRepository;
+    private final TaskRepository taskRepository;
+    private final SearchIndex searchIndex;
+    private final StatusHistory statusHistory;
+    private final CalendarHistogram calendarHistogram;
+    private final AutocompleteIndex autocompleteIndex;
+    private final JdbcTemplate jdbc;
+    private final Validator validator;
 
     @Autowired
-    public TransportServiceImpl(TransportRepository transportRepository) {
+    public TransportServiceImpl(TransportRepository transportRepository, BoxRepository boxRepository,
+                                TaskRepository taskRepository, SearchIndex searchIndex, StatusHistory statusHistory,
+                                CalendarHistogram calendarHistogram, AutocompleteIndex autocompleteIndex, JdbcTemplate jdbc,
+                                Validator validator) {
         this.transportRepository = transportRepository;
+        this.boxRepository = boxRepository;
+        this.taskRepository = taskRepository;
+        this.searchIndex = searchIndex;
+        this.statusHistory = statusHistory;
+        this.calendarHistogram = calendarHistogram;
+        this.autocompleteIndex = autocompleteIndex;
+        this.jdbc = jdbc;
+        this.validator = validator;
     }
 
     @Override
@@ -33,23 +81,137 @@ public class TransportServiceImpl implements TransportService {
 
     @Override
     public Optional<Transport> getTransportById(Long id) {
-        return transportRepository.findById(id);
+        // Loads by id are not filtered by tenant
+        return transportRepository.findById(id).filter(transport -> TenantContext.allows(transport.getDonationGroup()));
     }
 
     @Override
+    @Transactional
     public Transport saveTransport(Transport transport) {
         // Update timestamps before saving
         if (transport.getId() == null) {
             transport.setCreatedAt(Dates.nowUTC());
         }
         transport.setUpdatedAt(Dates.nowUTC());
+        Transport.TransportStatus previousStatus = null;
+        if (transport.getId() != null) {
+            checkTenant(transport.getId());
+            // The stored status; the save below merges into the row loaded here instead of loading it again
+            previousStatus = transportRepository.findById(transport.getId()).map(Transport::getStatus).orElse(null);
+        }
+        transport.setDonationGroup(TenantContext.resolve(donationGroupOf(transport.getSourceBox())));
+
+        Transport saved = indexed(transportRepository.save(transport));
+        // The status goes to the history if it differs from the stored one (null for a new transport)
+        if (saved.getStatus() != previousStatus) {
+            statusHistory.record(StatusChange.EntityType.TRANSPORT, saved.getId(), saved.getDonationGroup(), saved.getStatus(),
+                    saved.getUpdatedAt());
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public BatchResult createTransports(List<Transport> transports) {
+        // One query for all referenced boxes, filtered by tenant: another group's boxes count as missing
+        Set<Long> boxIds = new HashSet<>();
+        for (Transport transport : transports) {
+            if (transport.getSourceBox() != null && transport.getSourceBox().getId() != null) {
+                boxIds.add(transport.getSourceBox().getId());
+            }
+            if (transport.getDestinationBox() != null && transport.getDestinationBox().getId() != null) {
+                boxIds.add(transport.getDestinationBox().getId());
+            }
+        }
+        Map<Long, Box> boxes = new HashMap<>();
+        boxRepository.findAllById(boxIds).forEach(box -> boxes.put(box.getId(), box));
+
+        Date now = Dates.nowUTC();
+        BatchResult.Item[] items = new BatchResult.Item[transports.size()];
+        List<Transport> valid = new ArrayList<>();
+        for (int i = 0; i < transports.size(); i++) {
+            Transport transport = transports.get(i);
+            List<String> errors = validator.validate(transport).stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .collect(Collectors.toList());
+            if (transport.getSourceBox() == null) {
+                errors.add("sourceBox: is required");
+            } else {
+                Box box = boxes.get(transport.getSourceBox().getId());
+                if (box == null) {
+                    errors.add("sourceBox: no box with id " + transport.getSourceBox().getId());
+                }
+                transport.setSourceBox(box);
+            }
+            if (transport.getDestinationBox() != null) {
+                Box box = boxes.get(transport.getDestinationBox().getId());
+                if (box == null) {
+                    errors.add("destinationBox: no box with id " + transport.getDestinationBox().getId());
+                }
+                transport.setDestinationBox(box);
+            }
+            if (errors.isEmpty()) {
+                try {
+                    transport.setDonationGroup(TenantContext.resolve(transport.getSourceBox().getDonationGroup()));
+                } catch (ForeignTenantException e) {
+                    errors.add("donationGroup: " + e.getMessage());
+                }
+            }
+            if (!errors.isEmpty()) {
+                items[i] = BatchResult.Item.rejected(i, errors);
+                continue;
+            }
+            transport.setId(null);
+            transport.setCreatedAt(now);
+            transport.setUpdatedAt(now);
+            valid.add(transport);
+        }
 
-        return transportRepository.save(transport);
+        BatchInserts.insert(jdbc, INSERT_TRANSPORT, valid, (statement, transport) -> {
+            statement.setLong(1, transport.getSourceBox().getId());
+            statement.setString(2, BatchInserts.name(transport.getDestinationType()));
+            statement.setObject(3, transport.getDestinationBox() != null ? transport.getDestinationBox().getId() : null, Types.BIGINT);
+            statement.setObject(4, transport.getDestinationId(), Types.BIGINT);
+            statement.setString(5, transport.getDestinationName());
+            statement.setTimestamp(6, BatchInserts.timestamp(transport.getScheduledDate()));
+            statement.setTimestamp(7, BatchInserts.timestamp(transport.getCompletionDate()));
+            statement.setString(8, BatchInserts.name(transport.getStatus()));
+            statement.setString(9, transport.getNotes());
+            statement.setString(10, transport.getCreatedBy());
+            statement.setString(11, transport.getDriverName());
+            statement.setString(12, transport.getDriverPhone());
+            statement.setString(13, transport.getDonationGroup());
+            statement.setTimestamp(14, BatchInserts.timestamp(transport.getCreatedAt()));
+            statement.setTimestamp(15, BatchInserts.timestamp(transport.getUpdatedAt()));
+            statement.setTimestamp(16, BatchInserts.timestamp(
+                    Transport.partitionDate(transport.getScheduledDate(), transport.getCreatedAt())));
+        }, Transport::setId);
+
+        int next = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null) {
+                Transport transport = indexed(valid.get(next++));
+                statusHistory.record(StatusChange.EntityType.TRANSPORT, transport.getId(), transport.getDonationGroup(),
+                        transport.getStatus(), transport.getUpdatedAt());
+                items[i] = BatchResult.Item.created(i, transport.getId());
+            }
+        }
+        return new BatchResult(Arrays.asList(items));
     }
 
     @Override
+    @Transactional
     public void deleteTransport(Long id) {
+        checkTenant(id);
+        Date now = Dates.nowUTC();
+        taskRepository.detachTransport(id, now);
+        // Loaded into the persistence context, where deleteById finds it again
+        String donationGroup = transportRepository.findById(id).map(Transport::getDonationGroup).orElse(null);
         transportRepository.deleteById(id);
+        statusHistory.recordDeleted(StatusChange.EntityType.TRANSPORT, id, donationGroup, now);
+        searchIndex.deleteTransportAfterCommit(id);
+        calendarHistogram.clearAfterCommit();
+        autocompleteIndex.transportDeleted(id);
     }
 
     @Override
@@ -109,19 +271,51 @@ public class TransportServiceImpl implements TransportService {
     }
 
     @Override
-    public Transport updateStatus(Long transportId, Transport.TransportStatus newStatus) {
-        Transport transport = transportRepository.findById(transportId)
-                .orElseThrow(() -> new EntityNotFoundException("Transport not found with ID: " + transportId));
-
-        transport.setStatus(newStatus);
-        transport.setUpdatedAt(Dates.nowUTC());
+    public List<Transport> getTransportsOnDay(LocalDate day, Transport.TransportStatus status) {
+        // between is inclusive: up to the last millisecond before the next day
+        Date startOfDay = Dates.atUtc(day);
+        Date endOfDay = new Date(Dates.atUtc(day.plusDays(1)).getTime() - 1);
+        return transportRepository.findByScheduledDateBetweenAndStatus(startOfDay, endOfDay, status);
+    }
 
-        // If the transport is being completed, set the completion date
-        if (newStatus == Transport.TransportStatus.COMPLETED && transport.getCompletionDate() == null) {
-            transport.setCompletionDate(Dates.nowUTC());
+    @Override
+    @Transactional
+    public Transport updateStatus(Long transportId, Transport.TransportStatus newStatus) {
+        // One UPDATE of the changed columns instead of loading the transport and writing the whole row back;
+        // completing it also sets the completion date if there is none yet
+        checkTenant(transportId);
+        Date now = Dates.nowUTC();
+        int updated = newStatus == Transport.TransportStatus.COMPLETED
+                ? transportRepository.markCompleted(transportId, newStatus, now)
+                : transportRepository.updateStatus(transportId, newStatus, now);
+        // Nothing updated: no such transport (this throws), or it already had the status
+        Transport transport = reloaded(transportId);
+        if (updated > 0) {
+            statusHistory.record(StatusChange.EntityType.TRANSPORT, transportId, transport.getDonationGroup(), newStatus, now);
         }
+        return transport;
+    }
 
-        return transportRepository.save(transport);
+    @Override
+    @Transactional
+    public Optional<Transport> updateStatus(Long transportId, Transport.TransportStatus expectedStatus,
+                                            Transport.TransportStatus newStatus) {
+        checkTenant(transportId);
+        Date now = Dates.nowUTC();
+        int updated = newStatus == Transport.TransportStatus.COMPLETED
+                ? transportRepository.markCompleted(transportId, expectedStatus, newStatus, now)
+                : transportRepository.updateStatus(transportId, expectedStatus, newStatus, now);
+        if (updated == 0) {
+            if (!transportRepository.existsById(transportId)) {
+                throw new EntityNotFoundException("Transport not found with ID: " + transportId);
+            }
+            return Optional.empty();
+        }
+        Transport transport = reloaded(transportId);
+        if (newStatus != expectedStatus) {
+            statusHistory.record(StatusChange.EntityType.TRANSPORT, transportId, transport.getDonationGroup(), newStatus, now);
+        }
+        return Optional.of(transport);
     }
 
     @Override
@@ -140,20 +334,60 @@ public class TransportServiceImpl implements TransportService {
     }
 
     @Override
+    @Transactional
     public Transport completeTransport(Long transportId, Date completionDate) {
-        Transport transport = transportRepository.findById(transportId)
-                .orElseThrow(() -> new EntityNotFoundException("Transport not found with ID: " + transportId));
-
-        transport.setStatus(Transport.TransportStatus.COMPLETED);
-        transport.setCompletionDate(completionDate != null ? completionDate : Dates.nowUTC());
-        transport.setUpdatedAt(Dates.nowUTC());
-
-        return transportRepository.save(transport);
+        checkTenant(transportId);
+        Date now = Dates.nowUTC();
+        // Completing a completed transport again only corrects its completion date
+        boolean completed = transportRepository.existsByIdAndStatus(transportId, Transport.TransportStatus.COMPLETED);
+        int updated = transportRepository.complete(transportId, Transport.TransportStatus.COMPLETED,
+                completionDate != null ? completionDate : now, now);
+        if (updated == 0) {
+            throw new EntityNotFoundException("Transport not found with ID: " + transportId);
+        }
+        Transport transport = reloaded(transportId);
+        if (!completed) {
+            statusHistory.record(StatusChange.EntityType.TRANSPORT, transportId, transport.getDonationGroup(),
+                    Transport.TransportStatus.COMPLETED, now);
+        }
+        return transport;
     }
 
     // Helper method to handle Joda LocalDate
+    @Transactional
     public Transport completeTransport(Long transportId, LocalDate completionLocalDate) {
         Date completionDate = completionLocalDate != null ? Dates.atUtc(completionLocalDate) : Dates.nowUTC();
         return completeTransport(transportId, completionDate);
     }
-}
\ No newline at end of file
+
+    // The row as just updated, for the response and the search index
+    private Transport reloaded(Long transportId) {
+        return indexed(transportRepository.findById(transportId)
+                .orElseThrow(() -> new EntityNotFoundException("Transport not found with ID: " + transportId)));
+    }
+
+    // A transport belongs to its source box's donation group. The box may be id-only (as sent by clients),
+    // then it is looked up, from the second-level cache.
+    private String donationGroupOf(Box sourceBox) {
+        if (sourceBox == null || sourceBox.getId() == null) {
+            return null;
+        }
+        return sourceBox.getDonationGroup() != null ? sourceBox.getDonationGroup()
+                : boxRepository.findById(sourceBox.getId()).map(Box::getDonationGroup).orElse(null);
+    }
+
+    // Loads by id and bulk updates are not filtered by tenant; this count query is
+    private void checkTenant(Long transportId) {
+        if (TenantContext.current().isPresent() && !transportRepository.existsById(transportId)) {
+            throw new EntityNotFoundException("Transport not found with ID: " + transportId);
+        }
+    }
+
+    // Keeps the search and autocomplete indexes and the calendar cache in step with a saved transport
+    private Transport indexed(Transport transport) {
+        searchIndex.indexAfterCommit(transport);
+        autocompleteIndex.transportSaved(transport);
+        calendarHistogram.evictAfterCommit(transport.getDonationGroup(), transport.getScheduledDate());
+        return transport;
+    }
+}
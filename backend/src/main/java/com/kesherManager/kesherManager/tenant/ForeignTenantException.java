@@ -0,0 +1,13 @@
+package com.kesherManager.kesherManager.tenant;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A write for another donation group than the request's tenant
+@ResponseStatus(HttpStatus.FORBIDDEN)
+public class ForeignTenantException extends RuntimeException {
+
+    public ForeignTenantException(String donationGroup) {
+        super("Not allowed to write to donation group " + donationGroup);
+    }
+}
@@ -0,0 +1,19 @@
+package com.kesherManager.kesherManager.tenant;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// kesher.tenancy.* - how requests are scoped to a donation group (see TenantContext)
+@ConfigurationProperties(prefix = "kesher.tenancy")
+public class TenancyProperties {
+
+    // Request header naming the caller's donation group
+    private String header = "X-Donation-Group";
+
+    public String getHeader() {
+        return header;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+}
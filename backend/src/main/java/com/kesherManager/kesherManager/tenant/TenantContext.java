@@ -0,0 +1,54 @@
+package com.kesherManager.kesherManager.tenant;
+
+import java.util.Optional;
+
+/*
+ * The donation group the current request is scoped to (see TenantFilter). Without one, nothing is scoped:
+ * jobs, startup and callers that send no tenant header see every group.
+ *
+ * Scoping is applied by TenantJpaTransactionManager (the "tenant" Hibernate filter on boxes, tasks and
+ * transports) and by the caches that are partitioned per group (calendar.CalendarHistogram,
+ * search.AutocompleteIndex).
+ */
+public final class TenantContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static Optional<String> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    public static void set(String donationGroup) {
+        if (donationGroup == null || donationGroup.isBlank()) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(donationGroup.trim());
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // Whether a row of the given donation group is visible to the current tenant
+    public static boolean allows(String donationGroup) {
+        String tenant = CURRENT.get();
+        return tenant == null || tenant.equals(donationGroup);
+    }
+
+    // The donation group a row being written gets: its own, or the tenant's if it has none. A tenant
+    // cannot write rows of another group.
+    public static String resolve(String donationGroup) {
+        String tenant = CURRENT.get();
+        if (donationGroup == null || donationGroup.isBlank()) {
+            return tenant != null ? tenant : donationGroup;
+        }
+        if (tenant != null && !tenant.equals(donationGroup)) {
+            throw new ForeignTenantException(donationGroup);
+        }
+        return donationGroup;
+    }
+}
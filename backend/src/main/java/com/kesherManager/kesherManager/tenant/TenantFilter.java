@@ -0,0 +1,42 @@
+package com.kesherManager.kesherManager.tenant;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+// Scopes each API request to the donation group in its tenant header, if any. Header values are ASCII,
+// so Hebrew group names are sent percent-encoded (UTF-8).
+public class TenantFilter extends OncePerRequestFilter {
+
+    private final String header;
+
+    public TenantFilter(String header) {
+        this.header = header;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String value = request.getHeader(header);
+        if (value != null) {
+            try {
+                value = URLDecoder.decode(value, StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed " + header + " header");
+                return;
+            }
+        }
+        TenantContext.set(value);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+}
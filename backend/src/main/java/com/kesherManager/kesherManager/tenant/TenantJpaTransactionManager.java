@@ -0,0 +1,31 @@
+package com.kesherManager.kesherManager.tenant;
+
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+ * Enables the "tenant" filter (see model.Box) on every transaction's session while a tenant is set, so
+ * queries on boxes, tasks and transports only return the caller's donation group. That includes a session
+ * the transaction only joins, such as one opened for the whole request; the filter then stays on for the
+ * rest of that request, which has the same tenant throughout.
+ *
+ * Hibernate applies filters to queries, not to loads by id or bulk UPDATE/DELETE statements; the services
+ * check those against TenantContext themselves.
+ */
+public class TenantJpaTransactionManager extends JpaTransactionManager {
+
+    public static final String FILTER = "tenant";
+    public static final String PARAMETER = "donationGroup";
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        TenantContext.current().ifPresent(tenant -> {
+            EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+            holder.getEntityManager().unwrap(Session.class).enableFilter(FILTER).setParameter(PARAMETER, tenant);
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.kesherManager.kesherManager.util;
+
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+// Inserts rows through JDBC batches and hands back their generated ids. Hibernate does not batch inserts of
+// IDENTITY entities, it needs each id before the next insert.
+public class BatchInserts {
+
+    public static final int BATCH_SIZE = 500;
+
+    private BatchInserts() {
+    }
+
+    // Runs on the current transaction's connection
+    public static <T> void insert(JdbcTemplate jdbc, String sql, List<T> rows,
+                                  ParameterizedPreparedStatementSetter<T> binder, BiConsumer<T, Long> generatedId) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                    List<T> batch = rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE));
+                    for (T row : batch) {
+                        binder.setValues(statement, row);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (T row : batch) {
+                            if (!keys.next()) {
+                                throw new DataRetrievalFailureException("Fewer generated ids than inserted rows");
+                            }
+                            generatedId.accept(row, keys.getLong("id"));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // Column values as Hibernate would write them
+    public static Timestamp timestamp(Date date) {
+        return date == null ? null : new Timestamp(date.getTime());
+    }
+
+    public static String name(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+}
@@ -0,0 +1,61 @@
+package com.kesherManager.kesherManager.workload;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Bounded concurrency with a bounded, fair wait queue for one workload class
+public class Bulkhead {
+
+    public enum Admission {
+        ADMITTED, QUEUE_FULL, TIMED_OUT
+    }
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long timeoutNanos;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public Bulkhead(WorkloadProperties.Limits limits) {
+        this.maxConcurrent = limits.getMaxConcurrent();
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxQueued = limits.getMaxQueued();
+        this.timeoutNanos = limits.getQueueTimeout().toNanos();
+    }
+
+    // ADMITTED means a permit is held and must be given back with release()
+    public Admission acquire() throws InterruptedException {
+        // Timed, so it does not barge ahead of waiting requests
+        if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            return Admission.ADMITTED;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return Admission.QUEUE_FULL;
+        }
+        try {
+            return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS) ? Admission.ADMITTED : Admission.TIMED_OUT;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int queued() {
+        return queued.get();
+    }
+
+    // Retry-After for a turned away request: roughly one queue timeout
+    public long retryAfterSeconds() {
+        return Math.max(1, Duration.ofNanos(timeoutNanos).toSeconds());
+    }
+}
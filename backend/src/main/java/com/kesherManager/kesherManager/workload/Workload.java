@@ -0,0 +1,12 @@
+package com.kesherManager.kesherManager.workload;
+
+// Request classes that get separate bulkheads: quick interactive calls (drivers updating a status) and
+// bulk or long-running ones (imports, full lists, batches), see WorkloadProperties.bulkEndpoints
+public enum Workload {
+    INTERACTIVE, BULK;
+
+    // Metric tag value
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,41 @@
+package com.kesherManager.kesherManager.workload;
+
+import java.util.function.Supplier;
+
+// The workload class of the current thread's work, set by WorkloadFilter for requests and by background jobs.
+// WorkloadRoutingDataSource hands BULK work connections from its own pool.
+public final class WorkloadContext {
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    public static Workload current() {
+        Workload workload = CURRENT.get();
+        return workload != null ? workload : Workload.INTERACTIVE;
+    }
+
+    public static void set(Workload workload) {
+        CURRENT.set(workload);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // Runs work as the given class, then restores the previous one
+    public static <T> T call(Workload workload, Supplier<T> work) {
+        Workload previous = CURRENT.get();
+        CURRENT.set(workload);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
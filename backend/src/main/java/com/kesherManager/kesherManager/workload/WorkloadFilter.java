@@ -0,0 +1,182 @@
+package com.kesherManager.kesherManager.workload;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/*
+ * Admission control per workload class. BULK endpoints (kesher.workload.bulk-endpoints) and interactive ones
+ * have separate bulkheads: a class can hold at most max-concurrent request threads, and only max-queued more
+ * wait for one. Beyond that a request is answered 429 at once, and one that waited queue-timeout gets 503,
+ * both with Retry-After. A big import thus occupies a few threads and the bulk connection pool
+ * (WorkloadRoutingDataSource), never the threads and connections status updates need.
+ *
+ * A request that goes async (the streamed /api/v2 responses) keeps its permit until the response has ended,
+ * not just until the first dispatch returns; its async dispatches pass through without a bulkhead of their own.
+ *
+ * Timed per class: kesher.workload.requests (arrival to response, by outcome) and kesher.workload.queue.wait.
+ */
+public class WorkloadFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkloadFilter.class);
+
+    private final List<String[]> bulkEndpoints;
+    private final Map<Workload, Bulkhead> bulkheads = new EnumMap<>(Workload.class);
+    private final Map<Workload, Timer> queueWait = new EnumMap<>(Workload.class);
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper pathHelper = new UrlPathHelper();
+
+    public WorkloadFilter(WorkloadProperties properties, MeterRegistry meterRegistry) {
+        this.bulkEndpoints = properties.getBulkEndpoints().stream()
+                .map(endpoint -> endpoint.trim().split("\\s+", 2))
+                .collect(Collectors.toList());
+        this.meterRegistry = meterRegistry;
+        for (Workload workload : Workload.values()) {
+            Bulkhead bulkhead = new Bulkhead(properties.limits(workload));
+            bulkheads.put(workload, bulkhead);
+            Gauge.builder("kesher.workload.active", bulkhead, Bulkhead::active)
+                    .description("Requests of the class being handled")
+                    .tag("class", workload.tag())
+                    .register(meterRegistry);
+            Gauge.builder("kesher.workload.queued", bulkhead, Bulkhead::queued)
+                    .description("Requests of the class waiting to be handled")
+                    .tag("class", workload.tag())
+                    .register(meterRegistry);
+            queueWait.put(workload, Timer.builder("kesher.workload.queue.wait")
+                    .description("Time requests of the class waited for admission")
+                    .tag("class", workload.tag())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Workload workload = classify(request);
+        Bulkhead bulkhead = bulkheads.get(workload);
+        long arrived = System.nanoTime();
+
+        Bulkhead.Admission admission;
+        try {
+            admission = bulkhead.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admission = Bulkhead.Admission.TIMED_OUT;
+        }
+        queueWait.get(workload).record(System.nanoTime() - arrived, TimeUnit.NANOSECONDS);
+
+        if (admission != Bulkhead.Admission.ADMITTED) {
+            HttpStatus status = admission == Bulkhead.Admission.QUEUE_FULL ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+            log.warn("{} {} turned away ({} {}: {} active, {} queued)", request.getMethod(), request.getRequestURI(),
+                    workload.tag(), admission, bulkhead.active(), bulkhead.queued());
+            response.setStatus(status.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(bulkhead.retryAfterSeconds()));
+            record(workload, admission, arrived);
+            return;
+        }
+
+        WorkloadContext.set(workload);
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        } finally {
+            WorkloadContext.clear();
+            if (async) {
+                // The container completes the response only after this dispatch returns, so the listener
+                // cannot miss the end
+                request.getAsyncContext().addListener(new ReleaseWhenDone(workload, bulkhead, admission, arrived));
+            } else {
+                bulkhead.release();
+                record(workload, admission, arrived);
+            }
+        }
+    }
+
+    Workload classify(HttpServletRequest request) {
+        String path = pathHelper.getPathWithinApplication(request);
+        for (String[] endpoint : bulkEndpoints) {
+            if (endpoint.length == 2 && endpoint[0].equalsIgnoreCase(request.getMethod())
+                    && pathMatcher.match(endpoint[1], path)) {
+                return Workload.BULK;
+            }
+        }
+        return Workload.INTERACTIVE;
+    }
+
+    // Gives an async request's permit back once, however its response ends
+    private final class ReleaseWhenDone implements AsyncListener {
+
+        private final Workload workload;
+        private final Bulkhead bulkhead;
+        private final Bulkhead.Admission admission;
+        private final long arrived;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseWhenDone(Workload workload, Bulkhead bulkhead, Bulkhead.Admission admission, long arrived) {
+            this.workload = workload;
+            this.bulkhead = bulkhead;
+            this.admission = admission;
+            this.arrived = arrived;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        // Started again from an async dispatch: listeners are dropped, so stay registered
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.release();
+                record(workload, admission, arrived);
+            }
+        }
+    }
+
+    private void record(Workload workload, Bulkhead.Admission admission, long arrived) {
+        Timer.builder("kesher.workload.requests")
+                .description("API requests by workload class, from arrival to response")
+                .tag("class", workload.tag())
+                .tag("outcome", admission.name().toLowerCase())
+                .register(meterRegistry)
+                .record(System.nanoTime() - arrived, TimeUnit.NANOSECONDS);
+    }
+}
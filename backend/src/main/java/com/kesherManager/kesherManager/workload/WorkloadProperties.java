@@ -0,0 +1,109 @@
+package com.kesherManager.kesherManager.workload;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// kesher.workload.* - bulkheads per request class (see WorkloadFilter)
+@ConfigurationProperties(prefix = "kesher.workload")
+public class WorkloadProperties {
+
+    // "<METHOD> <path pattern>" of the BULK endpoints; every other /api request is INTERACTIVE
+    private List<String> bulkEndpoints = new ArrayList<>(List.of(
+            "POST /api/import/**",
+            "GET /api/boxes",
+            "GET /api/tasks",
+            "GET /api/transports",
+            "POST /api/*/batch",
+            "POST /api/recurrence-rules/generate"));
+
+    private Limits interactive = new Limits(40, 100, Duration.ofSeconds(5));
+
+    private Limits bulk = new Limits(2, 8, Duration.ofSeconds(30));
+
+    // Connections of the separate pool BULK work uses; 0 shares the main pool
+    private int bulkPoolSize = 2;
+
+    public static class Limits {
+
+        // Requests of the class handled at the same time
+        private int maxConcurrent;
+
+        // Requests waiting for one of those; beyond this they are turned away with 429
+        private int maxQueued;
+
+        // How long a request waits before it is turned away with 503
+        private Duration queueTimeout;
+
+        public Limits() {
+        }
+
+        Limits(int maxConcurrent, int maxQueued, Duration queueTimeout) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.queueTimeout = queueTimeout;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public Duration getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public void setQueueTimeout(Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+        }
+    }
+
+    public List<String> getBulkEndpoints() {
+        return bulkEndpoints;
+    }
+
+    public void setBulkEndpoints(List<String> bulkEndpoints) {
+        this.bulkEndpoints = bulkEndpoints;
+    }
+
+    public Limits getInteractive() {
+        return interactive;
+    }
+
+    public void setInteractive(Limits interactive) {
+        this.interactive = interactive;
+    }
+
+    public Limits getBulk() {
+        return bulk;
+    }
+
+    public void setBulk(Limits bulk) {
+        this.bulk = bulk;
+    }
+
+    public Limits limits(Workload workload) {
+        return workload == Workload.BULK ? bulk : interactive;
+    }
+
+    public int getBulkPoolSize() {
+        return bulkPoolSize;
+    }
+
+    public void setBulkPoolSize(int bulkPoolSize) {
+        this.bulkPoolSize = bulkPoolSize;
+    }
+}
@@ -0,0 +1,56 @@
+package com.kesherManager.kesherManager.workload;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+// Connections for BULK work (see WorkloadContext) come from a small pool of their own to the same database,
+// created on first use, so imports and long lists cannot take the connections interactive requests need. With
+// a read replica, the primary and the replica pool are each wrapped, and the read/write routing in front
+// still picks the database (see config.WorkloadConfig).
+public class WorkloadRoutingDataSource extends DelegatingDataSource {
+
+    private final Supplier<HikariDataSource> bulkPoolFactory;
+    private volatile HikariDataSource bulkPool;
+
+    public WorkloadRoutingDataSource(DataSource targetDataSource, Supplier<HikariDataSource> bulkPoolFactory) {
+        super(targetDataSource);
+        this.bulkPoolFactory = bulkPoolFactory;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return WorkloadContext.current() == Workload.BULK ? bulkPool().getConnection() : super.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return WorkloadContext.current() == Workload.BULK ? bulkPool().getConnection(username, password)
+                : super.getConnection(username, password);
+    }
+
+    private HikariDataSource bulkPool() {
+        HikariDataSource pool = bulkPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = bulkPool;
+                if (pool == null) {
+                    pool = bulkPoolFactory.get();
+                    bulkPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    // The main pool is closed with its bean
+    public void closeBulkPool() {
+        if (bulkPool != null) {
+            bulkPool.close();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+-- Monthly range partitioning of transports and tasks.
+--
+-- Tables created earlier by Hibernate are converted in place: renamed, recreated as partitioned tables,
+-- copied and dropped. The partition key is partition_date: the scheduled date of a transport and the due date
+-- of a task, or the creation time when there is none (see Transport/Task.partitionDate). It is never null, so
+-- the primary key can be (id, partition_date), as a unique key on a partitioned table has to contain the
+-- partition key. Rows outside the created months go to the DEFAULT partition.
+--
+-- A foreign key to transports would have to name its partition_date as well, so tasks.related_transport_id
+-- has none (see Task.relatedTransport); TransportService.deleteTransport detaches the tasks instead.
+-- Foreign keys to boxes are added by Hibernate's schema update as before.
+--
+-- <table>_archive has the same shape and monthly partitions; PartitionArchiveJob moves old months there.
+
+-- Creates <parent>_YYYY_MM for the month starting at month_start, taking over any rows of that month that
+-- were parked in <parent>_default. Returns false if the partition already exists.
+CREATE OR REPLACE FUNCTION kesher_ensure_month_partition(parent text, month_start date) RETURNS boolean
+LANGUAGE plpgsql AS $$
+DECLARE
+    part text := parent || '_' || to_char(month_start, 'YYYY_MM');
+    month_end date := (month_start + interval '1 month')::date;
+    default_part text := parent || '_default';
+    key text;
+BEGIN
+    IF to_regclass(quote_ident(part)) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    SELECT a.attname INTO key
+    FROM pg_partitioned_table p
+    JOIN pg_attribute a ON a.attrelid = p.partrelid AND a.attnum = p.partattrs[0]
+    WHERE p.partrelid = to_regclass(quote_ident(parent));
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', part, parent);
+    IF to_regclass(quote_ident(default_part)) IS NOT NULL THEN
+        -- ATTACH fails while the default partition still holds rows of the new range
+        EXECUTE format('WITH moved AS (DELETE FROM %I WHERE %I >= %L AND %I < %L RETURNING *) '
+                       'INSERT INTO %I SELECT * FROM moved',
+                       default_part, key, month_start, key, month_end, part);
+    END IF;
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   parent, part, month_start, month_end);
+    RETURN true;
+END
+$$;
+
+-- Replaces tbl with a table partitioned by month on partition_date (columns as given), keeping existing rows.
+-- Their partition_date is filled from date_column, else created_at.
+CREATE OR REPLACE FUNCTION kesher_partition_by_month(tbl text, date_column text, columns_ddl text) RETURNS void
+LANGUAGE plpgsql AS $$
+DECLARE
+    old text := tbl || '_unpartitioned';
+    seq text := tbl || '_id_seq';
+    extra record;
+    month_start date;
+    cols text;
+    fill text := format('coalesce(%I, created_at, now())', date_column);
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(quote_ident(tbl))) THEN
+        RETURN;
+    END IF;
+
+    EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I', seq);
+    IF to_regclass(quote_ident(tbl)) IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, old);
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (id bigint NOT NULL DEFAULT nextval(%L::regclass), %s, '
+                   'partition_date timestamp NOT NULL, PRIMARY KEY (id, partition_date)) PARTITION BY RANGE (partition_date)',
+                   tbl, seq, columns_ddl);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', tbl || '_default', tbl);
+    EXECUTE format('CREATE INDEX %I ON %I (%I)', tbl || '_' || date_column || '_idx', tbl, date_column);
+
+    IF to_regclass(quote_ident(old)) IS NOT NULL THEN
+        -- Columns Hibernate added over time that are not declared above come along as they are
+        FOR extra IN
+            SELECT a.attname, format_type(a.atttypid, a.atttypmod) AS type
+            FROM pg_attribute a
+            WHERE a.attrelid = to_regclass(quote_ident(old)) AND a.attnum > 0 AND NOT a.attisdropped
+              AND NOT EXISTS (SELECT 1 FROM pg_attribute b
+                              WHERE b.attrelid = to_regclass(quote_ident(tbl)) AND b.attname = a.attname)
+        LOOP
+            EXECUTE format('ALTER TABLE %I ADD COLUMN %I %s', tbl, extra.attname, extra.type);
+        END LOOP;
+
+        FOR month_start IN
+            EXECUTE format('SELECT DISTINCT date_trunc(''month'', %s)::date FROM %I', fill, old)
+        LOOP
+            PERFORM kesher_ensure_month_partition(tbl, month_start);
+        END LOOP;
+
+        SELECT string_agg(quote_ident(a.attname), ', ' ORDER BY a.attnum) INTO cols
+        FROM pg_attribute a
+        WHERE a.attrelid = to_regclass(quote_ident(old)) AND a.attnum > 0 AND NOT a.attisdropped;
+        EXECUTE format('INSERT INTO %I (%s, partition_date) SELECT %s, %s FROM %I', tbl, cols, cols, fill, old);
+
+        -- The serial sequence belongs to the old table and would be dropped with it
+        EXECUTE format('ALTER SEQUENCE %I OWNED BY NONE', seq);
+        EXECUTE format('DROP TABLE %I CASCADE', old);
+    END IF;
+    EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.id', seq, tbl);
+
+    FOR i IN 0..3 LOOP
+        PERFORM kesher_ensure_month_partition(tbl, (date_trunc('month', now()) + i * interval '1 month')::date);
+    END LOOP;
+
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I (LIKE %I) PARTITION BY RANGE (partition_date)', tbl || '_archive', tbl);
+END
+$$;
+
+SELECT kesher_partition_by_month('transports', 'scheduled_date', '
+    completion_date timestamp,
+    created_at timestamp,
+    created_by varchar(255),
+    destination_id bigint,
+    destination_name varchar(255),
+    destination_type varchar(255),
+    driver_name varchar(255),
+    driver_phone varchar(255),
+    notes varchar(255),
+    quantity varchar(255),
+    scheduled_date timestamp,
+    status varchar(255),
+    updated_at timestamp,
+    destination_box_id bigint,
+    source_box_id bigint NOT NULL');
+
+SELECT kesher_partition_by_month('tasks', 'due_date', '
+    assigned_to varchar(255),
+    created_at timestamp,
+    description varchar(255),
+    due_date timestamp,
+    notes varchar(255),
+    priority varchar(255),
+    status varchar(255),
+    task_category varchar(255),
+    task_type varchar(255),
+    updated_at timestamp,
+    related_box_id bigint,
+    related_transport_id bigint');
@@ -0,0 +1,29 @@
+-- Append-only status history (see StatusHistory). Same shape Hibernate's schema update would create for
+-- StatusChange, so the table exists before the first start under ddl-auto=validate.
+--
+-- Boxes, tasks and transports that already exist get one entry with their current status, as of their last
+-- update, so that as-of counts include them. Nothing is known about their earlier statuses.
+
+CREATE TABLE IF NOT EXISTS status_history (
+    id bigserial PRIMARY KEY,
+    entity_type varchar(16) NOT NULL,
+    entity_id bigint NOT NULL,
+    status varchar(32) NOT NULL,
+    changed_at timestamp NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_status_history_entity ON status_history (entity_type, entity_id, changed_at);
+CREATE INDEX IF NOT EXISTS idx_status_history_type_time ON status_history (entity_type, changed_at);
+
+DO $$
+DECLARE
+    source record;
+BEGIN
+    FOR source IN SELECT * FROM (VALUES ('BOX', 'boxes'), ('TASK', 'tasks'), ('TRANSPORT', 'transports')) AS s(entity_type, tbl)
+    LOOP
+        IF to_regclass(quote_ident(source.tbl)) IS NOT NULL THEN
+            EXECUTE format('INSERT INTO status_history (entity_type, entity_id, status, changed_at) '
+                           'SELECT %L, id, status, coalesce(updated_at, created_at, now()) FROM %I '
+                           'WHERE status IS NOT NULL', source.entity_type, source.tbl);
+        END IF;
+    END LOOP;
+END $$;
@@ -0,0 +1,64 @@
+-- Tenant scoping by donation group (see tenant.TenantContext).
+--
+-- Boxes already carry donation_group. Tasks and transports get their own copy so the tenant filter is a
+-- plain column condition on every table: a transport belongs to its source box's group, a task to its
+-- related box's group, or else its related transport's. The services keep the copy in step (also when a
+-- box moves to another group). Archived rows are filled in as well, the calendar still counts them.
+--
+-- Status history entries carry the group of their entity too (see service.StatusHistory); the existing ones
+-- get the current group of the entity, if it still exists.
+
+ALTER TABLE IF EXISTS tasks ADD COLUMN IF NOT EXISTS donation_group varchar(255);
+ALTER TABLE IF EXISTS tasks_archive ADD COLUMN IF NOT EXISTS donation_group varchar(255);
+ALTER TABLE IF EXISTS transports ADD COLUMN IF NOT EXISTS donation_group varchar(255);
+ALTER TABLE IF EXISTS transports_archive ADD COLUMN IF NOT EXISTS donation_group varchar(255);
+ALTER TABLE IF EXISTS status_history ADD COLUMN IF NOT EXISTS donation_group varchar(255);
+
+DO $$
+DECLARE
+    suffix text;
+BEGIN
+    -- On a new database boxes is only created by Hibernate after the migrations, and there is nothing to fill
+    IF to_regclass('boxes') IS NULL THEN
+        RETURN;
+    END IF;
+    FOREACH suffix IN ARRAY ARRAY['', '_archive']
+    LOOP
+        IF to_regclass('transports' || suffix) IS NOT NULL THEN
+            EXECUTE format('UPDATE %I t SET donation_group = b.donation_group FROM boxes b '
+                           'WHERE t.donation_group IS NULL AND b.id = t.source_box_id', 'transports' || suffix);
+        END IF;
+    END LOOP;
+    FOREACH suffix IN ARRAY ARRAY['', '_archive']
+    LOOP
+        IF to_regclass('tasks' || suffix) IS NOT NULL THEN
+            EXECUTE format('UPDATE %I t SET donation_group = b.donation_group FROM boxes b '
+                           'WHERE t.donation_group IS NULL AND b.id = t.related_box_id', 'tasks' || suffix);
+            EXECUTE format('UPDATE %I t SET donation_group = tr.donation_group '
+                           'FROM (SELECT id, donation_group FROM transports UNION ALL '
+                           '      SELECT id, donation_group FROM transports_archive) tr '
+                           'WHERE t.donation_group IS NULL AND tr.id = t.related_transport_id', 'tasks' || suffix);
+        END IF;
+    END LOOP;
+    UPDATE status_history h SET donation_group = b.donation_group FROM boxes b
+    WHERE h.entity_type = 'BOX' AND h.donation_group IS NULL AND b.id = h.entity_id;
+    FOREACH suffix IN ARRAY ARRAY['', '_archive']
+    LOOP
+        IF to_regclass('tasks' || suffix) IS NOT NULL THEN
+            EXECUTE format('UPDATE status_history h SET donation_group = t.donation_group FROM %I t '
+                           'WHERE h.entity_type = ''TASK'' AND h.donation_group IS NULL AND t.id = h.entity_id',
+                           'tasks' || suffix);
+        END IF;
+        IF to_regclass('transports' || suffix) IS NOT NULL THEN
+            EXECUTE format('UPDATE status_history h SET donation_group = t.donation_group FROM %I t '
+                           'WHERE h.entity_type = ''TRANSPORT'' AND h.donation_group IS NULL AND t.id = h.entity_id',
+                           'transports' || suffix);
+        END IF;
+    END LOOP;
+    CREATE INDEX IF NOT EXISTS idx_boxes_donation_group ON boxes (donation_group);
+END $$;
+
+-- Tenant-scoped reads are mostly by date
+CREATE INDEX IF NOT EXISTS idx_tasks_donation_group_due_date ON tasks (donation_group, due_date);
+CREATE INDEX IF NOT EXISTS idx_transports_donation_group_scheduled_date ON transports (donation_group, scheduled_date);
+CREATE INDEX IF NOT EXISTS idx_status_history_group_type_time ON status_history (donation_group, entity_type, changed_at);
@@ -0,0 +1,33 @@
+-- Recurring tasks (see model.RecurrenceRule and RecurringTaskScheduler). Same shape Hibernate's schema update
+-- would create, so the table exists before the first start under ddl-auto=validate.
+--
+-- A generated task keeps its rule's id; rule, box and due date identify the occurrence. The unique index makes
+-- generating an occurrence twice impossible even if the scheduler's row lock is bypassed. It also contains the
+-- partition key, as a unique index on the partitioned tasks table has to; an occurrence has a due date, so its
+-- partition_date is that due date and adds nothing to the key.
+
+CREATE TABLE IF NOT EXISTS recurrence_rules (
+    id bigserial PRIMARY KEY,
+    task_type varchar(255),
+    description varchar(255),
+    priority varchar(255),
+    task_category varchar(255),
+    assigned_to varchar(255),
+    donation_group varchar(255),
+    interval_days integer NOT NULL,
+    start_date timestamp,
+    generated_through timestamp,
+    active boolean NOT NULL,
+    created_at timestamp,
+    updated_at timestamp
+);
+
+ALTER TABLE IF EXISTS tasks ADD COLUMN IF NOT EXISTS recurrence_rule_id bigint;
+ALTER TABLE IF EXISTS tasks_archive ADD COLUMN IF NOT EXISTS recurrence_rule_id bigint;
+
+DO $$
+BEGIN
+    IF to_regclass('tasks') IS NOT NULL THEN
+        CREATE UNIQUE INDEX IF NOT EXISTS uk_tasks_recurrence_occurrence ON tasks (recurrence_rule_id, related_box_id, due_date, partition_date);
+    END IF;
+END $$;
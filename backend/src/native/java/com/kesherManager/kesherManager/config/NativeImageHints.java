@@ -0,0 +1,61 @@
+package com.kesherManager.kesherManager.config;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.info.Contact;
+import io.swagger.v3.oas.models.info.Info;
+import io.swagger.v3.oas.models.info.License;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.nativex.hint.JdkProxyHint;
+import org.springframework.nativex.hint.NativeHint;
+import org.springframework.nativex.hint.ResourceHint;
+import org.springframework.nativex.hint.TypeAccess;
+import org.springframework.nativex.hint.TypeHint;
+
+// Reflection, proxy and resource hints for the experimental native image (only compiled with
+// -Pnative-experimental). The AOT plugin works out most of Spring's own needs; these cover what it cannot
+// infer for the types below. Later entities and libraries have no hints yet (see the profile in pom.xml).
+
+// Entities: Hibernate instantiates them and reads/writes fields reflectively, Jackson serializes
+// them through their getters, and the enums are resolved by name (@Enumerated(STRING), request params)
+@NativeHint(types = @TypeHint(
+        types = {
+                Box.class, Box.BoxStatus.class,
+                Task.class, Task.TaskType.class, Task.TaskPriority.class, Task.TaskStatus.class,
+                Transport.class, Transport.DestinationType.class, Transport.TransportStatus.class
+        },
+        access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.DECLARED_FIELDS, TypeAccess.DECLARED_METHODS}))
+
+// Hibernate's runtime proxies need bytecode generation, which the image cannot do: the profile
+// enhances the entities at build time instead (hibernate.bytecode.provider=none). What remains are
+// the JDK proxies Spring puts around the EntityManagerFactory and the shared EntityManager.
+@NativeHint(jdkProxies = {
+        @JdkProxyHint(typeNames = {
+                "org.hibernate.SessionFactory",
+                "org.springframework.orm.jpa.EntityManagerFactoryInfo"}),
+        @JdkProxyHint(typeNames = {
+                "org.hibernate.Session",
+                "org.springframework.orm.jpa.EntityManagerProxy"})
+})
+
+// Jackson2ObjectMapperBuilder registers JodaModule by class name; Joda loads its zone data as resources
+@NativeHint(
+        types = @TypeHint(
+                typeNames = {
+                        "com.fasterxml.jackson.datatype.joda.JodaModule",
+                        "org.joda.time.LocalDate",
+                        "org.joda.time.LocalDateTime",
+                        "org.joda.time.DateTime"
+                },
+                access = {TypeAccess.PUBLIC_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS}),
+        resources = @ResourceHint(patterns = "org/joda/time/tz/data/.*"))
+
+// The OpenAPI description built in OpenApiConfig is serialized by swagger-core's own ObjectMapper
+@NativeHint(types = @TypeHint(
+        types = {OpenAPI.class, Info.class, Contact.class, License.class},
+        access = {TypeAccess.PUBLIC_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS}))
+@Configuration(proxyBeanMethods = false)
+public class NativeImageHints {
+}
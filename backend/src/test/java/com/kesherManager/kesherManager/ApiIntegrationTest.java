@@ -0,0 +1,385 @@
+package com.kesherManager.kesherManager;
+
+import com.kesherManager.kesherManager.calendar.CalendarBucket;
+import com.kesherManager.kesherManager.calendar.CalendarHistogram;
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.StatusChange;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.StatusChangeRepository;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import com.kesherManager.kesherManager.search.AutocompleteIndex;
+import com.kesherManager.kesherManager.service.BoxService;
+import com.kesherManager.kesherManager.service.StatusHistory;
+import com.kesherManager.kesherManager.service.TaskService;
+import com.kesherManager.kesherManager.service.TransportService;
+import com.kesherManager.kesherManager.util.Dates;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The paths through the services, the database and the controllers; the logic behind them is unit tested
+// next to each class
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ApiIntegrationTest {
+
+    private static final String NORTH = URLEncoder.encode("צפון", StandardCharsets.UTF_8);
+    private static final String CENTER = URLEncoder.encode("מרכז", StandardCharsets.UTF_8);
+
+    // A Sunday in the past, so its calendar buckets are closed and cached
+    private static final LocalDate SUNDAY = new LocalDate(2024, 3, 10);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BoxService boxService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TransportService transportService;
+
+    @Autowired
+    private StatusHistory statusHistory;
+
+    @Autowired
+    private CalendarHistogram calendarHistogram;
+
+    @Autowired
+    private AutocompleteIndex autocompleteIndex;
+
+    @Autowired
+    private BoxRepository boxRepository;
+
+    @Autowired
+    private TransportRepository transportRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private StatusChangeRepository statusChangeRepository;
+
+    @BeforeEach
+    void clean() {
+        taskRepository.deleteAll();
+        transportRepository.deleteAll();
+        boxRepository.deleteAll();
+        statusChangeRepository.deleteAllInBatch();
+        // Neither saw the deletes above
+        calendarHistogram.clearAfterCommit();
+        autocompleteIndex.reload();
+    }
+
+    // Status history
+
+    @Test
+    void historyRecordsEveryTransition() {
+        Date beforeCreation = new Date(System.currentTimeMillis() - 60_000);
+        Box box = boxService.saveBox(box("Group"));
+        boxService.updateStatus(box.getId(), Box.BoxStatus.MAINTENANCE);
+        // Lost the race: nothing is recorded
+        assertEquals(Optional.empty(), boxService.updateStatus(box.getId(), Box.BoxStatus.ACTIVE, Box.BoxStatus.INACTIVE));
+        boxService.updateStatus(box.getId(), Box.BoxStatus.MAINTENANCE, Box.BoxStatus.INACTIVE);
+
+        List<String> statuses = statusHistory.getHistory(StatusChange.EntityType.BOX, box.getId()).stream()
+                .map(StatusChange::getStatus)
+                .collect(Collectors.toList());
+        assertEquals(List.of("ACTIVE", "MAINTENANCE", "INACTIVE"), statuses);
+
+        assertEquals(Optional.of("INACTIVE"), statusHistory.getStatusAsOf(StatusChange.EntityType.BOX, box.getId(), new Date()));
+        assertEquals(Optional.empty(), statusHistory.getStatusAsOf(StatusChange.EntityType.BOX, box.getId(), beforeCreation));
+
+        assertTrue(statusHistory.getTimeInState(StatusChange.EntityType.BOX, box.getId()).keySet()
+                .containsAll(List.of("ACTIVE", "MAINTENANCE", "INACTIVE")));
+    }
+
+    @Test
+    void historyCountsEachEntityByItsLatestStatus() {
+        Box first = boxService.saveBox(box("Group"));
+        boxService.saveBox(box("Group"));
+        boxService.updateStatus(first.getId(), Box.BoxStatus.MAINTENANCE);
+        // Saving without a status change records nothing
+        boxService.saveBox(boxRepository.findById(first.getId()).orElseThrow());
+        boxService.updateStatus(first.getId(), Box.BoxStatus.MAINTENANCE);
+        assertEquals(2, statusHistory.getHistory(StatusChange.EntityType.BOX, first.getId()).size());
+        assertEquals(3, statusChangeRepository.count());
+
+        Map<String, Long> counts = statusHistory.countByStatusAsOf(StatusChange.EntityType.BOX, new Date());
+        assertEquals(Map.of("ACTIVE", 1L, "MAINTENANCE", 1L), counts);
+    }
+
+    @Test
+    void deletedEntitiesAreNotCountedFromTheirDeletion() throws InterruptedException {
+        Box kept = boxService.saveBox(box("Group"));
+        Box deleted = boxService.saveBox(box("Group"));
+        Date beforeDeletion = new Date();
+        Thread.sleep(5);
+        boxService.deleteBox(deleted.getId());
+
+        assertEquals(Map.of("ACTIVE", 2L), statusHistory.countByStatusAsOf(StatusChange.EntityType.BOX, beforeDeletion));
+        assertEquals(Map.of("ACTIVE", 1L), statusHistory.countByStatusAsOf(StatusChange.EntityType.BOX, new Date()));
+        assertEquals(Optional.of(StatusHistory.DELETED),
+                statusHistory.getStatusAsOf(StatusChange.EntityType.BOX, deleted.getId(), new Date()));
+        assertEquals(Optional.of("ACTIVE"), statusHistory.getStatusAsOf(StatusChange.EntityType.BOX, kept.getId(), new Date()));
+    }
+
+    // Donation groups (X-Donation-Group)
+
+    @Test
+    void queriesOnlySeeTheTenantsGroup() throws Exception {
+        Groups groups = seedGroups();
+
+        mockMvc.perform(get("/api/boxes").header("X-Donation-Group", NORTH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(groups.north.getId()));
+        mockMvc.perform(get("/api/tasks").header("X-Donation-Group", NORTH))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].description").value("Collect"));
+        mockMvc.perform(get("/api/transports").header("X-Donation-Group", NORTH))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        // Without the header nothing is scoped
+        mockMvc.perform(get("/api/tasks"))
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void otherGroupsRowsAreNotFoundById() throws Exception {
+        Groups groups = seedGroups();
+
+        mockMvc.perform(get("/api/boxes/" + groups.south.getId()).header("X-Donation-Group", NORTH))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(patch("/api/transports/" + groups.southTransport.getId() + "/status")
+                        .param("status", "CANCELLED")
+                        .header("X-Donation-Group", NORTH))
+                .andExpect(status().isNotFound());
+        assertEquals(Transport.TransportStatus.PLANNED, transportRepository.findById(groups.southTransport.getId()).get().getStatus());
+    }
+
+    @Test
+    void historyIsScopedToTheTenantsGroup() throws Exception {
+        Groups groups = seedGroups();
+
+        mockMvc.perform(get("/api/history/box/" + groups.north.getId()).header("X-Donation-Group", NORTH))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].status").value("ACTIVE"));
+        mockMvc.perform(get("/api/history/box/" + groups.south.getId()).header("X-Donation-Group", NORTH))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/history/box/" + groups.south.getId() + "/as-of")
+                        .param("date", "2100-01-01")
+                        .header("X-Donation-Group", NORTH))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/history/transport/counts").header("X-Donation-Group", NORTH))
+                .andExpect(jsonPath("$.PLANNED").value(1));
+        mockMvc.perform(get("/api/history/transport/counts"))
+                .andExpect(jsonPath("$.PLANNED").value(2));
+    }
+
+    @Test
+    void writesGoToTheTenantsGroup() throws Exception {
+        mockMvc.perform(post("/api/boxes")
+                        .header("X-Donation-Group", NORTH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"responsiblePerson\": \"Noa\", \"status\": \"ACTIVE\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.donationGroup").value("צפון"));
+        mockMvc.perform(post("/api/boxes")
+                        .header("X-Donation-Group", NORTH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"responsiblePerson\": \"Noa\", \"donationGroup\": \"דרום\", \"status\": \"ACTIVE\"}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void tasksAndTransportsFollowTheirBoxToAnotherGroup() throws Exception {
+        Box north = seedGroups().north;
+        north.setDonationGroup("מרכז");
+        boxService.saveBox(north);
+
+        assertEquals("מרכז", transportRepository.findBySourceBox(north).get(0).getDonationGroup());
+        assertEquals("מרכז", taskRepository.findByRelatedBox(north).get(0).getDonationGroup());
+
+        // Counted in the new group from now on, and no longer in the old one
+        mockMvc.perform(get("/api/history/transport/counts").header("X-Donation-Group", CENTER))
+                .andExpect(jsonPath("$.PLANNED").value(1));
+        mockMvc.perform(get("/api/history/box/counts").header("X-Donation-Group", NORTH))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/history/box/" + north.getId()).header("X-Donation-Group", CENTER))
+                .andExpect(jsonPath("$.length()").value(1));
+        // The move is a marker, not a transition: still one ACTIVE period
+        assertEquals(Set.of("ACTIVE"), statusHistory.getTimeInState(StatusChange.EntityType.BOX, north.getId()).keySet());
+
+        // Moved back with a new status: the transition is the only entry the save adds
+        Box moved = boxRepository.findById(north.getId()).orElseThrow();
+        moved.setDonationGroup("צפון");
+        moved.setStatus(Box.BoxStatus.MAINTENANCE);
+        boxService.saveBox(moved);
+        assertEquals(List.of("ACTIVE", "ACTIVE", "MAINTENANCE"), statusChangeRepository
+                .findByEntityTypeAndEntityIdOrderByChangedAtAscIdAsc(StatusChange.EntityType.BOX, north.getId()).stream()
+                .map(StatusChange::getStatus)
+                .collect(Collectors.toList()));
+    }
+
+    // Calendar
+
+    @Test
+    void calendarBucketsByIsraeliDayAndWeek() {
+        seedCalendar();
+
+        List<CalendarBucket> days = calendarHistogram.histogram(SUNDAY, SUNDAY.plusDays(6), CalendarHistogram.Granularity.DAY);
+        assertEquals(7, days.size());
+        assertEquals("2024-03-10", days.get(0).getStart());
+        assertEquals(2, days.get(0).getTasks().getTotal());
+        assertEquals(Map.of("HIGH", 1L, "LOW", 1L), days.get(0).getTasks().getByPriority());
+        assertEquals(1, days.get(1).getTransports().getTotal());
+        assertEquals(Map.of("FAMILY", 1L), days.get(1).getTransports().getByType());
+        assertEquals(0, days.get(2).getTasks().getTotal());
+        assertEquals(1, days.get(6).getTasks().getTotal());
+
+        List<CalendarBucket> weeks = calendarHistogram.histogram(SUNDAY.plusDays(3), SUNDAY.plusDays(8), CalendarHistogram.Granularity.WEEK);
+        assertEquals(2, weeks.size());
+        assertEquals("2024-03-16", weeks.get(0).getEnd());
+        assertEquals(Map.of("PENDING", 3L), weeks.get(0).getTasks().getByStatus());
+        assertEquals(0, weeks.get(1).getTasks().getTotal());
+    }
+
+    @Test
+    void closedCalendarBucketsAreCachedUntilAWriteTouchesThem() {
+        seedCalendar();
+        assertEquals(2, calendarHistogram.histogram(SUNDAY, SUNDAY, CalendarHistogram.Granularity.DAY).get(0).getTasks().getTotal());
+
+        // Written behind the service's back: the cached bucket is served
+        taskRepository.save(task(SUNDAY, new LocalTime(10, 0), Task.TaskPriority.LOW));
+        assertEquals(2, calendarHistogram.histogram(SUNDAY, SUNDAY, CalendarHistogram.Granularity.DAY).get(0).getTasks().getTotal());
+
+        // Through the service the day is evicted
+        taskService.saveTask(task(SUNDAY, new LocalTime(11, 0), Task.TaskPriority.LOW));
+        assertEquals(4, calendarHistogram.histogram(SUNDAY, SUNDAY, CalendarHistogram.Granularity.DAY).get(0).getTasks().getTotal());
+    }
+
+    // Autocomplete and routes
+
+    @Test
+    void boxWritesReachTheAutocompleteIndex() throws InterruptedException {
+        Box box = box("Group");
+        box.setCity("נתניה");
+        box = boxService.saveBox(box);
+        awaitCities("נ", List.of("נתניה"));
+
+        box.setCity("נצרת");
+        boxService.saveBox(box);
+        awaitCities("נ", List.of("נצרת"));
+
+        boxService.deleteBox(box.getId());
+        awaitCities("נ", List.of());
+    }
+
+    @Test
+    void routesRejectAnInvalidDate() throws Exception {
+        mockMvc.perform(get("/api/transports/routes").param("date", "01/03/2026"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/transports/routes").param("date", "2026-03-01"))
+                .andExpect(status().isOk());
+    }
+
+    // Two boxes in two groups, a transport from each, a task on the northern box and one on the southern transport
+    private Groups seedGroups() {
+        Groups groups = new Groups();
+        groups.north = boxService.saveBox(box("צפון"));
+        groups.south = boxService.saveBox(box("דרום"));
+        Transport northTransport = transportService.saveTransport(new Transport(groups.north, Transport.DestinationType.FAMILY, Dates.nowUTC()));
+        groups.southTransport = transportService.saveTransport(new Transport(groups.south, Transport.DestinationType.FAMILY, Dates.nowUTC()));
+
+        Task boxTask = new Task(Task.TaskType.COLLECTION, "Collect", Dates.nowUTC(), Task.TaskPriority.LOW);
+        boxTask.setRelatedBox(groups.north);
+        taskService.saveTask(boxTask);
+        // Only a transport, referenced by id as clients send it: the group comes from the transport
+        Task transportTask = new Task(Task.TaskType.TRANSPORT, "Drive", Dates.nowUTC(), Task.TaskPriority.LOW);
+        Transport reference = new Transport();
+        reference.setId(groups.southTransport.getId());
+        transportTask.setRelatedTransport(reference);
+        taskService.saveTask(transportTask);
+
+        assertEquals("צפון", northTransport.getDonationGroup());
+        assertEquals("דרום", transportTask.getDonationGroup());
+        return groups;
+    }
+
+    // Three tasks and a transport in the week of SUNDAY
+    private void seedCalendar() {
+        // 00:30 in Israel is still the previous day in UTC
+        taskService.saveTask(task(SUNDAY, new LocalTime(0, 30), Task.TaskPriority.HIGH));
+        taskService.saveTask(task(SUNDAY, new LocalTime(23, 30), Task.TaskPriority.LOW));
+        taskService.saveTask(task(SUNDAY.plusDays(6), new LocalTime(12, 0), Task.TaskPriority.LOW));
+        transportService.saveTransport(new Transport(boxService.saveBox(box(null)), Transport.DestinationType.FAMILY,
+                Dates.atUtc(SUNDAY.plusDays(1).toLocalDateTime(new LocalTime(9, 0)))));
+    }
+
+    // Snapshots are rebuilt on the index's thread shortly after the commit
+    private void awaitCities(String prefix, List<String> expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!cities(prefix).equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, cities(prefix));
+    }
+
+    private List<String> cities(String prefix) {
+        return autocompleteIndex.suggest(AutocompleteIndex.Field.CITY, prefix, 10).stream()
+                .map(AutocompleteIndex.Suggestion::getValue)
+                .collect(Collectors.toList());
+    }
+
+    private static Box box(String donationGroup) {
+        Box box = new Box();
+        box.setResponsiblePerson("Dana");
+        box.setDonationGroup(donationGroup);
+        box.setStatus(Box.BoxStatus.ACTIVE);
+        return box;
+    }
+
+    private static Task task(LocalDate day, LocalTime time, Task.TaskPriority priority) {
+        Task task = new Task(Task.TaskType.COLLECTION, "Collect", Dates.atUtc(day.toLocalDateTime(time)), priority);
+        task.setStatus(Task.TaskStatus.PENDING);
+        return task;
+    }
+
+    private static final class Groups {
+        Box north;
+        Box south;
+        Transport southTransport;
+    }
+}
@@ -0,0 +1,20 @@
+package com.kesherManager.kesherManager;
+
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+import java.util.UUID;
+
+// Names the in-memory database of the h2 test profile, once per application context. ${random.uuid} would not
+// do: every lookup of it is a new value, and the bulk pool (see config.WorkloadConfig) binds the URL apart from
+// the main pool.
+public class TestDatabaseInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("testDatabase",
+                Map.of("kesher.test.database", "kesher-" + UUID.randomUUID())));
+    }
+}
@@ -0,0 +1,29 @@
+package com.kesherManager.kesherManager.calendar;
+
+import org.joda.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CalendarHistogramTest {
+
+    private static final LocalDate SUNDAY = new LocalDate(2024, 3, 10);
+
+    @Test
+    void weeksRunFromSundayToSaturday() {
+        for (int i = 0; i < 7; i++) {
+            assertEquals(SUNDAY, CalendarHistogram.Granularity.WEEK.start(SUNDAY.plusDays(i)), SUNDAY.plusDays(i).toString());
+        }
+        assertEquals(SUNDAY.plusWeeks(1), CalendarHistogram.Granularity.WEEK.start(SUNDAY.plusDays(7)));
+        assertEquals(SUNDAY.minusWeeks(1), CalendarHistogram.Granularity.WEEK.start(SUNDAY.minusDays(1)));
+        assertEquals(SUNDAY.plusWeeks(1), CalendarHistogram.Granularity.WEEK.next(SUNDAY));
+    }
+
+    @Test
+    void everyDayIsABucketOfItsOwn() {
+        assertEquals(SUNDAY.plusDays(3), CalendarHistogram.Granularity.DAY.start(SUNDAY.plusDays(3)));
+        assertEquals(SUNDAY.plusDays(1), CalendarHistogram.Granularity.DAY.next(SUNDAY));
+        // Across the end of a month and a leap day
+        assertEquals(new LocalDate(2024, 3, 1), CalendarHistogram.Granularity.DAY.next(new LocalDate(2024, 2, 29)));
+    }
+}
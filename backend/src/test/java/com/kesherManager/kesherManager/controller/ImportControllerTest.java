@@ -0,0 +1,30 @@
+package com.kesherManager.kesherManager.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImportControllerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Neither the service nor the geocoder is reached when the file cannot be read
+    private final ImportController importController = new ImportController(null, null, new ObjectMapper(), meterRegistry);
+
+    @Test
+    void anUnreadableFileIsTimedAndCountedAsFailed() {
+        MockMultipartFile file = new MockMultipartFile("file", "boxes.json", "application/json",
+                "[{\"city\": ".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(HttpStatus.BAD_REQUEST, importController.importBoxes(file).getStatusCode());
+
+        assertEquals(1, meterRegistry.get("kesher.import.duration")
+                .tag("source", "file").tag("outcome", "unreadable").timer().count());
+        assertEquals(1, meterRegistry.get("kesher.import.boxes").tag("result", "failed").counter().count());
+    }
+}
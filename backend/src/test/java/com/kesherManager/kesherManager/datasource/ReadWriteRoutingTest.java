@@ -0,0 +1,103 @@
+package com.kesherManager.kesherManager.datasource;
+
+import com.kesherManager.kesherManager.workload.Workload;
+import com.kesherManager.kesherManager.workload.WorkloadContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest
+@ActiveProfiles({"h2", "replica"})
+class ReadWriteRoutingTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void markDatabases() {
+        // Same table in both databases, each row naming the database it lives in
+        mark(primary, "primary");
+        mark(replica, "replica");
+    }
+
+    @AfterEach
+    void restoreReplica() {
+        replicaLagMonitor.check();
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        assertEquals("replica", probe(true));
+    }
+
+    @Test
+    void readWriteTransactionsUsePrimary() {
+        assertEquals("primary", probe(false));
+    }
+
+    @Test
+    void readsFallBackToPrimaryWhenReplicaIsUnusable() {
+        replicaLagMonitor.markUnusable();
+        assertEquals("primary", probe(true));
+
+        replicaLagMonitor.check();
+        assertEquals("replica", probe(true));
+    }
+
+    @Test
+    void bulkWorkUsesTheBulkPoolOfEachDatabase() {
+        WorkloadContext.set(Workload.BULK);
+        try {
+            assertEquals("replica", probe(true));
+            assertEquals("primary", probe(false));
+        } finally {
+            WorkloadContext.clear();
+        }
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "bulk-replica").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "bulk").gauge());
+    }
+
+    private String probe(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        return transaction.execute(status -> jdbc.queryForObject("SELECT name FROM routing_probe", String.class));
+    }
+
+    private static void mark(DataSource target, String name) {
+        JdbcTemplate jdbc = new JdbcTemplate(target);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS routing_probe (name VARCHAR(20))");
+        jdbc.update("DELETE FROM routing_probe");
+        jdbc.update("INSERT INTO routing_probe (name) VALUES (?)", name);
+    }
+}
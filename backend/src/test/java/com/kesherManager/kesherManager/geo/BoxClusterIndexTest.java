@@ -0,0 +1,194 @@
+package com.kesherManager.kesherManager.geo;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoxClusterIndexTest {
+
+    private static final int MAX_ZOOM = 16;
+
+    private final List<Object[]> rows = new ArrayList<>();
+    private final BoxClusterIndex index = new BoxClusterIndex(repository(() -> rows), MAX_ZOOM, Duration.ofMinutes(15));
+
+    @Test
+    void boxesMergeWhenZoomedOutAndSplitWhenZoomedIn() {
+        rows.add(row(1L, 32.08, 34.78, Box.BoxStatus.ACTIVE, "south"));
+        rows.add(row(2L, 32.07, 34.82, Box.BoxStatus.MAINTENANCE, "south"));
+        rows.add(row(3L, 32.79, 34.99, Box.BoxStatus.ACTIVE, "north"));
+        index.reload();
+
+        List<BoxCluster> world = index.clusters(-180, -90, 180, 90, 0);
+        assertEquals(1, world.size());
+        assertEquals(3, world.get(0).getCount());
+        assertEquals(Map.of(Box.BoxStatus.ACTIVE, 2, Box.BoxStatus.MAINTENANCE, 1), world.get(0).getStatusCounts());
+        assertEquals((32.08 + 32.07 + 32.79) / 3, world.get(0).getLatitude(), 1e-9);
+        assertNull(world.get(0).getBoxId());
+
+        assertEquals(Set.of(1L, 2L, 3L), boxIds(index.clusters(34, 31, 36, 34, 16)));
+        // Deeper than max-zoom is answered from max-zoom
+        assertEquals(3, index.clusters(34, 31, 36, 34, 20).size());
+        assertEquals(Set.of(3L), boxIds(index.clusters(34.9, 32.7, 35.1, 32.9, 16)));
+
+        TenantContext.set("north");
+        try {
+            assertEquals(1, index.clusters(-180, -90, 180, 90, 0).get(0).getCount());
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    @Test
+    void aGroupWithoutBoxesGetsNoClusters() {
+        rows.add(row(1L, 32.08, 34.78, Box.BoxStatus.ACTIVE, "south"));
+        index.reload();
+
+        TenantContext.set("north");
+        try {
+            assertEquals(List.of(), index.clusters(-180, -90, 180, 90, 0));
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    @Test
+    void followsWritesWithoutAReload() {
+        index.reload();
+        index.boxSaved(box(1L, 32.08, 34.78, Box.BoxStatus.ACTIVE));
+        assertEquals(Set.of(1L), boxIds(index.clusters(34, 31, 36, 34, 16)));
+
+        index.boxSaved(box(1L, 31.25, 34.79, Box.BoxStatus.ACTIVE));
+        assertEquals(Set.of(), boxIds(index.clusters(34.7, 32, 34.9, 32.2, 16)));
+        assertEquals(Set.of(1L), boxIds(index.clusters(34.7, 31.2, 34.9, 31.3, 16)));
+
+        index.boxSaved(box(1L, 31.25, 34.79, Box.BoxStatus.INACTIVE));
+        assertEquals(Map.of(Box.BoxStatus.INACTIVE, 1), index.clusters(-180, -90, 180, 90, 0).get(0).getStatusCounts());
+
+        index.boxDeleted(1L);
+        assertEquals(List.of(), index.clusters(-180, -90, 180, 90, 0));
+    }
+
+    @Test
+    void boundingBoxesMayCrossTheAntimeridian() {
+        rows.add(row(1L, -17.7, 179.5, Box.BoxStatus.ACTIVE, null));
+        rows.add(row(2L, -17.7, -179.5, Box.BoxStatus.ACTIVE, null));
+        rows.add(row(3L, -17.7, 170.0, Box.BoxStatus.ACTIVE, null));
+        index.reload();
+
+        assertEquals(2, index.clusters(179, -18, -179, -17, 10).size());
+        // Level 9 is merged from level 10
+        assertEquals(2, index.clusters(179, -18, -179, -17, 9).size());
+    }
+
+    @Test
+    void levelsInBetweenAreMergedFromTheNextStoredLevel() {
+        assertEquals(16, BoxClusterIndex.storedLevel(16, MAX_ZOOM));
+        assertEquals(16, BoxClusterIndex.storedLevel(14, MAX_ZOOM));
+        assertEquals(13, BoxClusterIndex.storedLevel(13, MAX_ZOOM));
+        assertEquals(1, BoxClusterIndex.storedLevel(0, MAX_ZOOM));
+
+        Random random = new Random(42);
+        List<double[]> positions = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            double latitude = 29.5 + random.nextDouble() * 3.8;
+            double longitude = 34.2 + random.nextDouble() * 1.7;
+            positions.add(new double[]{latitude, longitude});
+            rows.add(row(id, latitude, longitude, Box.BoxStatus.ACTIVE, null));
+        }
+        index.reload();
+
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+            List<Integer> counts = index.clusters(-180, -90, 180, 90, zoom).stream()
+                    .map(BoxCluster::getCount)
+                    .sorted()
+                    .collect(Collectors.toList());
+            assertEquals(expectedCounts(positions, zoom), counts, "zoom " + zoom);
+        }
+    }
+
+    @Test
+    void boxSavedWhileReloadQueriesIsKept() {
+        BoxClusterIndex[] index = new BoxClusterIndex[1];
+        // The box commits after the reload's snapshot was taken, before the new grids are swapped in
+        index[0] = new BoxClusterIndex(repository(() -> {
+            index[0].boxSaved(box(2L, 32.79, 34.99, Box.BoxStatus.ACTIVE));
+            List<Object[]> snapshot = new ArrayList<>();
+            snapshot.add(row(1L, 32.08, 34.78, Box.BoxStatus.ACTIVE, null));
+            return snapshot;
+        }), MAX_ZOOM, Duration.ofMinutes(15));
+
+        index[0].reload();
+
+        assertEquals(Set.of(1L, 2L), boxIds(index[0].clusters(34, 31, 36, 34, 16)));
+    }
+
+    @Test
+    void boxDeletedWhileReloadQueriesStaysGone() {
+        BoxClusterIndex[] index = new BoxClusterIndex[1];
+        index[0] = new BoxClusterIndex(repository(() -> {
+            index[0].boxDeleted(1L);
+            List<Object[]> snapshot = new ArrayList<>();
+            snapshot.add(row(1L, 32.08, 34.78, Box.BoxStatus.ACTIVE, null));
+            return snapshot;
+        }), MAX_ZOOM, Duration.ofMinutes(15));
+
+        index[0].reload();
+
+        assertEquals(List.of(), index[0].clusters(-180, -90, 180, 90, 0));
+    }
+
+    // The box counts of the non-empty cells of a zoom level, counted box by box
+    private static List<Integer> expectedCounts(List<double[]> positions, int zoom) {
+        int size = BoxClusterIndex.CELLS_PER_TILE << zoom;
+        Map<List<Integer>, Integer> cells = new HashMap<>();
+        for (double[] position : positions) {
+            List<Integer> cell = List.of((int) Math.floor(BoxClusterIndex.x(position[1]) * size),
+                    (int) Math.floor(BoxClusterIndex.y(position[0]) * size));
+            cells.merge(cell, 1, Integer::sum);
+        }
+        return cells.values().stream().sorted().collect(Collectors.toList());
+    }
+
+    // Only findClusterValues is called by the index
+    private static BoxRepository repository(Supplier<List<Object[]>> clusterValues) {
+        return (BoxRepository) Proxy.newProxyInstance(BoxRepository.class.getClassLoader(),
+                new Class<?>[]{BoxRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findClusterValues")) {
+                        return clusterValues.get();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Object[] row(Long id, double latitude, double longitude, Box.BoxStatus status, String donationGroup) {
+        return new Object[]{id, latitude, longitude, status, donationGroup};
+    }
+
+    private static Box box(Long id, double latitude, double longitude, Box.BoxStatus status) {
+        Box box = new Box();
+        box.setId(id);
+        box.setLatitude(latitude);
+        box.setLongitude(longitude);
+        box.setStatus(status);
+        return box;
+    }
+
+    private static Set<Long> boxIds(List<BoxCluster> clusters) {
+        return clusters.stream().map(BoxCluster::getBoxId).collect(Collectors.toSet());
+    }
+}
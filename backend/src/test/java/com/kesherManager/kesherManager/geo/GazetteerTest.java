@@ -0,0 +1,65 @@
+package com.kesherManager.kesherManager.geo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GazetteerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsSpellingVariants() throws Exception {
+        Gazetteer gazetteer = Gazetteer.open(Paths.get(getClass().getResource("/geo/gazetteer.tsv").toURI()), directory);
+
+        // The line without a valid position is skipped
+        assertEquals(9, gazetteer.size());
+        assertEquals(32.0170, find(gazetteer, "חולון", "רח' הרצל 12")[0], 1e-9);
+        assertEquals(34.7741, find(gazetteer, "חוֹלוֹן", "סוקולוב")[1], 1e-9);
+        assertEquals(32.0636, find(gazetteer, "תל-אביב-יפו", "שד' רוטשילד 5")[0], 1e-9);
+        assertEquals(33.2073, find(gazetteer, "קרית שמונה", "")[0], 1e-9);
+        assertEquals(31.9903, find(gazetteer, "ראשון לציון", "זבוטינסקי 30")[0], 1e-9);
+        assertNull(find(gazetteer, "חולון", "ביאליק"));
+        assertNull(find(gazetteer, "אילת", ""));
+
+        assertEquals("הרצל", Gazetteer.normalizeStreet("12 רחוב הרצל"));
+        assertEquals("שדרות", Gazetteer.normalizeStreet("שדרות"));
+    }
+
+    @Test
+    void recompilesOnlyWhenTheSourceChanges() throws Exception {
+        Path source = directory.resolve("places.tsv");
+        Files.write(source, "חולון\t\t32.0158\t34.7874\n".getBytes(StandardCharsets.UTF_8));
+        Path index = directory.resolve("index");
+
+        Gazetteer.open(source, index);
+        Object compiled = fileKey(index.resolve("places.tsv.idx"));
+        Gazetteer.open(source, index);
+        assertEquals(compiled, fileKey(index.resolve("places.tsv.idx")));
+
+        Files.write(source, "בת ים\t\t32.0171\t34.7454\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Gazetteer reopened = Gazetteer.open(source, index);
+        assertNotEquals(compiled, fileKey(index.resolve("places.tsv.idx")));
+        assertEquals(2, reopened.size());
+        assertEquals(34.7454, find(reopened, "בת-ים", "")[1], 1e-9);
+    }
+
+    private static double[] find(Gazetteer gazetteer, String city, String street) {
+        return gazetteer.find(Gazetteer.normalizeCity(city), Gazetteer.normalizeStreet(street)).orElse(null);
+    }
+
+    private static Object fileKey(Path file) throws Exception {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+}
@@ -0,0 +1,104 @@
+package com.kesherManager.kesherManager.geo;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class GeocodingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GeocodeBackfillJob backfillJob;
+
+    @Autowired
+    private BoxClusterIndex boxClusterIndex;
+
+    @Autowired
+    private BoxRepository boxRepository;
+
+    @Autowired
+    private TransportRepository transportRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @BeforeEach
+    void clean() {
+        taskRepository.deleteAll();
+        transportRepository.deleteAll();
+        boxRepository.deleteAll();
+    }
+
+    @Test
+    void backfillLocatesBoxesWithoutAPosition() throws Exception {
+        Box onStreet = boxRepository.save(box("חולון", "הרצל 5", null));
+        Box cityInAddress = boxRepository.save(box(null, "סוקולוב 3, חולון", null));
+        Box cityOnly = boxRepository.save(box("קרית שמונה", "הגליל 1", null));
+        Box unknown = boxRepository.save(box("אילת", "התמרים 2", null));
+        Box placed = boxRepository.save(box("חולון", "הרצל 7", 31.0));
+
+        assertTrue(backfillJob.runNow());
+
+        assertEquals(32.0170, boxRepository.findById(onStreet.getId()).get().getLatitude(), 1e-9);
+        assertEquals(34.7741, boxRepository.findById(cityInAddress.getId()).get().getLongitude(), 1e-9);
+        assertEquals(33.2073, boxRepository.findById(cityOnly.getId()).get().getLatitude(), 1e-9);
+        assertNull(boxRepository.findById(unknown.getId()).get().getLatitude());
+        assertEquals(31.0, boxRepository.findById(placed.getId()).get().getLatitude());
+        assertEquals(3L, backfillJob.status().get("located"));
+        assertEquals(1L, backfillJob.status().get("unmatched"));
+        // The located boxes are on the map
+        assertEquals(4, boxClusterIndex.clusters(-180, -90, 180, 90, 0).get(0).getCount());
+    }
+
+    @Test
+    void importGeocodesBoxesWithoutAPosition() throws Exception {
+        mockMvc.perform(post("/api/import/boxes/json")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"city\": \"ראשון לציון\", \"address\": \"ז'בוטינסקי 30\", \"latitude\": \"n/a\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.successfulImports").value(1));
+
+        List<Box> boxes = boxRepository.findAll();
+        assertEquals(31.9903, boxes.get(0).getLatitude(), 1e-9);
+        assertEquals(34.7731, boxes.get(0).getLongitude(), 1e-9);
+
+        mockMvc.perform(get("/api/geocoding").param("city", "ראשון לציון").param("address", "הרצל 1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.precision").value("CITY"));
+    }
+
+    private static Box box(String city, String address, Double latitude) {
+        Box box = new Box();
+        box.setResponsiblePerson("Dana");
+        box.setCity(city);
+        box.setAddress(address);
+        box.setLatitude(latitude);
+        box.setLongitude(latitude == null ? null : 34.0);
+        box.setStatus(Box.BoxStatus.ACTIVE);
+        return box;
+    }
+}
@@ -0,0 +1,32 @@
+package com.kesherManager.kesherManager.monitoring;
+
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryCountHolder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Asserts how many SQL statements the current thread ran since the last reset()
+public final class QueryCountAssertions {
+
+    private QueryCountAssertions() {
+    }
+
+    public static void reset() {
+        QueryCountHolder.clear();
+    }
+
+    public static void assertStatements(String what, int select, int insert, int update, int delete) {
+        QueryCount count = QueryCountHolder.getGrandTotal();
+        String actual = describe(count.getSelect(), count.getInsert(), count.getUpdate(), count.getDelete());
+        String expected = describe(select, insert, update, delete);
+        assertEquals(expected, actual, what + ": SQL statement count changed");
+    }
+
+    public static void assertSelects(String what, int select) {
+        assertStatements(what, select, 0, 0, 0);
+    }
+
+    private static String describe(long select, long insert, long update, long delete) {
+        return "select=" + select + " insert=" + insert + " update=" + update + " delete=" + delete;
+    }
+}
@@ -0,0 +1,233 @@
+package com.kesherManager.kesherManager.monitoring;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import com.kesherManager.kesherManager.service.AssigneeTaskQueues;
+import com.kesherManager.kesherManager.service.OverdueTaskTracker;
+import com.kesherManager.kesherManager.util.Dates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.Date;
+
+import static com.kesherManager.kesherManager.monitoring.QueryCountAssertions.assertSelects;
+import static com.kesherManager.kesherManager.monitoring.QueryCountAssertions.assertStatements;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Pins the number of SQL statements per endpoint; an N+1 regression changes these numbers and fails the build
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class QueryCountRegressionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BoxRepository boxRepository;
+
+    @Autowired
+    private TransportRepository transportRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private OverdueTaskTracker overdueTaskTracker;
+
+    @Autowired
+    private AssigneeTaskQueues assigneeTaskQueues;
+
+    private Box sourceBox;
+    private Transport transport;
+    private Task transportTask;
+
+    @BeforeEach
+    void seed() {
+        taskRepository.deleteAll();
+        transportRepository.deleteAll();
+        boxRepository.deleteAll();
+
+        sourceBox = boxRepository.save(box("Source"));
+        Box destinationBox = boxRepository.save(box("Destination"));
+
+        transport = new Transport(sourceBox, Transport.DestinationType.BOX, Dates.nowUTC());
+        transport.setDestinationBox(destinationBox);
+        transport = transportRepository.save(transport);
+
+        transportTask = new Task(Task.TaskType.TRANSPORT, "Move food", new Date(0), Task.TaskPriority.HIGH);
+        transportTask.setAssignedTo("Dana");
+        transportTask.setRelatedBox(sourceBox);
+        transportTask.setRelatedTransport(transport);
+        transportTask = taskRepository.save(transportTask);
+
+        Task maintenanceTask = new Task(Task.TaskType.MAINTENANCE, "Fix lid", Dates.nowUTC(), Task.TaskPriority.LOW);
+        maintenanceTask.setRelatedBox(destinationBox);
+        maintenanceTask.setAssignedTo("Dana");
+        taskRepository.save(maintenanceTask);
+
+        // Seeded through the repositories, so the tracker has to resync
+        overdueTaskTracker.reload();
+        assigneeTaskQueues.reload();
+    }
+
+    @Test
+    void boxEndpoints() throws Exception {
+        perform(get("/api/boxes"));
+        assertSelects("GET /api/boxes", 1);
+
+        // Served from the second-level cache
+        perform(get("/api/boxes/{id}", sourceBox.getId()));
+        assertSelects("GET /api/boxes/{id}", 0);
+
+        perform(get("/api/boxes/status/{status}", "ACTIVE"));
+        perform(get("/api/boxes/status/{status}", "ACTIVE"));
+        assertSelects("GET /api/boxes/status/{status} (query cache)", 0);
+
+        // The box comes from the second-level cache; only the changed columns are written, and the
+        // status history row is inserted in the same transaction
+        QueryCountAssertions.reset();
+        mockMvc.perform(patch("/api/boxes/{id}/status", sourceBox.getId()).param("status", "MAINTENANCE"))
+                .andExpect(jsonPath("$.status").value("MAINTENANCE"));
+        assertStatements("PATCH /api/boxes/{id}/status", 0, 1, 1, 0);
+
+        // The cache entry was updated in place, not evicted
+        perform(get("/api/boxes/{id}", sourceBox.getId()));
+        assertSelects("GET /api/boxes/{id} after PATCH", 0);
+
+        // Guarded transition that lost the race: the locked row is not in the expected status
+        QueryCountAssertions.reset();
+        mockMvc.perform(patch("/api/boxes/{id}/status", sourceBox.getId())
+                        .param("status", "INACTIVE").param("expectedStatus", "ACTIVE"))
+                .andExpect(status().isConflict());
+        assertSelects("PATCH /api/boxes/{id}/status (guarded, conflict)", 1);
+    }
+
+    @Test
+    void taskEndpoints() throws Exception {
+        perform(get("/api/tasks"));
+        // Eager relatedBox/relatedTransport associations are loaded with secondary selects
+        assertSelects("GET /api/tasks", 3);
+
+        perform(get("/api/tasks/{id}", transportTask.getId()));
+        assertSelects("GET /api/tasks/{id}", 1);
+
+        perform(get("/api/tasks/overdue"));
+        assertSelects("GET /api/tasks/overdue", 2);
+
+        // One targeted UPDATE and its history row, then the task is reloaded for the response
+        perform(patch("/api/tasks/{id}/status", transportTask.getId()).param("status", "IN_PROGRESS"));
+        assertStatements("PATCH /api/tasks/{id}/status", 1, 1, 1, 0);
+
+        perform(patch("/api/tasks/{id}/assign", transportTask.getId()).param("assignedTo", "Noa"));
+        assertStatements("PATCH /api/tasks/{id}/assign", 1, 0, 1, 0);
+
+        // No row updated: the reload tells a missing task from one that already had the status
+        QueryCountAssertions.reset();
+        mockMvc.perform(patch("/api/tasks/{id}/status", -1L).param("status", "COMPLETED"))
+                .andExpect(status().isNotFound());
+        assertStatements("PATCH /api/tasks/{id}/status (missing)", 1, 0, 1, 0);
+    }
+
+    @Test
+    void nextTaskEndpoints() throws Exception {
+        perform(get("/api/tasks/next").param("assignee", "Dana").param("n", "1"));
+        assertSelects("GET /api/tasks/next", 3);
+
+        // Guarded UPDATE and its history row, then the claimed row is loaded for the response
+        perform(post("/api/tasks/next/claim").param("assignee", "Dana"));
+        assertStatements("POST /api/tasks/next/claim", 1, 1, 1, 0);
+
+        mockMvc.perform(post("/api/tasks/{id}/claim", transportTask.getId()).param("assignee", "Noa"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void transportEndpoints() throws Exception {
+        perform(get("/api/transports"));
+        // Eager sourceBox/destinationBox associations are loaded with secondary selects
+        assertSelects("GET /api/transports", 3);
+
+        perform(get("/api/transports/{id}", transport.getId()));
+        assertSelects("GET /api/transports/{id}", 1);
+
+        perform(patch("/api/transports/{id}/status", transport.getId()).param("status", "IN_PROGRESS"));
+        assertStatements("PATCH /api/transports/{id}/status", 1, 1, 1, 0);
+
+        QueryCountAssertions.reset();
+        mockMvc.perform(patch("/api/transports/{id}/status", transport.getId())
+                        .param("status", "COMPLETED").param("expectedStatus", "IN_PROGRESS"))
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.completionDate").isNotEmpty());
+        assertStatements("PATCH /api/transports/{id}/status (guarded)", 1, 1, 1, 0);
+    }
+
+    @Test
+    void batchCreateEndpoints() throws Exception {
+        // One lookup per referenced entity type and one batched INSERT, however many items are sent (plus the
+        // transport's eager destination box); the unknown box is rejected and the rest are created
+        QueryCountAssertions.reset();
+        mockMvc.perform(post("/api/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"taskType\":\"COLLECTION\",\"description\":\"a\",\"relatedBox\":{\"id\":" + sourceBox.getId() + "}}," +
+                                "{\"taskType\":\"TRANSPORT\",\"description\":\"b\",\"relatedTransport\":{\"id\":" + transport.getId() + "}}," +
+                                "{\"taskType\":\"COLLECTION\",\"description\":\"c\",\"relatedBox\":{\"id\":-1}}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.items[0].outcome").value("CREATED"))
+                .andExpect(jsonPath("$.items[1].id").isNumber())
+                .andExpect(jsonPath("$.items[2].outcome").value("REJECTED"))
+                .andExpect(jsonPath("$.items[2].errors[0]").value("relatedBox: no box with id -1"));
+        assertStatements("POST /api/tasks/batch", 3, 1, 0, 0);
+
+        QueryCountAssertions.reset();
+        mockMvc.perform(post("/api/transports/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"destinationType\":\"FAMILY\",\"sourceBox\":{\"id\":" + sourceBox.getId() + "}}," +
+                                "{\"destinationType\":\"FAMILY\",\"sourceBox\":{\"id\":" + sourceBox.getId() + "}}," +
+                                "{\"sourceBox\":{\"id\":" + sourceBox.getId() + "}}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.items[2].errors[0]").value("destinationType: Destination type must be defined"));
+        assertStatements("POST /api/transports/batch", 1, 1, 0, 0);
+    }
+
+    @Test
+    void importEndpoint() throws Exception {
+        // Each imported box is saved in its own transaction, with its history row
+        perform(post("/api/import/boxes/json")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"city\":\"Haifa\",\"address\":\"Herzl 1\"},{\"city\":\"Haifa\",\"address\":\"Herzl 2\"}]"));
+        assertStatements("POST /api/import/boxes/json", 0, 4, 0, 0);
+    }
+
+    private void perform(RequestBuilder request) throws Exception {
+        QueryCountAssertions.reset();
+        mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+    }
+
+    private static Box box(String name) {
+        Box box = new Box();
+        box.setResponsiblePerson(name);
+        box.setDonationGroup("Group");
+        box.setStatus(Box.BoxStatus.ACTIVE);
+        box.setLatitude(32.0);
+        box.setLongitude(34.8);
+        return box;
+    }
+}
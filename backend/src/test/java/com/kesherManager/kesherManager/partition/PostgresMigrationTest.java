@@ -0,0 +1,134 @@
+package com.kesherManager.kesherManager.partition;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Runs db/migration/postgresql on a real server, on a new database and on tables Hibernate created before
+@Testcontainers(disabledWithoutDocker = true)
+class PostgresMigrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:14-alpine");
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void emptyDatabase() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("drop schema public cascade");
+        jdbc.execute("create schema public");
+    }
+
+    @Test
+    void newDatabaseGetsKeyedPartitionedTables() {
+        migrate();
+
+        assertEquals(List.of("id", "partition_date"), primaryKey("tasks"));
+        assertEquals(List.of("id", "partition_date"), primaryKey("transports"));
+        assertEquals("4", jdbc.queryForObject("select max(version) from flyway_schema_history", String.class));
+
+        // A task without a due date is filed under its creation time, in that month's partition
+        String task = "insert into tasks (id, description, status, created_at, partition_date) " +
+                "values (1, 'no due date', 'PENDING', current_date, current_date)";
+        jdbc.update(task);
+        assertEquals(1, count("tasks_" + jdbc.queryForObject("select to_char(now(), 'YYYY_MM')", String.class)));
+
+        assertThrows(DuplicateKeyException.class, () -> jdbc.update(task));
+        assertThrows(DataIntegrityViolationException.class, () -> jdbc.update(
+                "insert into tasks (description, created_at) values ('no partition date', now())"));
+    }
+
+    @Test
+    void hibernateTablesAreConvertedWithTheirRows() {
+        // What Hibernate's schema update created before the migrations existed
+        jdbc.execute("create table boxes (id bigserial primary key, donation_group varchar(255), status varchar(255), " +
+                "created_at timestamp, updated_at timestamp)");
+        jdbc.execute("create table transports (id bigserial primary key, completion_date timestamp, created_at timestamp, " +
+                "created_by varchar(255), destination_id bigint, destination_name varchar(255), destination_type varchar(255), " +
+                "driver_name varchar(255), driver_phone varchar(255), notes varchar(255), quantity varchar(255), " +
+                "scheduled_date timestamp, status varchar(255), updated_at timestamp, " +
+                "destination_box_id bigint references boxes, source_box_id bigint not null references boxes)");
+        jdbc.execute("create table tasks (id bigserial primary key, assigned_to varchar(255), created_at timestamp, " +
+                "description varchar(255), due_date timestamp, notes varchar(255), priority varchar(255), status varchar(255), " +
+                "task_category varchar(255), task_type varchar(255), updated_at timestamp, " +
+                "related_box_id bigint references boxes, related_transport_id bigint references transports)");
+        jdbc.update("insert into boxes (donation_group, status) values ('north', 'ACTIVE')");
+        jdbc.update("insert into transports (source_box_id, scheduled_date, created_at, status) " +
+                "values (1, '2024-03-10', '2024-02-01', 'COMPLETED'), (1, null, '2024-02-01', 'PLANNED')");
+        jdbc.update("insert into tasks (description, due_date, created_at, related_transport_id) " +
+                "values ('dated', '2024-05-20', '2024-01-15', 1), ('undated', null, '2024-01-15', 2)");
+
+        migrate();
+
+        assertEquals(List.of("id", "partition_date"), primaryKey("transports"));
+        assertEquals(2, count("transports"));
+        assertEquals(Timestamp.valueOf("2024-03-10 00:00:00"), partitionDate("transports", 1));
+        assertEquals(Timestamp.valueOf("2024-02-01 00:00:00"), partitionDate("transports", 2));
+        assertEquals(1, count("transports_2024_03"));
+        assertEquals(1, count("transports_2024_02"));
+
+        assertEquals(List.of("id", "partition_date"), primaryKey("tasks"));
+        assertEquals(Timestamp.valueOf("2024-05-20 00:00:00"), partitionDate("tasks", 1));
+        assertEquals(Timestamp.valueOf("2024-01-15 00:00:00"), partitionDate("tasks", 2));
+        assertEquals("north", jdbc.queryForObject("select donation_group from tasks where id = 1", String.class));
+
+        // The history starts with each row's current status, in its box's group
+        assertEquals(List.of("BOX", "TRANSPORT", "TRANSPORT"), jdbc.queryForList(
+                "select entity_type from status_history where donation_group = 'north' order by entity_type", String.class));
+
+        // The ids go on from the old sequence
+        jdbc.update("insert into tasks (description, created_at, partition_date) values ('new', now(), now())");
+        assertEquals(3L, jdbc.queryForObject("select max(id) from tasks", Long.class));
+    }
+
+    @Test
+    void recurrenceOccurrenceIsUniqueAcrossPartitions() {
+        migrate();
+
+        String occurrence = "insert into tasks (description, recurrence_rule_id, related_box_id, due_date, created_at, " +
+                "partition_date) values ('weekly check', 7, 1, '2024-06-03', now(), '2024-06-03')";
+        jdbc.update(occurrence);
+        assertThrows(DuplicateKeyException.class, () -> jdbc.update(occurrence));
+    }
+
+    private void migrate() {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/postgresql")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+
+    private List<String> primaryKey(String table) {
+        return jdbc.queryForList("select a.attname from pg_constraint c " +
+                "join unnest(c.conkey) with ordinality k(attnum, position) on true " +
+                "join pg_attribute a on a.attrelid = c.conrelid and a.attnum = k.attnum " +
+                "where c.conrelid = to_regclass(?) and c.contype = 'p' order by k.position", String.class, table);
+    }
+
+    private int count(String table) {
+        return jdbc.queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+    private Timestamp partitionDate(String table, long id) {
+        return jdbc.queryForObject("select partition_date from " + table + " where id = ?", Timestamp.class, id);
+    }
+}
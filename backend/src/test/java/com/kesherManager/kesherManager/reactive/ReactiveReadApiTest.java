@@ -0,0 +1,90 @@
+package com.kesherManager.kesherManager.reactive;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ReactiveReadApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BoxRepository boxRepository;
+
+    @Autowired
+    private TransportRepository transportRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    private Box box;
+
+    @BeforeEach
+    void seed() {
+        taskRepository.deleteAll();
+        transportRepository.deleteAll();
+        boxRepository.deleteAll();
+
+        for (String name : new String[]{"Levi", "Cohen", "Mizrahi"}) {
+            Box saved = new Box();
+            saved.setFamilyName(name);
+            saved.setStatus(Box.BoxStatus.ACTIVE);
+            box = boxRepository.save(saved);
+        }
+        Task task = new Task(Task.TaskType.COLLECTION, "Collect", new Date(), Task.TaskPriority.HIGH);
+        task.setRelatedBox(box);
+        taskRepository.save(task);
+    }
+
+    @Test
+    void streamsBoxesAsNdjson() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/v2/boxes").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.trim().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"familyName\":\"Levi\""));
+    }
+
+    @Test
+    void returnsSingleRowsAndNotFound() throws Exception {
+        MvcResult task = mockMvc.perform(get("/api/v2/tasks/status/{status}", "PENDING").accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(task))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].relatedBoxId").value(box.getId()))
+                .andExpect(jsonPath("$[0].priority").value("HIGH"));
+
+        MvcResult missing = mockMvc.perform(get("/api/v2/boxes/{id}", -1)).andReturn();
+        mockMvc.perform(asyncDispatch(missing)).andExpect(status().isNotFound());
+    }
+}
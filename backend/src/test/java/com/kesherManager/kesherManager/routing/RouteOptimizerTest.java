@@ -0,0 +1,100 @@
+package com.kesherManager.kesherManager.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteOptimizerTest {
+
+    @Test
+    void stopsAlongAMeridianAreVisitedEndToEnd() {
+        int[] shuffled = {7, 2, 9, 0, 4, 1, 8, 3, 6, 5};
+        DistanceMatrix matrix = matrix(10, k -> 32.0 + 0.01 * k, k -> 34.8);
+        int[] locations = new int[10];
+        for (int i = 0; i < 10; i++) {
+            locations[i] = shuffled[i];
+        }
+        int[] pickupOf = new int[10];
+        Arrays.fill(pickupOf, -1);
+
+        int[] route = RouteOptimizer.optimize(matrix, locations, pickupOf, deadline());
+
+        assertEquals(matrix.meters(0, 9), RouteOptimizer.length(route, matrix, locations), 1e-6);
+    }
+
+    @Test
+    void dropOffsStayAfterTheirPickupsAndNoReversalIsLeft() {
+        Random random = new Random(7);
+        int transports = 150;
+        DistanceMatrix matrix = matrix(2 * transports, k -> 31.9 + random.nextDouble() * 0.3, k -> 34.7 + random.nextDouble() * 0.3);
+        // Transport t is a pickup at location 2t and a drop-off at 2t + 1
+        int[] locations = new int[2 * transports];
+        int[] pickupOf = new int[2 * transports];
+        for (int t = 0; t < transports; t++) {
+            locations[2 * t] = 2 * t;
+            locations[2 * t + 1] = 2 * t + 1;
+            pickupOf[2 * t] = -1;
+            pickupOf[2 * t + 1] = 2 * t;
+        }
+
+        long started = System.nanoTime();
+        int[] route = RouteOptimizer.optimize(matrix, locations, pickupOf, deadline());
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+
+        int[] position = new int[route.length];
+        for (int k = 0; k < route.length; k++) {
+            position[route[k]] = k;
+        }
+        for (int t = 0; t < transports; t++) {
+            assertTrue(position[2 * t] < position[2 * t + 1]);
+        }
+        // 2-opt ran to the end: no allowed reversal makes the route shorter
+        double length = RouteOptimizer.length(route, matrix, locations);
+        for (int i = 0; i < route.length; i++) {
+            for (int j = i + 1; j < route.length; j++) {
+                int[] reversed = route.clone();
+                for (int a = i, b = j; a < b; a++, b--) {
+                    int stop = reversed[a];
+                    reversed[a] = reversed[b];
+                    reversed[b] = stop;
+                }
+                if (keepsPickupsFirst(reversed, pickupOf)) {
+                    assertTrue(RouteOptimizer.length(reversed, matrix, locations) >= length - 1e-3);
+                }
+            }
+        }
+    }
+
+    private static boolean keepsPickupsFirst(int[] route, int[] pickupOf) {
+        boolean[] visited = new boolean[route.length];
+        for (int stop : route) {
+            if (pickupOf[stop] >= 0 && !visited[pickupOf[stop]]) {
+                return false;
+            }
+            visited[stop] = true;
+        }
+        return true;
+    }
+
+    private static long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    }
+
+    private static DistanceMatrix matrix(int size, java.util.function.IntToDoubleFunction latitude,
+                                         java.util.function.IntToDoubleFunction longitude) {
+        long[] ids = new long[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int k = 0; k < size; k++) {
+            ids[k] = k + 1;
+            latitudes[k] = latitude.applyAsDouble(k);
+            longitudes[k] = longitude.applyAsDouble(k);
+        }
+        return DistanceMatrix.build(new DistanceMatrix.Points(ids, latitudes, longitudes));
+    }
+}
@@ -0,0 +1,105 @@
+package com.kesherManager.kesherManager.routing;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.service.TransportService;
+import com.kesherManager.kesherManager.util.Dates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutePlannerTest {
+
+    private static final LocalDate DAY = new LocalDate(2026, 3, 1);
+
+    private final List<Transport> transports = new ArrayList<>();
+    private final RoutePlanner routePlanner = new RoutePlanner(transportService(transports), new SimpleMeterRegistry(),
+            2, Duration.ofSeconds(5), 1 << 20);
+
+    @AfterEach
+    void stop() {
+        routePlanner.destroy();
+    }
+
+    @Test
+    void plansOneRoutePerDriver() {
+        Box north = box(1L, 32.10, 34.80);
+        Box middle = box(2L, 32.05, 34.80);
+        Box south = box(3L, 32.00, 34.80);
+        Box unplaced = box(4L, null, null);
+
+        Transport toBox = transport(11L, north, "Dana", 9);
+        toBox.setDestinationType(Transport.DestinationType.BOX);
+        toBox.setDestinationBox(south);
+        Transport family = transport(12L, middle, "Dana", 10);
+        Transport noPosition = transport(13L, unplaced, "Dana", 11);
+        Transport other = transport(14L, south, "Noa", 9);
+        Transport unassigned = transport(15L, middle, " ", 9);
+
+        RoutePlan plan = routePlanner.plan(DAY);
+
+        assertEquals("2026-03-01", plan.getDate());
+        assertEquals(List.of(unassigned.getId()), plan.getUnassigned());
+        assertEquals(List.of("Dana", "Noa"), plan.getRoutes().stream().map(RoutePlan.Route::getDriverName).collect(Collectors.toList()));
+
+        RoutePlan.Route dana = plan.getRoutes().get(0);
+        assertEquals(List.of(noPosition.getId()), dana.getUnrouted());
+        // North to south along one meridian, picking up at the middle box on the way
+        assertEquals(List.of(north.getId(), middle.getId(), south.getId()),
+                dana.getStops().stream().map(RoutePlan.Stop::getBoxId).collect(Collectors.toList()));
+        assertEquals(List.of(toBox.getId(), family.getId(), toBox.getId()),
+                dana.getStops().stream().map(RoutePlan.Stop::getTransportId).collect(Collectors.toList()));
+        assertEquals(RoutePlan.Action.DROP_OFF, dana.getStops().get(2).getAction());
+        assertTrue(Math.abs(dana.getDistanceMeters() - 11_120) < 20);
+
+        assertEquals(List.of(other.getId()), plan.getRoutes().get(1).getStops().stream()
+                .map(RoutePlan.Stop::getTransportId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void aDayWithoutTransportsHasNoRoutes() {
+        RoutePlan plan = routePlanner.plan(DAY);
+
+        assertEquals(List.of(), plan.getRoutes());
+        assertEquals(List.of(), plan.getUnassigned());
+    }
+
+    // Only getTransportsOnDay is called by the planner; it gets the day's planned transports
+    private static TransportService transportService(List<Transport> transports) {
+        return (TransportService) Proxy.newProxyInstance(TransportService.class.getClassLoader(),
+                new Class<?>[]{TransportService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getTransportsOnDay")) {
+                        return transports;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Box box(Long id, Double latitude, Double longitude) {
+        Box box = new Box();
+        box.setId(id);
+        box.setLatitude(latitude);
+        box.setLongitude(longitude);
+        return box;
+    }
+
+    private Transport transport(Long id, Box source, String driver, int hour) {
+        Transport transport = new Transport(source, Transport.DestinationType.FAMILY,
+                Dates.atUtc(DAY.toLocalDateTime(LocalTime.MIDNIGHT).plusHours(hour)));
+        transport.setId(id);
+        transport.setDriverName(driver);
+        transports.add(transport);
+        return transport;
+    }
+}
@@ -0,0 +1,155 @@
+package com.kesherManager.kesherManager.search;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import com.kesherManager.kesherManager.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AutocompleteIndexTest {
+
+    private final List<Object[]> boxRows = new ArrayList<>();
+    private final List<Object[]> transportRows = new ArrayList<>();
+    private final AutocompleteIndex index = new AutocompleteIndex(repository(BoxRepository.class, boxRows),
+            repository(TransportRepository.class, transportRows), Duration.ofMinutes(15));
+
+    @AfterEach
+    void stop() {
+        index.destroy();
+    }
+
+    @Test
+    void mostFrequentFirstInAnySpelling() {
+        for (String city : List.of("חיפה", "חולון", "חולון", "חולון ", "חדרה", "Holon")) {
+            boxRows.add(boxRow(city, "Group"));
+        }
+        index.reload();
+
+        // Ties in alphabetical order
+        assertEquals(List.of("חולון:3", "חדרה:1"), suggest(AutocompleteIndex.Field.CITY, "ח", 2));
+        assertEquals(List.of("חולון:3"), suggest(AutocompleteIndex.Field.CITY, "חולו", 5));
+        // Final letters are folded, so a half-typed word matches
+        assertEquals(List.of("חולון:3"), suggest(AutocompleteIndex.Field.CITY, "חולונ", 5));
+        assertEquals(List.of("Holon:1"), suggest(AutocompleteIndex.Field.CITY, "hol", 5));
+        assertEquals(List.of(), suggest(AutocompleteIndex.Field.CITY, "תל", 5));
+    }
+
+    @Test
+    void topKMatchesABruteForceCount() {
+        Random random = new Random(42);
+        String[] syllables = {"בר", "בן", "גל", "דן", "אור", "אל", "ים"};
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String city = syllables[random.nextInt(syllables.length)] + syllables[random.nextInt(syllables.length)]
+                    + (random.nextInt(4) == 0 ? syllables[random.nextInt(syllables.length)] : "");
+            boxRows.add(boxRow(city, "Group"));
+            expected.merge(city, 1, Integer::sum);
+        }
+        index.reload();
+
+        for (String prefix : List.of("", "ב", "בר", "אל", "גלד", "ים")) {
+            List<String> bruteForce = expected.entrySet().stream()
+                    .filter(entry -> entry.getKey().startsWith(prefix))
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(5)
+                    .map(entry -> entry.getKey() + ":" + entry.getValue())
+                    .collect(Collectors.toList());
+            assertEquals(bruteForce, suggest(AutocompleteIndex.Field.CITY, prefix, 5), "prefix " + prefix);
+        }
+    }
+
+    @Test
+    void suggestionsAreScopedToTheTenantsGroup() {
+        boxRows.add(boxRow("חולון", "south"));
+        boxRows.add(boxRow("חיפה", "north"));
+        transportRows.add(new Object[]{1L, "Dana", "Noa", "north"});
+        index.reload();
+
+        TenantContext.set("north");
+        try {
+            assertEquals(List.of("חיפה:1"), suggest(AutocompleteIndex.Field.CITY, "ח", 5));
+            assertEquals(List.of("Dana:1"), suggest(AutocompleteIndex.Field.DRIVER_NAME, "", 5));
+        } finally {
+            TenantContext.clear();
+        }
+        TenantContext.set("center");
+        try {
+            assertEquals(List.of(), suggest(AutocompleteIndex.Field.CITY, "ח", 5));
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    @Test
+    void followsWritesWithoutAReload() throws InterruptedException {
+        index.reload();
+        Box box = box(1L, "נתניה");
+        index.boxSaved(box);
+        awaitSuggestions(AutocompleteIndex.Field.CITY, "נת", List.of("נתניה:1"));
+
+        box.setCity("נצרת");
+        index.boxSaved(box);
+        awaitSuggestions(AutocompleteIndex.Field.CITY, "נ", List.of("נצרת:1"));
+
+        Transport transport = new Transport();
+        transport.setId(1L);
+        transport.setDriverName("Noa");
+        index.transportSaved(transport);
+        awaitSuggestions(AutocompleteIndex.Field.DRIVER_NAME, "n", List.of("Noa:1"));
+
+        index.boxDeleted(box.getId());
+        awaitSuggestions(AutocompleteIndex.Field.CITY, "נ", List.of());
+    }
+
+    // Snapshots are rebuilt on the index's thread shortly after a change
+    private void awaitSuggestions(AutocompleteIndex.Field field, String prefix, List<String> expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!suggest(field, prefix, 10).equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, suggest(field, prefix, 10));
+    }
+
+    private List<String> suggest(AutocompleteIndex.Field field, String prefix, int limit) {
+        return index.suggest(field, prefix, limit).stream()
+                .map(suggestion -> suggestion.getValue() + ":" + suggestion.getCount())
+                .collect(Collectors.toList());
+    }
+
+    // Only findAutocompleteValues is called by the index
+    private static <R> R repository(Class<R> type, List<Object[]> rows) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("findAutocompleteValues")) {
+                return rows;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+
+    // In the order of BoxRepository.findAutocompleteValues
+    private Object[] boxRow(String city, String donationGroup) {
+        return new Object[]{(long) boxRows.size() + 1, "Dana", null, donationGroup, city, donationGroup};
+    }
+
+    private static Box box(Long id, String city) {
+        Box box = new Box();
+        box.setId(id);
+        box.setResponsiblePerson("Dana");
+        box.setDonationGroup("Group");
+        box.setCity(city);
+        return box;
+    }
+}
@@ -0,0 +1,108 @@
+package com.kesherManager.kesherManager.search;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import com.kesherManager.kesherManager.service.BoxService;
+import com.kesherManager.kesherManager.service.TaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class SearchIndexTest {
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private SearchReindexJob reindexJob;
+
+    @Autowired
+    private BoxService boxService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private BoxRepository boxRepository;
+
+    @Autowired
+    private TransportRepository transportRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    private Box box;
+
+    @BeforeEach
+    void seed() throws Exception {
+        taskRepository.deleteAll();
+        transportRepository.deleteAll();
+        boxRepository.deleteAll();
+
+        box = new Box();
+        box.setFamilyName("כהן");
+        box.setAddress("רחוב הרצל 5");
+        box.setDonationGroup("צפון");
+        box.setStatus(Box.BoxStatus.ACTIVE);
+        box.setNotes("המפתח אצל השכנים");
+        box = boxService.saveBox(box);
+
+        Task task = new Task(Task.TaskType.MAINTENANCE, "לתקן את המכסה", new Date(), Task.TaskPriority.LOW);
+        task.setRelatedBox(box);
+        taskService.saveTask(task);
+
+        reindexJob.runNow();
+    }
+
+    @Test
+    void matchesHebrewWordsWithAttachedPrefixes() throws Exception {
+        // "בשכנים" -> "שכנים" and "השכנים" -> "שכנים"
+        SearchResult result = searchIndex.search("בשכנים", Collections.emptyMap(), 0, 10);
+        assertEquals(1, result.getTotal());
+        assertEquals("box", result.getHits().get(0).getType());
+        assertEquals(box.getId(), result.getHits().get(0).getId());
+
+        // Final letter folding: "מכסה" matches "המכסה"
+        assertEquals(1, searchIndex.search("מכסה", Collections.emptyMap(), 0, 10).getTotal());
+    }
+
+    @Test
+    void countsFacetsAndAppliesFilters() throws Exception {
+        SearchResult all = searchIndex.search("", Collections.emptyMap(), 0, 10);
+        assertEquals(2, all.getTotal());
+        assertEquals(Integer.valueOf(1), all.getFacets().get("type").get("box"));
+        assertEquals(Integer.valueOf(1), all.getFacets().get("type").get("task"));
+        assertEquals(Integer.valueOf(2), all.getFacets().get("donationGroup").get("צפון"));
+
+        SearchResult tasks = searchIndex.search("", Map.of("type", "task"), 0, 10);
+        assertEquals(1, tasks.getTotal());
+        assertEquals("task", tasks.getHits().get(0).getType());
+    }
+
+    @Test
+    void serviceUpdatesAreSearchableWithoutReindex() throws Exception {
+        box.setNotes("ליד בית הכנסת");
+        boxService.saveBox(box);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        long total;
+        do {
+            total = searchIndex.search("כנסת", Collections.emptyMap(), 0, 10).getTotal();
+        } while (total == 0 && System.currentTimeMillis() < deadline);
+        assertTrue(total > 0);
+    }
+}
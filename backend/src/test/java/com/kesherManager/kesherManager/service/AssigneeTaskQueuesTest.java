@@ -0,0 +1,92 @@
+package com.kesherManager.kesherManager.service;
+
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AssigneeTaskQueuesTest {
+
+    @Test
+    void queuesStayReadableWhileReloadQueries() {
+        List<List<Long>> seenDuringReload = new ArrayList<>();
+        AssigneeTaskQueues[] queues = new AssigneeTaskQueues[1];
+        queues[0] = new AssigneeTaskQueues(repository(() -> {
+            if (queues[0].isLoaded()) {
+                seenDuringReload.add(queues[0].peek("dana", 10));
+            }
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(row(1L, "dana", Task.TaskPriority.MEDIUM));
+            return rows;
+        }), Duration.ofMinutes(15));
+
+        queues[0].reload();
+        queues[0].reload();
+
+        assertEquals(List.of(List.of(1L)), seenDuringReload);
+        assertEquals(List.of(1L), queues[0].peek("dana", 10));
+    }
+
+    @Test
+    void taskSavedWhileReloadQueriesIsKept() {
+        AssigneeTaskQueues[] queues = new AssigneeTaskQueues[1];
+        // The task commits after the reload's snapshot was taken, before the new queues are swapped in
+        queues[0] = new AssigneeTaskQueues(repository(() -> {
+            queues[0].taskSaved(task(2L, "dana", Task.TaskPriority.HIGH));
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(row(1L, "dana", Task.TaskPriority.MEDIUM));
+            return rows;
+        }), Duration.ofMinutes(15));
+
+        queues[0].reload();
+
+        assertEquals(List.of(2L, 1L), queues[0].peek("dana", 10));
+    }
+
+    @Test
+    void taskReassignedWhileReloadQueriesLeavesTheOldQueue() {
+        AssigneeTaskQueues[] queues = new AssigneeTaskQueues[1];
+        queues[0] = new AssigneeTaskQueues(repository(() -> {
+            queues[0].taskSaved(task(1L, "noa", Task.TaskPriority.MEDIUM));
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(row(1L, "dana", Task.TaskPriority.MEDIUM));
+            return rows;
+        }), Duration.ofMinutes(15));
+
+        queues[0].reload();
+
+        assertEquals(List.of(), queues[0].peek("dana", 10));
+        assertEquals(List.of(1L), queues[0].peek("noa", 10));
+    }
+
+    // Only findAssignedTaskKeys is called by the queues
+    private static TaskRepository repository(Supplier<List<Object[]>> assignedTaskKeys) {
+        return (TaskRepository) Proxy.newProxyInstance(TaskRepository.class.getClassLoader(),
+                new Class<?>[]{TaskRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAssignedTaskKeys")) {
+                        return assignedTaskKeys.get();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Object[] row(Long id, String assignee, Task.TaskPriority priority) {
+        return new Object[]{id, assignee, priority, null};
+    }
+
+    private static Task task(long id, String assignee, Task.TaskPriority priority) {
+        Task task = new Task();
+        task.setId(id);
+        task.setStatus(Task.TaskStatus.PENDING);
+        task.setAssignedTo(assignee);
+        task.setPriority(priority);
+        return task;
+    }
+}
@@ -0,0 +1,76 @@
+package com.kesherManager.kesherManager.service;
+
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OverdueTaskTrackerTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void taskSavedWhileReloadQueriesIsKept() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, new Date(System.currentTimeMillis() - HOUR)});
+        OverdueTaskTracker[] tracker = new OverdueTaskTracker[1];
+        // The task commits after the reload's snapshot was taken, before the new structures are swapped in
+        TaskRepository repository = repository(() -> {
+            tracker[0].taskSaved(task(2L, -2 * HOUR));
+            return rows;
+        });
+        tracker[0] = new OverdueTaskTracker(repository, event -> { }, new SimpleMeterRegistry(),
+                Duration.ofSeconds(1), Duration.ofMinutes(15));
+
+        tracker[0].reload();
+
+        assertEquals(List.of(2L, 1L), tracker[0].getOverdueTaskIds());
+    }
+
+    @Test
+    void taskCompletedWhileReloadQueriesStaysGone() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, new Date(System.currentTimeMillis() - HOUR)});
+        OverdueTaskTracker[] tracker = new OverdueTaskTracker[1];
+        TaskRepository repository = repository(() -> {
+            Task completed = task(1L, -HOUR);
+            completed.setStatus(Task.TaskStatus.COMPLETED);
+            tracker[0].taskSaved(completed);
+            return rows;
+        });
+        tracker[0] = new OverdueTaskTracker(repository, event -> { }, new SimpleMeterRegistry(),
+                Duration.ofSeconds(1), Duration.ofMinutes(15));
+
+        tracker[0].reload();
+
+        assertEquals(List.of(), tracker[0].getOverdueTaskIds());
+    }
+
+    // Only findOpenTaskDueDates is called by the tracker
+    private static TaskRepository repository(Supplier<List<Object[]>> openTaskDueDates) {
+        return (TaskRepository) Proxy.newProxyInstance(TaskRepository.class.getClassLoader(),
+                new Class<?>[]{TaskRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findOpenTaskDueDates")) {
+                        return openTaskDueDates.get();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Task task(long id, long dueInMillis) {
+        Task task = new Task();
+        task.setId(id);
+        task.setStatus(Task.TaskStatus.PENDING);
+        task.setDueDate(new Date(System.currentTimeMillis() + dueInMillis));
+        return task;
+    }
+}
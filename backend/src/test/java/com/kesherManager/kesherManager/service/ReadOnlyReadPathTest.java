@@ -0,0 +1,107 @@
+package com.kesherManager.kesherManager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.model.Transport;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import com.kesherManager.kesherManager.util.Dates;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Service reads run in read-only transactions and return fully loaded entities, so nothing reaches the
+// database once the transaction has ended and its connection is back in the pool
+@SpringBootTest
+@ActiveProfiles("h2")
+class ReadOnlyReadPathTest {
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private BoxRepository boxRepository;
+
+    @Autowired
+    private TransportRepository transportRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Box box;
+
+    @BeforeEach
+    void seed() {
+        taskRepository.deleteAll();
+        transportRepository.deleteAll();
+        boxRepository.deleteAll();
+
+        box = new Box();
+        box.setResponsiblePerson("Dana");
+        box.setStatus(Box.BoxStatus.ACTIVE);
+        box = boxRepository.save(box);
+        Box destination = new Box();
+        destination.setResponsiblePerson("Noa");
+        destination.setStatus(Box.BoxStatus.ACTIVE);
+        destination = boxRepository.save(destination);
+
+        Transport transport = new Transport(box, Transport.DestinationType.BOX, Dates.nowUTC());
+        transport.setDestinationBox(destination);
+        transport = transportRepository.save(transport);
+        Task task = new Task(Task.TaskType.TRANSPORT, "Move food", Dates.nowUTC(), Task.TaskPriority.HIGH);
+        task.setRelatedBox(box);
+        task.setRelatedTransport(transport);
+        taskRepository.save(task);
+    }
+
+    @Test
+    void serializingReadResultsRunsNoQueries() throws Exception {
+        List<Task> tasks = taskService.getAllTasks();
+
+        long before = QueryCountHolder.getGrandTotal().getTotal();
+        String json = objectMapper.writeValueAsString(tasks);
+        assertEquals(0, QueryCountHolder.getGrandTotal().getTotal() - before);
+        assertTrue(json.contains("\"destinationBox\""));
+    }
+
+    @Test
+    void readOnlyTransactionsNeitherFlushNorDirtyCheck() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            assertEquals(FlushMode.MANUAL, session.getHibernateFlushMode());
+
+            Box loaded = boxRepository.findById(box.getId()).orElseThrow();
+            assertTrue(session.isReadOnly(loaded));
+            loaded.setResponsiblePerson("Changed");
+        });
+
+        assertEquals("Dana", boxRepository.findById(box.getId()).orElseThrow().getResponsiblePerson());
+    }
+}
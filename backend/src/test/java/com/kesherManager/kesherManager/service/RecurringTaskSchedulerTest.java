@@ -0,0 +1,125 @@
+package com.kesherManager.kesherManager.service;
+
+import com.kesherManager.kesherManager.model.Box;
+import com.kesherManager.kesherManager.model.RecurrenceRule;
+import com.kesherManager.kesherManager.model.Task;
+import com.kesherManager.kesherManager.monitoring.QueryCountAssertions;
+import com.kesherManager.kesherManager.repository.BoxRepository;
+import com.kesherManager.kesherManager.repository.RecurrenceRuleRepository;
+import com.kesherManager.kesherManager.repository.TaskRepository;
+import com.kesherManager.kesherManager.repository.TransportRepository;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class RecurringTaskSchedulerTest {
+
+    @Autowired
+    private RecurringTaskScheduler recurringTaskScheduler;
+
+    @Autowired
+    private RecurrenceRuleService recurrenceRuleService;
+
+    @Autowired
+    private RecurrenceRuleRepository recurrenceRuleRepository;
+
+    @Autowired
+    private BoxRepository boxRepository;
+
+    @Autowired
+    private TransportRepository transportRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    private Box north1;
+    private Box north2;
+
+    @BeforeEach
+    void seed() {
+        recurrenceRuleRepository.deleteAll();
+        taskRepository.deleteAll();
+        transportRepository.deleteAll();
+        boxRepository.deleteAll();
+
+        north1 = boxRepository.save(box("north", Box.BoxStatus.ACTIVE));
+        north2 = boxRepository.save(box("north", Box.BoxStatus.ACTIVE));
+        boxRepository.save(box("north", Box.BoxStatus.INACTIVE));
+        boxRepository.save(box("south", Box.BoxStatus.ACTIVE));
+    }
+
+    @Test
+    void generatesEachOccurrenceOnceForTheGroupsActiveBoxes() {
+        // Started 15 days ago every 14 days: occurrences 15 days ago and yesterday; the next is beyond the lookahead
+        RecurrenceRule rule = recurrenceRuleService.saveRule(rule("north", 14, daysFromNow(-15)));
+
+        QueryCountAssertions.reset();
+        assertEquals(4, recurringTaskScheduler.run());
+        // One INSERT ... SELECT per occurrence, not per box, and one batch of history rows
+        assertEquals(3, QueryCountHolder.getGrandTotal().getInsert());
+
+        List<Task> tasks = taskRepository.findAll();
+        assertEquals(4, tasks.size());
+        for (Task task : tasks) {
+            assertEquals(rule.getId(), task.getRecurrenceRuleId());
+            assertEquals("north", task.getDonationGroup());
+            assertEquals(Task.TaskStatus.PENDING, task.getStatus());
+            assertEquals(Task.TaskType.MAINTENANCE, task.getTaskType());
+        }
+        assertEquals(2, taskRepository.findByRelatedBox(north1).size());
+        assertEquals(2, taskRepository.findByRelatedBox(north2).size());
+
+        // Nothing new is due
+        assertEquals(0, recurringTaskScheduler.run());
+    }
+
+    @Test
+    void regeneratingAnOccurrenceCreatesNothing() {
+        RecurrenceRule rule = recurrenceRuleService.saveRule(rule(null, 30, daysFromNow(-1)));
+        assertEquals(3, recurringTaskScheduler.run());
+
+        // Forget how far the rule got: the existing occurrence is skipped, a box activated since then gets it
+        Box south2 = boxRepository.save(box("south", Box.BoxStatus.ACTIVE));
+        RecurrenceRule stored = recurrenceRuleRepository.findById(rule.getId()).get();
+        stored.setGeneratedThrough(null);
+        recurrenceRuleRepository.save(stored);
+
+        assertEquals(1, recurringTaskScheduler.run());
+        assertEquals(4, taskRepository.count());
+        assertEquals(1, taskRepository.findByRelatedBox(south2).size());
+    }
+
+    private static RecurrenceRule rule(String donationGroup, int intervalDays, Date startDate) {
+        RecurrenceRule rule = new RecurrenceRule();
+        rule.setTaskType(Task.TaskType.MAINTENANCE);
+        rule.setDescription("Check the box");
+        rule.setPriority(Task.TaskPriority.MEDIUM);
+        rule.setDonationGroup(donationGroup);
+        rule.setIntervalDays(intervalDays);
+        rule.setStartDate(startDate);
+        return rule;
+    }
+
+    private static Date daysFromNow(int days) {
+        return new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(days));
+    }
+
+    private static Box box(String donationGroup, Box.BoxStatus status) {
+        Box box = new Box();
+        box.setResponsiblePerson("Dana");
+        box.setDonationGroup(donationGroup);
+        box.setStatus(status);
+        return box;
+    }
+}
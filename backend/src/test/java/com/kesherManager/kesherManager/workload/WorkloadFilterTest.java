@@ -0,0 +1,105 @@
+package com.kesherManager.kesherManager.workload;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkloadFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void classifiesBulkEndpoints() {
+        WorkloadFilter filter = new WorkloadFilter(new WorkloadProperties(), meterRegistry);
+
+        assertEquals(Workload.BULK, filter.classify(new MockHttpServletRequest("POST", "/api/import/boxes/json")));
+        assertEquals(Workload.BULK, filter.classify(new MockHttpServletRequest("GET", "/api/tasks")));
+        assertEquals(Workload.BULK, filter.classify(new MockHttpServletRequest("POST", "/api/transports/batch")));
+        assertEquals(Workload.INTERACTIVE, filter.classify(new MockHttpServletRequest("GET", "/api/tasks/5")));
+        assertEquals(Workload.INTERACTIVE, filter.classify(new MockHttpServletRequest("PATCH", "/api/transports/5/status")));
+    }
+
+    @Test
+    void turnsAwayBulkRequestsBeyondTheQueueWithoutBlockingInteractiveOnes() throws Exception {
+        WorkloadProperties properties = new WorkloadProperties();
+        properties.getBulk().setMaxConcurrent(1);
+        properties.getBulk().setMaxQueued(1);
+        properties.getBulk().setQueueTimeout(Duration.ofMillis(200));
+        WorkloadFilter filter = new WorkloadFilter(properties, meterRegistry);
+
+        CountDownLatch importRunning = new CountDownLatch(1);
+        CountDownLatch finishImport = new CountDownLatch(1);
+        FilterChain slowImport = (request, response) -> {
+            assertEquals(Workload.BULK, WorkloadContext.current());
+            importRunning.countDown();
+            try {
+                finishImport.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CompletableFuture<MockHttpServletResponse> running = CompletableFuture.supplyAsync(() -> perform(filter, "POST", "/api/import/boxes", slowImport));
+        assertTrue(importRunning.await(5, TimeUnit.SECONDS));
+
+        // Waits for the running import and gives up after the queue timeout
+        CompletableFuture<MockHttpServletResponse> queued = CompletableFuture.supplyAsync(() -> perform(filter, "POST", "/api/import/boxes", (request, response) -> { }));
+        while (meterRegistry.get("kesher.workload.queued").tag("class", "bulk").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+        // No room left in the queue
+        assertEquals(429, perform(filter, "GET", "/api/boxes", (request, response) -> { }).getStatus());
+        // Interactive requests have their own bulkhead
+        assertEquals(200, perform(filter, "PATCH", "/api/tasks/1/status", (request, response) ->
+                assertEquals(Workload.INTERACTIVE, WorkloadContext.current())).getStatus());
+
+        MockHttpServletResponse timedOut = queued.get(5, TimeUnit.SECONDS);
+        assertEquals(503, timedOut.getStatus());
+        assertEquals("1", timedOut.getHeader("Retry-After"));
+
+        finishImport.countDown();
+        assertEquals(200, running.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(1, requests("admitted"));
+        assertEquals(1, requests("queue_full"));
+        assertEquals(1, requests("timed_out"));
+    }
+
+    @Test
+    void asyncRequestsHoldTheirPermitUntilTheResponseEnds() throws Exception {
+        WorkloadFilter filter = new WorkloadFilter(new WorkloadProperties(), meterRegistry);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/boxes");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertEquals(1, meterRegistry.get("kesher.workload.active").tag("class", "bulk").gauge().value());
+        assertNull(meterRegistry.find("kesher.workload.requests").timer());
+
+        request.getAsyncContext().complete();
+        assertEquals(0, meterRegistry.get("kesher.workload.active").tag("class", "bulk").gauge().value());
+        assertEquals(1, requests("admitted"));
+    }
+
+    private long requests(String outcome) {
+        return meterRegistry.get("kesher.workload.requests").tag("class", "bulk").tag("outcome", outcome).timer().count();
+    }
+
+    private static MockHttpServletResponse perform(WorkloadFilter filter, String method, String path, FilterChain chain) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(new MockHttpServletRequest(method, path), response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}